@@ -0,0 +1,84 @@
+package Benchmarks;
+
+import Grids.*;
+import Operations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.SplittableRandom;
+
+/**
+ * Les données communes aux benchmarks : les fichiers de test et les puzzles générés avec une graine fixe,
+ * pour que deux lancements mesurent exactement le même travail
+ */
+abstract class Fixtures {
+    /**
+     * La graine utilisée pour tous les choix aléatoires des benchmarks
+     */
+    static final long SEED = 20240101L;
+
+    /**
+     * Copie les fichiers de test dans les dossiers lus par l'application, relatifs au dossier courant.
+     * Le dossier racine du projet est donné par la propriété sudoku.root, et vaut par défaut le dossier parent
+     * @throws IOException S'il y a une erreur lors de la copie
+     */
+    static void install() throws IOException {
+        Path tests = Path.of(System.getProperty("sudoku.root", ".."), "data", "tests");
+        Path sudokus = Files.createDirectories(Path.of("data", "sudokus"));
+        Path multidokus = Files.createDirectories(Path.of("data", "multidokus"));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(tests, "*.txt")) {
+            for (Path file : files) {
+                Path target = file.getFileName().toString().startsWith("multidoku") ? multidokus : sudokus;
+                Files.copy(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Crée un contexte de résolution sans logs, avec la graine des benchmarks
+     * @return Le contexte
+     */
+    static SolverContext quietContext() {
+        SolverContext context = new SolverContext(SEED);
+        context.setLogging(false);
+        return context;
+    }
+
+    /**
+     * Remet un contexte dans l'état où le laisse quietContext, sans en créer un nouveau :
+     * son générateur repart de la graine des benchmarks et ses statistiques sont remises à zéro
+     * @param context Le contexte à remettre à zéro
+     */
+    static void reset(SolverContext context) {
+        context.setRandom(new SplittableRandom(SEED));
+        context.resetStatistics();
+    }
+
+    /**
+     * Génère une grille résolue avec la graine des benchmarks
+     * @param size La taille du sudoku
+     * @return Le sudoku résolu
+     * @throws IllegalStateException Si la génération échoue
+     */
+    static Sudoku solvedPuzzle(int size) throws IllegalStateException {
+        Sudoku sudoku = new Sudoku(size, null);
+        if (!Solver.generateNewSolvedPuzzle(quietContext(), sudoku, null)) {
+            throw new IllegalStateException("Impossible de générer une grille de taille " + size);
+        }
+        return sudoku;
+    }
+
+    /**
+     * Génère un puzzle à résoudre avec la graine des benchmarks.
+     * La difficulté demandée n'est pas forcément atteinte, mais le puzzle obtenu est toujours le même
+     * @param size La taille du sudoku
+     * @param difficulty La difficulté, soit 1 (facile), 2 (moyen) ou 3 (difficile)
+     * @return Le puzzle à résoudre
+     * @throws IllegalStateException Si la génération de la grille résolue échoue
+     */
+    static Sudoku puzzleToSolve(int size, int difficulty) throws IllegalStateException {
+        Sudoku sudoku = solvedPuzzle(size);
+        Solver.generateNewPuzzleToSolve(quietContext(), sudoku, null, difficulty);
+        return sudoku;
+    }
+}
@@ -0,0 +1,192 @@
+package Benchmarks;
+
+import Grids.*;
+import Operations.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure la lecture des fichiers de test et la résolution des puzzles qu'ils contiennent.
+ * Les fichiers sont d'abord copiés de data/tests vers les dossiers lus par l'application, relatifs au dossier courant
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FixturesBenchmark {
+    /**
+     * Un fichier de test de sudoku à lire
+     */
+    @State(Scope.Thread)
+    public static class SudokuFile {
+        /**
+         * Le nom du fichier, sans extension
+         */
+        @Param({"sudoku_9x9_easy", "sudoku_9x9_superhard", "sudoku_4x4_customConstraints"})
+        public String filename;
+
+        /**
+         * Copie les fichiers de test
+         * @throws IOException S'il y a une erreur lors de la copie
+         */
+        @Setup(Level.Trial)
+        public void install() throws IOException {
+            Fixtures.install();
+        }
+    }
+
+    /**
+     * Un fichier de test de multidoku à lire
+     */
+    @State(Scope.Thread)
+    public static class MultidokuFile {
+        /**
+         * Le nom du fichier, sans extension
+         */
+        @Param({"multidoku_2x2x2", "multidoku_3x3x5_customPlacements"})
+        public String filename;
+
+        /**
+         * Copie les fichiers de test
+         * @throws IOException S'il y a une erreur lors de la copie
+         */
+        @Setup(Level.Trial)
+        public void install() throws IOException {
+            Fixtures.install();
+        }
+    }
+
+    /**
+     * Un sudoku de test à résoudre
+     */
+    @State(Scope.Thread)
+    public static class SudokuPuzzle {
+        /**
+         * Le nom du fichier, sans extension
+         */
+        @Param({"sudoku_9x9_easy", "sudoku_9x9_superhard", "sudoku_4x4_customConstraints"})
+        public String filename;
+        /**
+         * Le sudoku lu une seule fois
+         */
+        private Sudoku template;
+        /**
+         * Le contexte des résolutions, créé une seule fois et remis à zéro à chaque appel
+         */
+        private SolverContext context;
+
+        /**
+         * Copie les fichiers de test, lit le sudoku et crée le contexte
+         * @throws IOException S'il y a une erreur lors de la copie ou de la lecture
+         */
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            Fixtures.install();
+            this.template = FilesOperations.readSudokuFromFile(this.filename);
+            this.context = Fixtures.quietContext();
+        }
+    }
+
+    /**
+     * Un multidoku de test à résoudre
+     */
+    @State(Scope.Thread)
+    public static class MultidokuPuzzle {
+        /**
+         * Le nom du fichier, sans extension
+         */
+        @Param({"multidoku_2x2x2", "multidoku_3x3x5_customPlacements"})
+        public String filename;
+        /**
+         * Le multidoku lu une seule fois
+         */
+        private Multidoku template;
+        /**
+         * Le contexte des résolutions, créé une seule fois et remis à zéro à chaque appel
+         */
+        private SolverContext context;
+
+        /**
+         * Copie les fichiers de test, lit le multidoku et crée le contexte
+         * @throws IOException S'il y a une erreur lors de la copie ou de la lecture
+         */
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            Fixtures.install();
+            this.template = FilesOperations.readMultidokuFromFile(this.filename);
+            this.context = Fixtures.quietContext();
+        }
+    }
+
+    /**
+     * Lit un sudoku depuis son fichier
+     * @param file Le fichier à lire
+     * @return Le sudoku lu
+     * @throws IOException S'il y a une erreur lors de la lecture
+     */
+    @Benchmark
+    public Sudoku readSudokuFromFile(SudokuFile file) throws IOException {
+        return FilesOperations.readSudokuFromFile(file.filename);
+    }
+
+    /**
+     * Lit un multidoku depuis son fichier
+     * @param file Le fichier à lire
+     * @return Le multidoku lu
+     * @throws IOException S'il y a une erreur lors de la lecture
+     */
+    @Benchmark
+    public Multidoku readMultidokuFromFile(MultidokuFile file) throws IOException {
+        return FilesOperations.readMultidokuFromFile(file.filename);
+    }
+
+    /**
+     * Remet le contexte à zéro et copie un sudoku de test, sans le résoudre : c'est la part de solveSudoku qui ne vient pas de la résolution
+     * @param sudoku Le sudoku à copier
+     * @return La copie
+     */
+    @Benchmark
+    public Sudoku copySudoku(SudokuPuzzle sudoku) {
+        Fixtures.reset(sudoku.context);
+        return sudoku.template.copy();
+    }
+
+    /**
+     * Résout une copie d'un sudoku de test avec l'algorithme mixte.
+     * La copie est faite dans le temps mesuré, parce qu'une préparation à chaque appel n'est pas fiable pour des appels si courts
+     * @param sudoku Le sudoku à résoudre
+     * @return Si le sudoku a été résolu
+     */
+    @Benchmark
+    public boolean solveSudoku(SudokuPuzzle sudoku) {
+        Fixtures.reset(sudoku.context);
+        return Solver.solveWithBoth(sudoku.context, sudoku.template.copy(), null);
+    }
+
+    /**
+     * Remet le contexte à zéro et copie un multidoku de test, sans le résoudre : c'est la part de solveMultidoku qui ne vient pas de la résolution
+     * @param multidoku Le multidoku à copier
+     * @return La copie
+     */
+    @Benchmark
+    public Puzzle copyMultidoku(MultidokuPuzzle multidoku) {
+        Fixtures.reset(multidoku.context);
+        return multidoku.template.copy();
+    }
+
+    /**
+     * Résout une copie d'un multidoku de test avec l'algorithme mixte.
+     * La copie est faite dans le temps mesuré, parce qu'une préparation à chaque appel n'est pas fiable pour des appels si courts
+     * @param multidoku Le multidoku à résoudre
+     * @return Si le multidoku a été résolu
+     */
+    @Benchmark
+    public boolean solveMultidoku(MultidokuPuzzle multidoku) {
+        Fixtures.reset(multidoku.context);
+        return Solver.solveWithBoth(multidoku.context, multidoku.template.copy(), null);
+    }
+}
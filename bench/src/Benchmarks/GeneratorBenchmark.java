@@ -0,0 +1,79 @@
+package Benchmarks;
+
+import Grids.*;
+import Operations.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure le temps de génération d'une grille résolue et d'un puzzle à résoudre, pour chaque taille de grille.
+ * Chaque appel repart de la même graine, et fait donc exactement les mêmes choix
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+    /**
+     * La taille des sudokus générés
+     */
+    @Param({"4", "9", "16"})
+    public int size;
+    /**
+     * La difficulté des puzzles générés
+     */
+    @Param({"1"})
+    public int difficulty;
+
+    /**
+     * La grille résolue dont on enlève des cases, générée une seule fois
+     */
+    private Sudoku solved;
+    /**
+     * Le contexte des générations, créé une seule fois et remis à zéro à chaque appel
+     */
+    private SolverContext context;
+
+    /**
+     * Génère la grille résolue et crée le contexte
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        this.solved = Fixtures.solvedPuzzle(this.size);
+        this.context = Fixtures.quietContext();
+    }
+
+    /**
+     * Remet le contexte à zéro et copie la grille résolue, sans rien générer : c'est la part des autres mesures qui ne vient pas de la génération
+     * @return La copie de la grille
+     */
+    @Benchmark
+    public Sudoku copy() {
+        Fixtures.reset(this.context);
+        return this.solved.copy();
+    }
+
+    /**
+     * Génère une grille résolue à partir d'une grille vide
+     * @return Si la génération a réussi
+     */
+    @Benchmark
+    public boolean generateNewSolvedPuzzle() {
+        Fixtures.reset(this.context);
+        return Solver.generateNewSolvedPuzzle(this.context, new Sudoku(this.size, null), null);
+    }
+
+    /**
+     * Enlève des cases à une copie de la grille résolue
+     * @return Si la difficulté a été atteinte
+     */
+    @Benchmark
+    public boolean generateNewPuzzleToSolve() {
+        Fixtures.reset(this.context);
+        return Solver.generateNewPuzzleToSolve(this.context, this.solved.copy(), null, this.difficulty);
+    }
+}
@@ -0,0 +1,95 @@
+package Benchmarks;
+
+import Grids.*;
+import Operations.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesure le temps de résolution d'un puzzle généré avec une graine fixe, pour chaque algorithme et chaque taille de grille.
+ * Le backtracking seul devient très lent sur les grandes grilles au-delà de la difficulté facile
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+    /**
+     * La taille des sudokus résolus
+     */
+    @Param({"4", "9", "16"})
+    public int size;
+    /**
+     * La difficulté des sudokus résolus
+     */
+    @Param({"1"})
+    public int difficulty;
+
+    /**
+     * Le puzzle à résoudre, généré une seule fois
+     */
+    private Sudoku template;
+    /**
+     * Le contexte des résolutions, créé une seule fois et remis à zéro à chaque appel
+     */
+    private SolverContext context;
+
+    /**
+     * Génère le puzzle à résoudre et crée le contexte
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        this.template = Fixtures.puzzleToSolve(this.size, this.difficulty);
+        this.context = Fixtures.quietContext();
+    }
+
+    /**
+     * Remet le contexte à zéro et donne une copie du puzzle à résoudre.
+     * La copie est faite dans le temps mesuré, parce qu'une préparation à chaque appel n'est pas fiable pour des appels si courts
+     * @return La copie
+     */
+    private Sudoku prepare() {
+        Fixtures.reset(this.context);
+        return this.template.copy();
+    }
+
+    /**
+     * Prépare le puzzle sans le résoudre : c'est la part des autres mesures qui ne vient pas de la résolution
+     * @return La copie du puzzle
+     */
+    @Benchmark
+    public Sudoku copy() {
+        return prepare();
+    }
+
+    /**
+     * Résout une copie du puzzle par propagation de contraintes
+     * @return Si le puzzle a été résolu
+     */
+    @Benchmark
+    public boolean solveWithConstraints() {
+        return Solver.solveWithConstraints(this.context, prepare(), null);
+    }
+
+    /**
+     * Résout une copie du puzzle par backtracking
+     * @return Si le puzzle a été résolu
+     */
+    @Benchmark
+    public boolean solveWithBacktracking() {
+        return Solver.solveWithBacktracking(this.context, prepare(), null);
+    }
+
+    /**
+     * Résout une copie du puzzle avec l'algorithme mixte
+     * @return Si le puzzle a été résolu
+     */
+    @Benchmark
+    public boolean solveWithBoth() {
+        return Solver.solveWithBoth(this.context, prepare(), null);
+    }
+}
@@ -0,0 +1,41 @@
+package Constraints;
+
+import Grids.*;
+
+import java.util.ArrayList;
+
+/**
+ * Une règle de déduction qui raisonne sur des unités entières (lignes, colonnes et blocs) où chaque valeur doit apparaître exactement une fois,
+ * ce qui permet d'enlever des valeurs possibles que les contraintes case par case ne peuvent pas voir
+ */
+public interface DeductionRule {
+    /**
+     * Applique la règle une fois sur toutes les unités d'un puzzle, les valeurs enlevées étant enregistrées par le trail
+     * @param index L'index des unités du puzzle
+     * @param trail Le trail attaché au puzzle, qui donne accès à ses cases
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    boolean apply(PeerIndex index, Trail trail);
+
+    /**
+     * Getter du nom de la règle
+     * @return Le nom de la règle
+     */
+    String getName();
+
+    /**
+     * Crée la liste des règles utilisées par défaut par le solveur, de la moins coûteuse à la plus coûteuse
+     * @return Une nouvelle liste de règles
+     */
+    static ArrayList<DeductionRule> defaultRules() {
+        ArrayList<DeductionRule> rules = new ArrayList<>();
+        rules.add(new HiddenSingleRule());
+        rules.add(new IntersectionRule(true));
+        rules.add(new IntersectionRule(false));
+        rules.add(new SubsetRule(2, false));
+        rules.add(new SubsetRule(2, true));
+        rules.add(new SubsetRule(3, false));
+        rules.add(new SubsetRule(3, true));
+        return rules;
+    }
+}
@@ -171,6 +171,24 @@ public class EqualConstraint implements SudokuConstraint {
         return true;
     }
 
+    /**
+     * Getter de la case qui subit la contrainte
+     * @return La case contrainte
+     */
+    @Override
+    public Case getConstrainedCase() {
+        return this.constrainedCase;
+    }
+
+    /**
+     * Getter des cases auxquelles on compare la case contrainte
+     * @return Les cases auxquelles on compare la case contrainte
+     */
+    @Override
+    public ArrayList<Case> getCasesToCompareTo() {
+        return this.casesToCompareTo;
+    }
+
     /**
      * Crée un string qui représente la case
      * @return Un string qui représente la case
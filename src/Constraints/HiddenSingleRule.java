@@ -0,0 +1,48 @@
+package Constraints;
+
+import Grids.*;
+
+/**
+ * La règle du singleton caché : si une valeur n'est possible que dans une seule case d'une unité, alors cette case prend cette valeur
+ */
+public class HiddenSingleRule extends UnitRule {
+    /**
+     * Applique la règle une fois sur toutes les unités d'un puzzle
+     * @param index L'index des unités du puzzle
+     * @param trail Le trail attaché au puzzle, qui donne accès à ses cases
+     * @return Un booléen qui indique si le puzzle est encore résolvable, c'est-à-dire si chaque valeur est encore possible dans chaque unité
+     */
+    @Override
+    public boolean apply(PeerIndex index, Trail trail) {
+        for (int[] unit : allUnits(index)) {
+            for (int value = 0; value < unit.length; value++) {
+                // on cherche les cases de l'unité qui peuvent prendre cette valeur
+                int count = 0;
+                int found = -1;
+                for (int cell : unit) {
+                    if (trail.getCase(cell).isPossibleValue(value)) {
+                        count++;
+                        found = cell;
+                    }
+                }
+                if (count == 0) {
+                    return false;
+                }
+                // si une seule case le peut, alors c'est forcément elle
+                if (count == 1 && trail.getCase(found).possibleValuesCount() > 1) {
+                    trail.getCase(found).setValue(value);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Getter du nom de la règle
+     * @return Le nom de la règle
+     */
+    @Override
+    public String getName() {
+        return "singleton caché";
+    }
+}
@@ -0,0 +1,144 @@
+package Constraints;
+
+import Grids.*;
+
+/**
+ * Les règles d'intersection entre un bloc et une ligne ou une colonne :
+ * si dans un bloc une valeur n'est possible que sur une seule ligne (ou colonne), alors elle est impossible sur le reste de cette ligne (paire pointante),
+ * et si dans une ligne (ou colonne) une valeur n'est possible que dans un seul bloc, alors elle est impossible dans le reste de ce bloc (réduction ligne-bloc)
+ */
+public class IntersectionRule extends UnitRule {
+    /**
+     * Le genre des unités qui sont des lignes
+     */
+    private static final int LINES = 0;
+    /**
+     * Le genre des unités qui sont des colonnes
+     */
+    private static final int COLUMNS = 1;
+    /**
+     * Le genre des unités qui sont des blocs
+     */
+    private static final int BLOCS = 2;
+    /**
+     * Indique si on part des blocs pour éliminer sur les lignes et les colonnes, ou l'inverse
+     */
+    private final boolean fromBlocs;
+
+    /**
+     * Constructeur de la classe
+     * @param fromBlocs Si on cherche des paires pointantes (vrai) ou des réductions ligne-bloc (faux)
+     */
+    public IntersectionRule(boolean fromBlocs) {
+        this.fromBlocs = fromBlocs;
+    }
+
+    /**
+     * Applique la règle une fois sur toutes les unités d'un puzzle
+     * @param index L'index des unités du puzzle
+     * @param trail Le trail attaché au puzzle, qui donne accès à ses cases
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    @Override
+    public boolean apply(PeerIndex index, Trail trail) {
+        boolean[] inSource = new boolean[index.getCasesCount()];
+        if (this.fromBlocs) {
+            return reduce(index, trail, BLOCS, LINES, inSource) && reduce(index, trail, BLOCS, COLUMNS, inSource);
+        }
+        return reduce(index, trail, LINES, BLOCS, inSource) && reduce(index, trail, COLUMNS, BLOCS, inSource);
+    }
+
+    /**
+     * Enlève des unités cibles les valeurs qui, dans une unité source, ne sont possibles que dans leur intersection
+     * @param index L'index des unités du puzzle
+     * @param trail Le trail attaché au puzzle
+     * @param sourceKind Le genre des unités sources
+     * @param targetKind Le genre des unités cibles
+     * @param inSource Un tableau de travail entièrement faux, qui l'est encore à la fin de la méthode
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    private static boolean reduce(PeerIndex index, Trail trail, int sourceKind, int targetKind, boolean[] inSource) {
+        int[][] targets = units(index, targetKind);
+        for (int[] source : units(index, sourceKind)) {
+            for (int cell : source) {
+                inSource[cell] = true;
+            }
+            for (int value = 0; value < source.length; value++) {
+                // on regarde si toutes les cases où la valeur est possible sont dans la même unité cible
+                int target = -1;
+                int count = 0;
+                for (int cell : source) {
+                    if (trail.getCase(cell).isPossibleValue(value)) {
+                        int cellTarget = unitOf(index, targetKind, cell);
+                        if (count > 0 && cellTarget != target) {
+                            target = -1;
+                            break;
+                        }
+                        target = cellTarget;
+                        count++;
+                    }
+                }
+                // une valeur possible une seule fois est gérée par le singleton caché
+                if (target == -1 || count < 2) continue;
+                for (int cell : targets[target]) {
+                    if (!inSource[cell]) {
+                        Case c = trail.getCase(cell);
+                        c.removePossibleValue(value);
+                        if (!c.isValid()) {
+                            for (int sourceCell : source) {
+                                inSource[sourceCell] = false;
+                            }
+                            return false;
+                        }
+                    }
+                }
+            }
+            for (int cell : source) {
+                inSource[cell] = false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retourne les unités d'un genre donné
+     * @param index L'index des unités du puzzle
+     * @param kind Le genre des unités
+     * @return Les unités de ce genre
+     */
+    private static int[][] units(PeerIndex index, int kind) {
+        if (kind == LINES) {
+            return index.getLines();
+        }
+        if (kind == COLUMNS) {
+            return index.getColumns();
+        }
+        return index.getBlocs();
+    }
+
+    /**
+     * Retourne le numéro de l'unité d'un genre donné à laquelle appartient une case
+     * @param index L'index des unités du puzzle
+     * @param kind Le genre de l'unité
+     * @param cell L'indice de la case
+     * @return Le numéro de l'unité
+     */
+    private static int unitOf(PeerIndex index, int kind, int cell) {
+        if (kind == LINES) {
+            return index.getLineOf(cell);
+        }
+        if (kind == COLUMNS) {
+            return index.getColumnOf(cell);
+        }
+        return index.getBlocOf(cell);
+    }
+
+    /**
+     * Getter du nom de la règle
+     * @return Le nom de la règle
+     */
+    @Override
+    public String getName() {
+        return this.fromBlocs ? "paire pointante" : "réduction ligne-bloc";
+    }
+}
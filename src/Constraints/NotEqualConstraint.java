@@ -164,6 +164,24 @@ public class NotEqualConstraint implements SudokuConstraint {
         return true;
     }
 
+    /**
+     * Getter de la case qui subit la contrainte
+     * @return La case contrainte
+     */
+    @Override
+    public Case getConstrainedCase() {
+        return this.constrainedCase;
+    }
+
+    /**
+     * Getter des cases auxquelles on compare la case contrainte
+     * @return Les cases auxquelles on compare la case contrainte
+     */
+    @Override
+    public ArrayList<Case> getCasesToCompareTo() {
+        return this.casesToCompareTo;
+    }
+
     /**
      * Crée un string qui représente la contrainte
      * @return Un string qui représente la contrainte
@@ -0,0 +1,153 @@
+package Constraints;
+
+import Grids.*;
+
+/**
+ * Les règles des sous-ensembles nus et cachés (paires, triplets, quadruplets) :
+ * si n cases d'une unité n'ont à elles toutes que n valeurs possibles, alors ces valeurs sont impossibles dans les autres cases de l'unité (sous-ensemble nu),
+ * et si n valeurs d'une unité ne sont possibles que dans n cases, alors ces cases ne peuvent pas prendre d'autres valeurs (sous-ensemble caché)
+ */
+public class SubsetRule extends UnitRule {
+    /**
+     * Le nombre de cases et de valeurs du sous-ensemble cherché
+     */
+    private final int size;
+    /**
+     * Indique si on cherche des sous-ensembles cachés plutôt que des sous-ensembles nus
+     */
+    private final boolean hidden;
+
+    /**
+     * Constructeur de la classe
+     * @param size Le nombre de cases et de valeurs du sous-ensemble cherché, soit 2 (paire), 3 (triplet) ou 4 (quadruplet)
+     * @param hidden Si on cherche des sous-ensembles cachés plutôt que des sous-ensembles nus
+     * @throws IllegalArgumentException Si la taille n'est pas comprise entre 2 et 4
+     */
+    public SubsetRule(int size, boolean hidden) throws IllegalArgumentException {
+        if (size < 2 || size > 4) {
+            throw new IllegalArgumentException("La taille d'un sous-ensemble doit être comprise entre 2 et 4");
+        }
+        this.size = size;
+        this.hidden = hidden;
+    }
+
+    /**
+     * Applique la règle une fois sur toutes les unités d'un puzzle
+     * @param index L'index des unités du puzzle
+     * @param trail Le trail attaché au puzzle, qui donne accès à ses cases
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    @Override
+    public boolean apply(PeerIndex index, Trail trail) {
+        for (int[] unit : allUnits(index)) {
+            if (unit.length > MAX_UNIT_SIZE) continue;
+
+            // les éléments sont soit des cases avec leurs valeurs possibles, soit des valeurs avec les positions où elles sont possibles
+            int[] items = new int[unit.length];
+            long[] masks = new long[unit.length];
+            int count = 0;
+            for (int k = 0; k < unit.length; k++) {
+                long mask;
+                if (this.hidden) {
+                    mask = 0;
+                    for (int p = 0; p < unit.length; p++) {
+                        if (trail.getCase(unit[p]).isPossibleValue(k)) {
+                            mask |= 1L << p;
+                        }
+                    }
+                }
+                else {
+                    mask = trail.getCase(unit[k]).possibleValuesMask();
+                }
+                // les éléments déjà fixés sont gérés par les autres règles
+                int bits = Long.bitCount(mask);
+                if (bits >= 2 && bits <= this.size) {
+                    items[count] = k;
+                    masks[count] = mask;
+                    count++;
+                }
+            }
+
+            if (!this.search(trail, unit, items, masks, count, 0, 0, 0L, 0L)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cherche récursivement les groupes d'éléments dont l'union a exactement la taille du sous-ensemble, et applique la règle sur chacun d'eux
+     * @param trail Le trail attaché au puzzle
+     * @param unit L'unité sur laquelle on raisonne
+     * @param items Les éléments qui peuvent faire partie d'un sous-ensemble
+     * @param masks Le masque de chaque élément
+     * @param count Le nombre d'éléments
+     * @param start Le premier élément qu'on peut encore ajouter au groupe
+     * @param depth Le nombre d'éléments déjà dans le groupe
+     * @param union L'union des masques des éléments du groupe
+     * @param chosen Les positions dans la liste des éléments du groupe
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    private boolean search(Trail trail, int[] unit, int[] items, long[] masks, int count, int start, int depth, long union, long chosen) {
+        if (depth == this.size) {
+            int bits = Long.bitCount(union);
+            // n éléments qui se partagent moins de n possibilités ne peuvent pas être tous placés
+            if (bits < this.size) {
+                return false;
+            }
+            return bits > this.size || this.eliminate(trail, unit, items, union, chosen);
+        }
+        for (int i = start; i < count; i++) {
+            long newUnion = union | masks[i];
+            if (Long.bitCount(newUnion) <= this.size && !this.search(trail, unit, items, masks, count, i + 1, depth + 1, newUnion, chosen | (1L << i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Enlève les valeurs rendues impossibles par un sous-ensemble trouvé
+     * @param trail Le trail attaché au puzzle
+     * @param unit L'unité sur laquelle on raisonne
+     * @param items Les éléments qui peuvent faire partie d'un sous-ensemble
+     * @param union L'union des masques des éléments du sous-ensemble
+     * @param chosen Les positions dans la liste des éléments du sous-ensemble
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    private boolean eliminate(Trail trail, int[] unit, int[] items, long union, long chosen) {
+        // on retrouve les cases (sous-ensemble nu) ou les valeurs (sous-ensemble caché) du sous-ensemble
+        long members = 0;
+        for (long rest = chosen; rest != 0; rest &= rest - 1) {
+            members |= 1L << items[Long.numberOfTrailingZeros(rest)];
+        }
+        if (this.hidden) {
+            // les cases du sous-ensemble ne peuvent prendre que ses valeurs
+            for (long rest = union; rest != 0; rest &= rest - 1) {
+                if (!removeValues(trail.getCase(unit[Long.numberOfTrailingZeros(rest)]), ~members)) {
+                    return false;
+                }
+            }
+        }
+        else {
+            // les autres cases de l'unité ne peuvent pas prendre les valeurs du sous-ensemble
+            for (int p = 0; p < unit.length; p++) {
+                if ((members & (1L << p)) == 0 && !removeValues(trail.getCase(unit[p]), union)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Getter du nom de la règle
+     * @return Le nom de la règle
+     */
+    @Override
+    public String getName() {
+        String[] names = {"paire", "triplet", "quadruplet"};
+        String adjective = this.hidden ? "caché" : "nu";
+        return names[this.size - 2] + " " + adjective + ((this.size == 2) ? "e" : "");
+    }
+}
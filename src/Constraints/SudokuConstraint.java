@@ -2,6 +2,8 @@ package Constraints;
 
 import Grids.*;
 
+import java.util.ArrayList;
+
 /**
  * Les classes qui implémentent cette interface représentent une contrainte appliquée sur une case
  */
@@ -46,6 +48,18 @@ public interface SudokuConstraint {
      */
     boolean isConstraintOnPuzzle(Puzzle puzzle);
 
+    /**
+     * Une implémentation de cette méthode doit retourner la case qui subit la contrainte
+     * @return La case contrainte
+     */
+    Case getConstrainedCase();
+
+    /**
+     * Une implémentation de cette méthode doit retourner les cases dont dépend la contrainte, en plus de la case contrainte
+     * @return Les cases auxquelles on compare la case contrainte
+     */
+    ArrayList<Case> getCasesToCompareTo();
+
     /**
      * Une implémentation de cette méthode doit retourner un String contenant un symbole identifiant le type de contrainte et des nombres identifiants les cases, tout sur une ligne et séparé par un espace
      * @return Un string représentant la contrainte
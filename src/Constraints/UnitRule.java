@@ -0,0 +1,45 @@
+package Constraints;
+
+import Grids.*;
+
+/**
+ * Une base commune aux règles de déduction, qui donne accès aux unités du puzzle et aux valeurs possibles des cases sous forme de masques de bits.
+ * Les masques limitent ces règles aux unités d'au plus 64 cases, les plus grandes étant ignorées
+ */
+public abstract class UnitRule implements DeductionRule {
+    /**
+     * La taille maximale d'une unité sur laquelle une règle peut raisonner avec des masques
+     */
+    protected static final int MAX_UNIT_SIZE = 64;
+
+    /**
+     * Retourne toutes les unités d'un puzzle : ses lignes, puis ses colonnes, puis ses blocs
+     * @param index L'index des unités du puzzle
+     * @return Les unités, dans des tableaux qui ne doivent pas être modifiés
+     */
+    protected static int[][] allUnits(PeerIndex index) {
+        int[][] lines = index.getLines();
+        int[][] columns = index.getColumns();
+        int[][] blocs = index.getBlocs();
+        int[][] units = new int[lines.length + columns.length + blocs.length][];
+        System.arraycopy(lines, 0, units, 0, lines.length);
+        System.arraycopy(columns, 0, units, lines.length, columns.length);
+        System.arraycopy(blocs, 0, units, lines.length + columns.length, blocs.length);
+        return units;
+    }
+
+    /**
+     * Enlève à une case toutes les valeurs d'un masque
+     * @param c La case
+     * @param mask Les valeurs à enlever
+     * @return Si la case a encore au moins une valeur possible
+     */
+    protected static boolean removeValues(Case c, long mask) {
+        mask &= c.possibleValuesMask();
+        while (mask != 0) {
+            c.removePossibleValue(Long.numberOfTrailingZeros(mask));
+            mask &= mask - 1;
+        }
+        return c.isValid();
+    }
+}
@@ -0,0 +1,260 @@
+package Grids;
+
+import java.util.HashSet;
+
+/**
+ * Un CandidateSet représente l'ensemble des valeurs que peut encore prendre une case, stocké sous forme de masque de bits
+ * (un long par tranche de 64 valeurs), pour que les opérations courantes du solveur ne fassent aucune allocation
+ */
+public final class CandidateSet {
+    /**
+     * Les bits de l'ensemble, le bit i du mot (i / 64) est à 1 si la valeur i est possible
+     */
+    private final long[] words;
+    /**
+     * Le nombre de valeurs présentes dans l'ensemble, maintenu à jour pour ne pas avoir à le recalculer
+     */
+    private int count;
+
+    /**
+     * Constructeur de la classe, qui crée un ensemble contenant toutes les valeurs de 0 à (capacité - 1)
+     * @param capacity Le nombre de valeurs que peut contenir l'ensemble, soit la taille du sudoku
+     * @throws IllegalArgumentException Si la capacité n'est pas strictement positive
+     */
+    public CandidateSet(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("L'ensemble doit pouvoir contenir au moins une valeur");
+        }
+        this.words = new long[((capacity - 1) >> 6) + 1];
+        for (int i = 0; i < this.words.length; i++) {
+            int remaining = capacity - (i << 6);
+            this.words[i] = (remaining >= 64) ? -1L : (1L << remaining) - 1;
+        }
+        this.count = capacity;
+    }
+
+    /**
+     * Constructeur de copie de la classe
+     * @param other L'ensemble à copier
+     */
+    public CandidateSet(CandidateSet other) {
+        this(other.words.clone(), other.count);
+    }
+
+    /**
+     * Constructeur privé de la classe, à partir de bits déjà calculés
+     * @param words Les bits de l'ensemble
+     * @param count Le nombre de bits à 1 dans les mots
+     */
+    private CandidateSet(long[] words, int count) {
+        this.words = words;
+        this.count = count;
+    }
+
+    /**
+     * Crée un ensemble qui ne contient qu'une seule valeur
+     * @param value La valeur contenue dans l'ensemble
+     * @return Le nouvel ensemble
+     * @throws IllegalArgumentException Si la valeur est négative
+     */
+    public static CandidateSet singleton(int value) throws IllegalArgumentException {
+        if (value < 0) {
+            throw new IllegalArgumentException("La valeur " + (value + 1) + " ne peut pas faire partie d'un ensemble de valeurs possibles");
+        }
+        long[] words = new long[(value >> 6) + 1];
+        words[value >> 6] = 1L << value;
+        return new CandidateSet(words, 1);
+    }
+
+    /**
+     * Crée un ensemble à partir d'un HashSet, pour garder la compatibilité avec l'ancienne représentation des valeurs possibles
+     * @param values Les valeurs à mettre dans l'ensemble
+     * @return Le nouvel ensemble
+     * @throws IllegalArgumentException Si une des valeurs est négative
+     */
+    public static CandidateSet fromHashSet(HashSet<Integer> values) throws IllegalArgumentException {
+        int max = 0;
+        for (int value : values) {
+            if (value < 0) {
+                throw new IllegalArgumentException("La valeur " + (value + 1) + " ne peut pas faire partie d'un ensemble de valeurs possibles");
+            }
+            max = Math.max(max, value);
+        }
+        CandidateSet set = new CandidateSet(new long[(max >> 6) + 1], 0);
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    /**
+     * Indique si une valeur fait partie de l'ensemble
+     * @param value La valeur à tester
+     * @return Si la valeur fait partie de l'ensemble
+     */
+    public boolean contains(int value) {
+        if (value < 0 || (value >> 6) >= this.words.length) {
+            return false;
+        }
+        return (this.words[value >> 6] & (1L << value)) != 0;
+    }
+
+    /**
+     * Ajoute une valeur à l'ensemble, qui doit être inférieure à la capacité de l'ensemble
+     * @param value La valeur à ajouter
+     * @return Si la valeur n'était pas déjà dans l'ensemble
+     * @throws IllegalArgumentException Si la valeur dépasse la capacité de l'ensemble
+     */
+    public boolean add(int value) throws IllegalArgumentException {
+        if (value < 0 || (value >> 6) >= this.words.length) {
+            throw new IllegalArgumentException("La valeur " + (value + 1) + " dépasse la capacité de l'ensemble");
+        }
+        long mask = 1L << value;
+        if ((this.words[value >> 6] & mask) != 0) {
+            return false;
+        }
+        this.words[value >> 6] |= mask;
+        this.count++;
+        return true;
+    }
+
+    /**
+     * Enlève une valeur de l'ensemble, ce qui ne fait rien si la valeur n'y était pas
+     * @param value La valeur à enlever
+     * @return Si la valeur était dans l'ensemble
+     */
+    public boolean remove(int value) {
+        if (!this.contains(value)) {
+            return false;
+        }
+        this.words[value >> 6] &= ~(1L << value);
+        this.count--;
+        return true;
+    }
+
+    /**
+     * Enlève toutes les valeurs de l'ensemble sauf une, qui doit déjà en faire partie
+     * @param value La seule valeur à garder
+     * @return Si la valeur faisait partie de l'ensemble, sinon l'ensemble n'est pas modifié
+     */
+    public boolean retainOnly(int value) {
+        if (!this.contains(value)) {
+            return false;
+        }
+        for (int i = 0; i < this.words.length; i++) {
+            this.words[i] = 0;
+        }
+        this.words[value >> 6] = 1L << value;
+        this.count = 1;
+        return true;
+    }
+
+    /**
+     * Getter du nombre de valeurs dans l'ensemble
+     * @return Le nombre de valeurs dans l'ensemble
+     */
+    public int count() {
+        return this.count;
+    }
+
+    /**
+     * Indique si l'ensemble est vide
+     * @return Si l'ensemble est vide
+     */
+    public boolean isEmpty() {
+        return this.count == 0;
+    }
+
+    /**
+     * Retourne la plus petite valeur de l'ensemble
+     * @return La plus petite valeur de l'ensemble, ou -1 s'il est vide
+     */
+    public int first() {
+        return this.next(0);
+    }
+
+    /**
+     * Retourne la plus petite valeur de l'ensemble qui est supérieure ou égale à une valeur donnée, ce qui permet de parcourir l'ensemble sans allocation :
+     * {@code for (int v = set.first(); v != -1; v = set.next(v + 1))}
+     * @param from La valeur à partir de laquelle chercher
+     * @return La valeur trouvée, ou -1 s'il n'y en a pas
+     */
+    public int next(int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        int wordIndex = from >> 6;
+        if (wordIndex >= this.words.length) {
+            return -1;
+        }
+        long word = this.words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            wordIndex++;
+            if (wordIndex == this.words.length) {
+                return -1;
+            }
+            word = this.words[wordIndex];
+        }
+    }
+
+    /**
+     * Retourne les valeurs de 0 à 63 de l'ensemble sous forme de masque de bits, ce qui permet de faire des unions et des intersections rapides
+     * @return Le premier mot de l'ensemble, dont le bit i est à 1 si la valeur i est possible
+     */
+    public long lowWord() {
+        return this.words[0];
+    }
+
+    /**
+     * Retourne la n-ième plus petite valeur de l'ensemble, ce qui permet de tirer une valeur au hasard sans créer de tableau
+     * @param n La position de la valeur voulue, en commençant à 0
+     * @return La valeur trouvée
+     * @throws IllegalArgumentException Si l'ensemble ne contient pas assez de valeurs
+     */
+    public int get(int n) throws IllegalArgumentException {
+        if (n < 0 || n >= this.count) {
+            throw new IllegalArgumentException("L'ensemble ne contient pas de valeur numéro " + (n + 1));
+        }
+        for (int i = 0; i < this.words.length; i++) {
+            long word = this.words[i];
+            int bits = Long.bitCount(word);
+            if (n < bits) {
+                // on enlève les n plus petits bits pour tomber sur celui qu'on cherche
+                for (int j = 0; j < n; j++) {
+                    word &= word - 1;
+                }
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            n -= bits;
+        }
+        throw new IllegalArgumentException("L'ensemble ne contient pas de valeur numéro " + (n + 1));
+    }
+
+    /**
+     * Convertit l'ensemble en un HashSet, qui n'a aucun lien avec cet ensemble
+     * @return Un HashSet contenant les mêmes valeurs
+     */
+    public HashSet<Integer> toHashSet() {
+        HashSet<Integer> set = new HashSet<>();
+        for (int value = this.first(); value != -1; value = this.next(value + 1)) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    /**
+     * Convertit l'ensemble en un string contenant ses valeurs séparées par des espaces
+     * @return Le string en question
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int value = this.first(); value != -1; value = this.next(value + 1)) {
+            sb.append(value).append(" ");
+        }
+        return sb.toString();
+    }
+}
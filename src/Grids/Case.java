@@ -33,7 +33,15 @@ public class Case {
     /**
      * L'ensemble des valeurs que peut prendre la case, si la case à une valeur il ne contient que cette valeur, s'il est vide le sudoku n'est pas résolvable
      */
-    private HashSet<Integer> possibleValues;
+    private final CandidateSet possibleValues;
+    /**
+     * Le trail qui enregistre les valeurs enlevées à la case, s'il y en a un
+     */
+    private Trail trail;
+    /**
+     * L'indice de la case dans le puzzle suivi par le trail
+     */
+    private int trailIndex;
 
     /**
      * Constructeur de la classe quand on ne sait pas la valeur exacte de la case
@@ -43,7 +51,7 @@ public class Case {
      * @param blocIndex Le bloc de cette case dans le sudoku
      * @throws IllegalArgumentException Si la case n'a pas au moins une valeur possible
      */
-    public Case(HashSet<Integer> possibleValues, int line, int column, int blocIndex) throws IllegalArgumentException {
+    public Case(CandidateSet possibleValues, int line, int column, int blocIndex) throws IllegalArgumentException {
         this.value = -1;
         this.testValue = -1;
         this.line = line;
@@ -52,12 +60,24 @@ public class Case {
         if (possibleValues == null || possibleValues.isEmpty()) {
             throw new IllegalArgumentException("La case doit avoir au moins une valeur possible");
         }
-        if (possibleValues.size() == 1) {
-            this.value = possibleValues.iterator().next();
+        if (possibleValues.count() == 1) {
+            this.value = possibleValues.first();
         }
         this.possibleValues = possibleValues;
     }
 
+    /**
+     * Constructeur de la classe quand on ne sait pas la valeur exacte de la case, à partir d'un HashSet
+     * @param possibleValues L'ensemble des valeurs que peut prendre la case
+     * @param line La ligne de cette case dans le sudoku
+     * @param column La colonne de cette case dans le sudoku
+     * @param blocIndex Le bloc de cette case dans le sudoku
+     * @throws IllegalArgumentException Si la case n'a pas au moins une valeur possible
+     */
+    public Case(HashSet<Integer> possibleValues, int line, int column, int blocIndex) throws IllegalArgumentException {
+        this((possibleValues == null) ? null : CandidateSet.fromHashSet(possibleValues), line, column, blocIndex);
+    }
+
     /**
      * Constructeur de la classe quand on sait la valeur exacte de la case
      * @param value La valeur que contient la case
@@ -71,9 +91,7 @@ public class Case {
         this.line = line;
         this.column = column;
         this.blocIndex = blocIndex;
-        HashSet<Integer> possibleValues = new HashSet<>();
-        possibleValues.add(value);
-        this.possibleValues = possibleValues;
+        this.possibleValues = CandidateSet.singleton(value);
     }
 
     /**
@@ -83,9 +101,16 @@ public class Case {
      */
     public void setValue(int value) throws IllegalArgumentException {
         if (this.possibleValues.contains(value)) {
+            // on enregistre les valeurs qui vont être enlevées pour pouvoir revenir en arrière
+            if (this.trail != null) {
+                for (int v = this.possibleValues.first(); v != -1; v = this.possibleValues.next(v + 1)) {
+                    if (v != value) {
+                        this.trail.record(this.trailIndex, v);
+                    }
+                }
+            }
+            this.possibleValues.retainOnly(value);
             this.value = value;
-            this.possibleValues = new HashSet<>();
-            this.possibleValues.add(value);
         }
         else {
             throw new IllegalArgumentException("La case ne peut pas avoir la valeur " + (value + 1));
@@ -145,14 +170,52 @@ public class Case {
      * @return Si le fait d'enlever cette valeur a résolu la case
      */
     public boolean removePossibleValue(int valeur) {
-        this.possibleValues.remove(valeur);
-        if (this.possibleValues.size() == 1 && this.value == -1) {
-            this.value = possibleValues.iterator().next();
+        if (this.possibleValues.remove(valeur) && this.trail != null) {
+            this.trail.record(this.trailIndex, valeur);
+        }
+        if (this.possibleValues.count() == 1 && this.value == -1) {
+            this.value = this.possibleValues.first();
             return true;
         }
         return false;
     }
 
+    /**
+     * Remet une valeur enlevée dans les valeurs possibles de la case, cette méthode n'est appelée que par un trail qui annule ses modifications
+     * @param valeur La valeur à remettre
+     */
+    void restorePossibleValue(int valeur) {
+        this.possibleValues.add(valeur);
+        // si la case a de nouveau plusieurs valeurs possibles, alors elle n'est plus résolue
+        if (this.possibleValues.count() > 1) {
+            this.value = -1;
+        }
+    }
+
+    /**
+     * Attache un trail à la case, qui enregistrera toutes les valeurs qui lui seront enlevées
+     * @param trail Le trail à attacher
+     * @param index L'indice de la case dans le puzzle suivi par le trail
+     * @throws IllegalArgumentException Si la case est déjà suivie par un autre trail
+     */
+    void attachTrail(Trail trail, int index) throws IllegalArgumentException {
+        if (this.trail != null && this.trail != trail) {
+            throw new IllegalArgumentException("La case est déjà suivie par un autre trail");
+        }
+        this.trail = trail;
+        this.trailIndex = index;
+    }
+
+    /**
+     * Détache un trail de la case, ce qui ne fait rien si ce n'est pas le trail attaché à la case
+     * @param trail Le trail à détacher
+     */
+    void detachTrail(Trail trail) {
+        if (this.trail == trail) {
+            this.trail = null;
+        }
+    }
+
     /**
      * Indique si la case respecte toujours ses contraintes internes
      * @return true si elle a au moins une valeur possible, false sinon
@@ -170,11 +233,55 @@ public class Case {
     }
 
     /**
-     * Retourne les valeurs que peut prendre la case
+     * Retourne une copie des valeurs que peut prendre la case, à n'utiliser que pour la compatibilité, car cette méthode alloue un nouvel ensemble à chaque appel
      * @return Les valeurs que peut prendre la case
      */
     public HashSet<Integer> possibleValues() {
-        return new HashSet<>(this.possibleValues);
+        return this.possibleValues.toHashSet();
+    }
+
+    /**
+     * Retourne le nombre de valeurs que peut prendre la case
+     * @return Le nombre de valeurs que peut prendre la case
+     */
+    public int possibleValuesCount() {
+        return this.possibleValues.count();
+    }
+
+    /**
+     * Indique si la case peut encore prendre une valeur
+     * @param value La valeur à tester
+     * @return Si la valeur fait partie des valeurs possibles de la case
+     */
+    public boolean isPossibleValue(int value) {
+        return this.possibleValues.contains(value);
+    }
+
+    /**
+     * Retourne la plus petite valeur possible de la case qui est supérieure ou égale à une valeur donnée, pour parcourir les valeurs possibles sans allocation
+     * @param from La valeur à partir de laquelle chercher
+     * @return La valeur possible trouvée, ou -1 s'il n'y en a pas
+     */
+    public int nextPossibleValue(int from) {
+        return this.possibleValues.next(from);
+    }
+
+    /**
+     * Retourne les valeurs possibles de la case qui sont inférieures à 64 sous forme de masque de bits, sans allocation
+     * @return Le masque dont le bit i est à 1 si la valeur i est possible
+     */
+    public long possibleValuesMask() {
+        return this.possibleValues.lowWord();
+    }
+
+    /**
+     * Retourne la n-ième plus petite valeur possible de la case
+     * @param n La position de la valeur voulue, en commençant à 0
+     * @return La valeur possible trouvée
+     * @throws IllegalArgumentException Si la case n'a pas assez de valeurs possibles
+     */
+    public int getPossibleValue(int n) throws IllegalArgumentException {
+        return this.possibleValues.get(n);
     }
 
     /**
@@ -224,10 +331,7 @@ public class Case {
         StringBuilder sb = new StringBuilder();
         sb.append("Valeur : ").append(this.value).append("\n");
         sb.append("Position : ").append(this.line).append(" ").append(this.column).append(" ").append(this.blocIndex).append("\n");
-        sb.append("Possible Values : ");
-        for (Integer i : this.possibleValues) {
-            sb.append(i).append(" ");
-        }
+        sb.append("Possible Values : ").append(this.possibleValues);
         return sb.toString();
     }
 }
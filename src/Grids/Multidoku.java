@@ -30,6 +30,14 @@ public class Multidoku implements Puzzle {
      * Une liste de contraintes spécifiées sur le sudoku en plus des contraintes de base (lignes, colonnes, blocs)
      */
     private ArrayList<SudokuConstraint> addedConstraints;
+    /**
+     * L'index des voisins du multidoku, calculé seulement quand on en a besoin
+     */
+    private PeerIndex peerIndex;
+    /**
+     * L'identifiant du multidoku, donné à sa création et gardé par ses copies
+     */
+    private long id;
 
     /**
      * Constructeur de la classe, sans les symboles
@@ -64,6 +72,7 @@ public class Multidoku implements Puzzle {
         this.sizeMultidokuGrid = gridSize;
         this.symbols = null;
         this.addedConstraints = new ArrayList<>();
+        this.id = PuzzleIds.next();
     }
 
     /**
@@ -79,6 +88,23 @@ public class Multidoku implements Puzzle {
         }
     }
 
+    /**
+     * Getter de l'identifiant du multidoku
+     * @return L'identifiant, donné à sa création et gardé par ses copies
+     */
+    @Override
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * Donne un nouvel identifiant au multidoku, quand une copie devient un puzzle différent de celui dont elle a été copiée
+     */
+    @Override
+    public void renewId() {
+        this.id = PuzzleIds.next();
+    }
+
     /**
      * Indique au multidoku quels symboles utiliser, qui doivent être numérotés de 0 à (taille des sudokus - 1)
      * @param symbols Les nouveaux symboles à utiliser
@@ -198,32 +224,19 @@ public class Multidoku implements Puzzle {
             }
 
             ArrayList<SudokuConstraint> constraints = new ArrayList<>();
+            PeerIndex index = this.peerIndex();
+            int casesBySudoku = this.sizeSudokus * this.sizeSudokus;
             // on parcourt chaque sudoku dans le multidoku
-            for (PlacedSudoku placedSudoku : this.sudokus) {
+            for (int s = 0; s < this.sudokus.size(); s++) {
                 // on ajoute les contraintes internes du sudoku (lignes, colonnes, blocs)
-                constraints.addAll(placedSudoku.sudoku().defaultConstraints(this));
-
-                // puis, on parcourt les cases du sudoku actuel
-                for (int i = 0; i < this.sizeSudokus; i++) {
-                    for (int j = 0; j < this.sizeSudokus; j++) {
-                        Case currentCase = placedSudoku.sudoku().getCase(i, j);
-
-                        // on compare la case actuelle avec les cases des autres sudokus
-                        for (PlacedSudoku otherSudoku : this.sudokus) {
-                            if (otherSudoku == placedSudoku) continue;
-                            // si la case overlap avec ce sudoku
-                            if (placedSudoku.line() + i >= otherSudoku.line() && placedSudoku.line() + i < otherSudoku.line() + this.sizeSudokus) {
-                                if (placedSudoku.column() + j >= otherSudoku.column() && placedSudoku.column() + j < otherSudoku.column() + this.sizeSudokus) {
-                                    // on récupère la case qui overlap
-                                    Case otherCase = otherSudoku.sudoku().getCase(placedSudoku.line() + i - otherSudoku.line(), placedSudoku.column() + j - otherSudoku.column());
-                                    // on crée une contrainte d'égalité entre la case actuelle et la case correspondante
-                                    ArrayList<Case> otherCaseList = new ArrayList<>();
-                                    otherCaseList.add(otherCase);
-                                    SudokuConstraint newConstraint = new EqualConstraint(currentCase, otherCaseList, puzzle);
-                                    constraints.add(newConstraint);
-                                }
-                            }
-                        }
+                constraints.addAll(this.sudokus.get(s).sudoku().defaultConstraints(this));
+
+                // puis, on crée une contrainte d'égalité entre chaque case et les cases des autres sudokus qui la recouvrent
+                for (int c = s * casesBySudoku; c < (s + 1) * casesBySudoku; c++) {
+                    for (int link : index.getLinks(c)) {
+                        ArrayList<Case> otherCaseList = new ArrayList<>();
+                        otherCaseList.add(this.getCase(link));
+                        constraints.add(new EqualConstraint(this.getCase(c), otherCaseList, puzzle));
                     }
                 }
             }
@@ -250,25 +263,22 @@ public class Multidoku implements Puzzle {
             }
 
             // on rajoute les contraintes de la case dans son sudoku
-            PlacedSudoku caseSudoku = this.getSudoku(c);
-            ArrayList<SudokuConstraint> constraints = new ArrayList<>(caseSudoku.sudoku().constraintsOnCase(c, this));
-
-            // ensuite, on parcourt de chaque Sudoku dans le Multidoku
-            for (PlacedSudoku otherSudoku : this.sudokus) {
-                if (caseSudoku == otherSudoku) continue;
-                // si la case overlap avec ce sudoku
-                if (caseSudoku.line() + c.getLine() >= otherSudoku.line() && caseSudoku.line() + c.getLine() < otherSudoku.line() + this.sizeSudokus) {
-                    if (caseSudoku.column() + c.getColumn() >= otherSudoku.column() && caseSudoku.column() + c.getColumn() < otherSudoku.column() + this.sizeSudokus) {
-                        // on récupère la case qui overlap
-                        Case otherCase = otherSudoku.sudoku().getCase(otherSudoku.line() + c.getLine() - otherSudoku.line(), otherSudoku.column() + c.getColumn() - otherSudoku.column());
-                        // on crée une contrainte d'égalité entre la case en paramètre et la case qui overlap
-                        ArrayList<Case> otherCaseList = new ArrayList<>();
-                        otherCaseList.add(otherCase);
-                        SudokuConstraint newConstraint = new EqualConstraint(c, otherCaseList, puzzle);
-                        constraints.add(newConstraint);
-                    }
+            int sudokuIndex = 0;
+            while (this.sudokus.get(sudokuIndex).sudoku().getCase(c.getLine(), c.getColumn()) != c) {
+                sudokuIndex++;
+                if (sudokuIndex == this.sudokus.size()) {
+                    throw new IllegalArgumentException("La case n'appartient pas au multidoku");
                 }
             }
+            ArrayList<SudokuConstraint> constraints = new ArrayList<>(this.sudokus.get(sudokuIndex).sudoku().constraintsOnCase(c, this));
+
+            // ensuite, on crée une contrainte d'égalité avec chaque case des autres sudokus qui la recouvre
+            int caseIndex = (sudokuIndex * this.sizeSudokus + c.getLine()) * this.sizeSudokus + c.getColumn();
+            for (int link : this.peerIndex().getLinks(caseIndex)) {
+                ArrayList<Case> otherCaseList = new ArrayList<>();
+                otherCaseList.add(this.getCase(link));
+                constraints.add(new EqualConstraint(c, otherCaseList, puzzle));
+            }
             return constraints;
         }
         catch (IllegalArgumentException e) {
@@ -276,6 +286,29 @@ public class Multidoku implements Puzzle {
         }
     }
 
+    /**
+     * Getter d'une case du multidoku selon sa position dans la liste des cases
+     * @param index La position de la case dans la méthode casesList
+     * @return La case demandée
+     */
+    private Case getCase(int index) {
+        int casesBySudoku = this.sizeSudokus * this.sizeSudokus;
+        int inSudoku = index % casesBySudoku;
+        return this.sudokus.get(index / casesBySudoku).sudoku().getCase(inSudoku / this.sizeSudokus, inSudoku % this.sizeSudokus);
+    }
+
+    /**
+     * Retourne l'index des voisins du multidoku, qui est partagé avec tous les multidokus ayant les mêmes sudokus aux mêmes places
+     * @return L'index des voisins du multidoku
+     */
+    @Override
+    public PeerIndex peerIndex() {
+        if (this.peerIndex == null) {
+            this.peerIndex = PeerIndex.of(this);
+        }
+        return this.peerIndex;
+    }
+
     /**
      * Retourne la liste des cases constituant le multidoku, toujours dans le même ordre
      * @return La liste des cases constituant le multidoku
@@ -315,7 +348,12 @@ public class Multidoku implements Puzzle {
                 symbols = new HashMap<>(this.symbols);
             }
 
-            return new Multidoku(newSudokus, symbols);
+            Multidoku newMultidoku = new Multidoku(newSudokus, symbols);
+            // la copie a la même forme, elle peut donc réutiliser le même index
+            newMultidoku.peerIndex = this.peerIndex;
+            // la copie représente le même puzzle, elle garde donc son identifiant
+            newMultidoku.id = this.id;
+            return newMultidoku;
         }
         catch (IllegalArgumentException e) {
             throw new RuntimeException("Erreur interne : " + e);
@@ -0,0 +1,414 @@
+package Grids;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Un PeerIndex précalcule, pour une forme de grille donnée, les unités (lignes, colonnes, blocs) et les voisins de chaque case,
+ * ainsi que les cases superposées dans un multidoku. Les cases sont désignées par leur indice dans la méthode casesList du puzzle.
+ * Un index est immuable, et tous les puzzles qui ont la même forme partagent le même index
+ */
+public final class PeerIndex {
+    /**
+     * Le nombre maximal d'index gardés en mémoire, au-delà duquel le moins récemment utilisé est oublié
+     */
+    private static final int MAX_SHARED_INDEXES = 64;
+    /**
+     * Les index déjà calculés, rangés par forme de grille du moins au plus récemment utilisé.
+     * Seules les formes les plus utilisées sont gardées, pour qu'un programme qui voit beaucoup de formes différentes ne les garde pas toutes ;
+     * un index oublié est simplement recalculé la prochaine fois. Les accès sont synchronisés sur la map
+     */
+    private static final LinkedHashMap<String, PeerIndex> sharedIndexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PeerIndex> eldest) {
+            return this.size() > MAX_SHARED_INDEXES;
+        }
+    };
+    /**
+     * Le nombre de cases du puzzle
+     */
+    private final int casesCount;
+    /**
+     * Les cases de chaque ligne de chaque sudoku
+     */
+    private final int[][] lines;
+    /**
+     * Les cases de chaque colonne de chaque sudoku
+     */
+    private final int[][] columns;
+    /**
+     * Les cases de chaque bloc de chaque sudoku
+     */
+    private final int[][] blocs;
+    /**
+     * Pour chaque case, les cases de son sudoku qui partagent une ligne, une colonne ou un bloc avec elle
+     */
+    private final int[][] peers;
+    /**
+     * Pour chaque case, les cases des autres sudokus qui sont à la même place sur la grille du multidoku, et qui doivent donc avoir la même valeur
+     */
+    private final int[][] links;
+    /**
+     * Pour chaque case, le numéro de sa ligne dans le tableau des lignes
+     */
+    private final int[] lineOf;
+    /**
+     * Pour chaque case, le numéro de sa colonne dans le tableau des colonnes
+     */
+    private final int[] columnOf;
+    /**
+     * Pour chaque case, le numéro de son bloc dans le tableau des blocs
+     */
+    private final int[] blocOf;
+
+    /**
+     * Constructeur privé de la classe, les index sont créés avec les méthodes of
+     * @param casesCount Le nombre de cases du puzzle
+     * @param lines Les cases de chaque ligne
+     * @param columns Les cases de chaque colonne
+     * @param blocs Les cases de chaque bloc
+     * @param peers Les voisins de chaque case
+     * @param links Les cases superposées à chaque case
+     */
+    private PeerIndex(int casesCount, int[][] lines, int[][] columns, int[][] blocs, int[][] peers, int[][] links) {
+        this.casesCount = casesCount;
+        this.lines = lines;
+        this.columns = columns;
+        this.blocs = blocs;
+        this.peers = peers;
+        this.links = links;
+        this.lineOf = unitOf(casesCount, lines);
+        this.columnOf = unitOf(casesCount, columns);
+        this.blocOf = unitOf(casesCount, blocs);
+    }
+
+    /**
+     * Calcule pour chaque case le numéro de l'unité à laquelle elle appartient
+     * @param casesCount Le nombre de cases du puzzle
+     * @param units Les unités, qui ne doivent pas se chevaucher
+     * @return Le numéro de l'unité de chaque case
+     */
+    private static int[] unitOf(int casesCount, int[][] units) {
+        int[] unitOf = new int[casesCount];
+        for (int u = 0; u < units.length; u++) {
+            for (int index : units[u]) {
+                unitOf[index] = u;
+            }
+        }
+        return unitOf;
+    }
+
+    /**
+     * Retourne l'index d'un sudoku, en le calculant seulement si aucun sudoku de la même forme n'en a déjà eu besoin
+     * @param sudoku Le sudoku dont on veut l'index
+     * @return L'index partagé par tous les sudokus de cette forme
+     */
+    public static PeerIndex of(Sudoku sudoku) {
+        int[][] placements = placementsOf(sudoku);
+        String key = shapeKey(placements);
+        PeerIndex index = shared(key);
+        if (index == null) {
+            index = share(key, buildSudokuIndex(placements));
+        }
+        return index;
+    }
+
+    /**
+     * Retourne l'index d'un multidoku, en le calculant seulement si aucun multidoku de la même forme n'en a déjà eu besoin
+     * @param multidoku Le multidoku dont on veut l'index
+     * @return L'index partagé par tous les multidokus de cette forme
+     */
+    public static PeerIndex of(Multidoku multidoku) {
+        StringBuilder sb = new StringBuilder("m");
+        for (PlacedSudoku placedSudoku : multidoku.getSudokus()) {
+            sb.append("|").append(placedSudoku.line()).append(",").append(placedSudoku.column()).append(":");
+            sb.append(shapeKey(placementsOf(placedSudoku.sudoku())));
+        }
+        String key = sb.toString();
+        PeerIndex index = shared(key);
+        if (index == null) {
+            index = share(key, buildMultidokuIndex(multidoku));
+        }
+        return index;
+    }
+
+    /**
+     * Cherche l'index déjà calculé d'une forme, ce qui en fait la forme la plus récemment utilisée
+     * @param key La clé de la forme
+     * @return L'index de la forme, ou null s'il n'a pas été calculé ou a été oublié
+     */
+    private static PeerIndex shared(String key) {
+        synchronized (sharedIndexes) {
+            return sharedIndexes.get(key);
+        }
+    }
+
+    /**
+     * Enregistre un index nouvellement calculé, sauf si un autre thread en a enregistré un pour la même forme entre temps
+     * @param key La clé de la forme
+     * @param index L'index calculé
+     * @return L'index enregistré pour cette forme
+     */
+    private static PeerIndex share(String key, PeerIndex index) {
+        synchronized (sharedIndexes) {
+            PeerIndex previous = sharedIndexes.putIfAbsent(key, index);
+            return (previous != null) ? previous : index;
+        }
+    }
+
+    /**
+     * Récupère les blocs auxquels appartiennent les cases d'un sudoku
+     * @param sudoku Le sudoku
+     * @return Le numéro du bloc de chaque case
+     */
+    private static int[][] placementsOf(Sudoku sudoku) {
+        int size = sudoku.getSize();
+        int[][] placements = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                placements[i][j] = sudoku.getCase(i, j).getBlocIndex();
+            }
+        }
+        return placements;
+    }
+
+    /**
+     * Calcule la clé qui identifie la forme d'un sudoku à partir des blocs de ses cases
+     * @param placements Les blocs auxquels appartiennent les cases
+     * @return La clé de la forme
+     */
+    private static String shapeKey(int[][] placements) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(placements.length).append(":");
+        for (int[] line : placements) {
+            for (int bloc : line) {
+                sb.append(bloc).append(",");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Construit l'index d'un sudoku
+     * @param placements Les blocs auxquels appartiennent les cases
+     * @return Le nouvel index
+     */
+    private static PeerIndex buildSudokuIndex(int[][] placements) {
+        int size = placements.length;
+        int[][] lines = new int[size][size];
+        int[][] columns = new int[size][size];
+        int[][] blocs = new int[size][size];
+        int[] placedInBloc = new int[size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int index = i * size + j;
+                lines[i][j] = index;
+                columns[j][i] = index;
+                int bloc = placements[i][j];
+                blocs[bloc][placedInBloc[bloc]++] = index;
+            }
+        }
+
+        int casesCount = size * size;
+        int[][] peers = new int[casesCount][];
+        int[][] links = new int[casesCount][];
+        boolean[] isPeer = new boolean[casesCount];
+        int[] found = new int[3 * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int index = i * size + j;
+                int count = 0;
+                for (int[] unit : new int[][] {lines[i], columns[j], blocs[placements[i][j]]}) {
+                    for (int other : unit) {
+                        if (other != index && !isPeer[other]) {
+                            isPeer[other] = true;
+                            found[count++] = other;
+                        }
+                    }
+                }
+                peers[index] = new int[count];
+                for (int k = 0; k < count; k++) {
+                    peers[index][k] = found[k];
+                    isPeer[found[k]] = false;
+                }
+                links[index] = new int[0];
+            }
+        }
+        return new PeerIndex(casesCount, lines, columns, blocs, peers, links);
+    }
+
+    /**
+     * Construit l'index d'un multidoku, à partir des index de ses sudokus décalés de leur position dans la liste des cases
+     * @param multidoku Le multidoku
+     * @return Le nouvel index
+     */
+    private static PeerIndex buildMultidokuIndex(Multidoku multidoku) {
+        ArrayList<PlacedSudoku> sudokus = multidoku.getSudokus();
+        int size = multidoku.getSizeSudokus();
+        int casesBySudoku = size * size;
+        int casesCount = casesBySudoku * sudokus.size();
+        int[][] lines = new int[size * sudokus.size()][];
+        int[][] columns = new int[size * sudokus.size()][];
+        int[][] blocs = new int[size * sudokus.size()][];
+        int[][] peers = new int[casesCount][];
+        int[][] links = new int[casesCount][];
+
+        // on recopie les index des sudokus en décalant les indices
+        for (int s = 0; s < sudokus.size(); s++) {
+            PeerIndex sudokuIndex = of(sudokus.get(s).sudoku());
+            int offset = s * casesBySudoku;
+            for (int u = 0; u < size; u++) {
+                lines[s * size + u] = shift(sudokuIndex.lines[u], offset);
+                columns[s * size + u] = shift(sudokuIndex.columns[u], offset);
+                blocs[s * size + u] = shift(sudokuIndex.blocs[u], offset);
+            }
+            for (int c = 0; c < casesBySudoku; c++) {
+                peers[offset + c] = shift(sudokuIndex.peers[c], offset);
+            }
+        }
+
+        // on relie les cases qui sont à la même place sur la grille du multidoku
+        int gridSize = multidoku.getSizeMultidokuGrid();
+        ArrayList<ArrayList<Integer>> positions = new ArrayList<>();
+        for (int k = 0; k < gridSize * gridSize; k++) {
+            positions.add(new ArrayList<>());
+        }
+        for (int s = 0; s < sudokus.size(); s++) {
+            PlacedSudoku placedSudoku = sudokus.get(s);
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    positions.get((placedSudoku.line() + i) * gridSize + placedSudoku.column() + j).add(s * casesBySudoku + i * size + j);
+                }
+            }
+        }
+        for (ArrayList<Integer> position : positions) {
+            for (int index : position) {
+                links[index] = new int[position.size() - 1];
+                int k = 0;
+                for (int other : position) {
+                    if (other != index) {
+                        links[index][k++] = other;
+                    }
+                }
+            }
+        }
+        return new PeerIndex(casesCount, lines, columns, blocs, peers, links);
+    }
+
+    /**
+     * Crée une copie d'un tableau d'indices en les décalant tous
+     * @param indexes Les indices à décaler
+     * @param offset Le décalage
+     * @return Les indices décalés
+     */
+    private static int[] shift(int[] indexes, int offset) {
+        int[] shifted = new int[indexes.length];
+        for (int k = 0; k < indexes.length; k++) {
+            shifted[k] = indexes[k] + offset;
+        }
+        return shifted;
+    }
+
+    /**
+     * Indique si la valeur d'une case est compatible avec celles de ses voisins et des cases qui lui sont superposées, sans rien allouer
+     * @param cases Les cases du puzzle, dans l'ordre de la méthode casesList
+     * @param index L'indice de la case à vérifier
+     * @return Si aucun voisin n'a la même valeur et qu'aucune case superposée n'a une autre valeur
+     */
+    public boolean isConsistent(ArrayList<Case> cases, int index) {
+        int value = cases.get(index).getValue();
+        if (value == -1) {
+            return true;
+        }
+        for (int peer : this.peers[index]) {
+            if (cases.get(peer).getValue() == value) {
+                return false;
+            }
+        }
+        for (int link : this.links[index]) {
+            int linkedValue = cases.get(link).getValue();
+            if (linkedValue != -1 && linkedValue != value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Getter du nombre de cases du puzzle
+     * @return Le nombre de cases du puzzle
+     */
+    public int getCasesCount() {
+        return this.casesCount;
+    }
+
+    /**
+     * Getter des lignes de tous les sudokus, chaque ligne étant un tableau d'indices de cases qui ne doit pas être modifié
+     * @return Les lignes du puzzle
+     */
+    public int[][] getLines() {
+        return this.lines;
+    }
+
+    /**
+     * Getter des colonnes de tous les sudokus, chaque colonne étant un tableau d'indices de cases qui ne doit pas être modifié
+     * @return Les colonnes du puzzle
+     */
+    public int[][] getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Getter des blocs de tous les sudokus, chaque bloc étant un tableau d'indices de cases qui ne doit pas être modifié
+     * @return Les blocs du puzzle
+     */
+    public int[][] getBlocs() {
+        return this.blocs;
+    }
+
+    /**
+     * Getter des voisins d'une case, soit les cases de son sudoku qui partagent une ligne, une colonne ou un bloc avec elle
+     * @param index L'indice de la case
+     * @return Les indices des voisins, dans un tableau qui ne doit pas être modifié
+     */
+    public int[] getPeers(int index) {
+        return this.peers[index];
+    }
+
+    /**
+     * Getter des cases superposées à une case, qui sont à la même place sur la grille d'un multidoku
+     * @param index L'indice de la case
+     * @return Les indices des cases superposées, dans un tableau qui ne doit pas être modifié
+     */
+    public int[] getLinks(int index) {
+        return this.links[index];
+    }
+
+    /**
+     * Retourne le numéro de la ligne d'une case, qui est sa position dans le tableau des lignes
+     * @param index L'indice de la case
+     * @return Le numéro de sa ligne
+     */
+    public int getLineOf(int index) {
+        return this.lineOf[index];
+    }
+
+    /**
+     * Retourne le numéro de la colonne d'une case, qui est sa position dans le tableau des colonnes
+     * @param index L'indice de la case
+     * @return Le numéro de sa colonne
+     */
+    public int getColumnOf(int index) {
+        return this.columnOf[index];
+    }
+
+    /**
+     * Retourne le numéro du bloc d'une case, qui est sa position dans le tableau des blocs
+     * @param index L'indice de la case
+     * @return Le numéro de son bloc
+     */
+    public int getBlocOf(int index) {
+        return this.blocOf[index];
+    }
+}
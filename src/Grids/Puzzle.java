@@ -25,6 +25,13 @@ public interface Puzzle {
      */
     ArrayList<SudokuConstraint> constraintsOnCase(Case c, Puzzle puzzle) throws RuntimeException;
 
+    /**
+     * Une implémentation de cette méthode doit retourner l'index des voisins des cases du puzzle, partagé par tous les puzzles de même forme
+     * @return L'index des voisins du puzzle
+     * @throws RuntimeException Si une erreur interne arrive
+     */
+    PeerIndex peerIndex() throws RuntimeException;
+
     /**
      * Une implémentation de cette méthode doit retourner l'ensemble des cases constituant le puzzle, toujours dans le même ordre
      * @return La liste des cases constituant le puzzle
@@ -32,6 +39,17 @@ public interface Puzzle {
      */
     ArrayList<Case> casesList() throws RuntimeException;
 
+    /**
+     * Une implémentation de cette méthode doit retourner l'identifiant du puzzle, donné à sa création et gardé par ses copies, qui relie entre eux ses événements JFR
+     * @return L'identifiant du puzzle, qui n'est jamais 0
+     */
+    long getId();
+
+    /**
+     * Une implémentation de cette méthode doit donner un nouvel identifiant au puzzle, quand une copie devient un puzzle différent de celui dont elle a été copiée
+     */
+    void renewId();
+
     /**
      * Une implémentation de cette méthode doit retourner une copie de ce puzzle, qui n'a aucun lien envers le puzzle originel, cette méthode a également pour effet secondaire de recopier les valeurs temporaires des cases comme les "vraies valeurs"
      * @return Une copie de ce puzzle
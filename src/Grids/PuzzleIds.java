@@ -0,0 +1,21 @@
+package Grids;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * La séquence des identifiants des puzzles, partagée par tous les threads pour que deux puzzles n'aient jamais le même
+ */
+abstract class PuzzleIds {
+    /**
+     * Le prochain identifiant, qui commence à 1 car 0 veut dire qu'aucun puzzle n'est concerné
+     */
+    private static final AtomicLong NEXT = new AtomicLong(1);
+
+    /**
+     * Donne un identifiant qui ne sera plus jamais donné, même par un autre thread
+     * @return L'identifiant
+     */
+    static long next() {
+        return NEXT.getAndIncrement();
+    }
+}
@@ -3,7 +3,6 @@ package Grids;
 import Constraints.*;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 
@@ -36,6 +35,14 @@ public class Sudoku implements Puzzle {
      * Une liste de contraintes spécifiées sur le sudoku en plus des contraintes de base (lignes, colonnes, blocs)
      */
     private ArrayList<SudokuConstraint> addedConstraints;
+    /**
+     * L'index des voisins du sudoku, calculé seulement quand on en a besoin
+     */
+    private PeerIndex peerIndex;
+    /**
+     * L'identifiant du sudoku, donné à sa création et gardé par ses copies
+     */
+    private long id;
 
     /**
      * Constructeur de la classe, sans symboles
@@ -54,6 +61,7 @@ public class Sudoku implements Puzzle {
         this.symbols = null;
         this.useDefaultPlacements = (placements == null);
         this.addedConstraints = new ArrayList<>();
+        this.id = PuzzleIds.next();
 
         if (this.useDefaultPlacements) {
             placements = new int[size][size];
@@ -82,10 +90,7 @@ public class Sudoku implements Puzzle {
                 }
 
                 // on doit créer un nouveau set à chaque fois sinon modifier celui d'une case modifiera celui de toutes les cases
-                HashSet<Integer> possibleValues = new HashSet<>();
-                for (int k = 0; k < size; k++) {
-                    possibleValues.add(k);
-                }
+                CandidateSet possibleValues = new CandidateSet(size);
 
                 // on doit faire attention à ce que les blocs et la grille référencent bien les mêmes cases
                 this.cases[i][j] = new Case(possibleValues, i, j, bloc);
@@ -118,6 +123,23 @@ public class Sudoku implements Puzzle {
         }
     }
 
+    /**
+     * Getter de l'identifiant du sudoku
+     * @return L'identifiant, donné à sa création et gardé par ses copies
+     */
+    @Override
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * Donne un nouvel identifiant au sudoku, quand une copie devient un puzzle différent de celui dont elle a été copiée
+     */
+    @Override
+    public void renewId() {
+        this.id = PuzzleIds.next();
+    }
+
     /**
      * Indique au sudoku quels symboles utiliser, qui doivent être numérotés de 0 à (taille du sudoku - 1)
      * @param symbols Les nouveaux symboles à utiliser
@@ -271,27 +293,17 @@ public class Sudoku implements Puzzle {
             }
 
             ArrayList<SudokuConstraint> constraints = new ArrayList<>();
-            NotEqualConstraint newConstraint;
-            ArrayList<Case> toInsert;
+            PeerIndex index = this.peerIndex();
             for (int i = 0; i < this.size; i++) {
                 for (int j = 0; j < this.size; j++) {
                     // contrainte entre la case j de la ligne i et la ligne i
-                    toInsert = new ArrayList<>(Arrays.asList(this.getLine(i)).subList(0, this.size));
-                    toInsert.remove(this.getLine(i)[j]);
-                    newConstraint = new NotEqualConstraint(this.getLine(i)[j], toInsert, puzzle);
-                    constraints.add(newConstraint);
+                    constraints.add(this.unitConstraint(index.getLines()[i], j, puzzle));
 
                     // contrainte entre la case j de la colonne i et la colonne i
-                    toInsert = new ArrayList<>(Arrays.asList(this.getColumn(i)).subList(0, this.size));
-                    toInsert.remove(this.getColumn(i)[j]);
-                    newConstraint = new NotEqualConstraint(this.getColumn(i)[j], toInsert, puzzle);
-                    constraints.add(newConstraint);
+                    constraints.add(this.unitConstraint(index.getColumns()[i], j, puzzle));
 
                     // contrainte entre la case j du bloc i et le bloc i
-                    toInsert = new ArrayList<>(Arrays.asList(this.getBloc(i).cases()).subList(0, this.size));
-                    toInsert.remove(this.getBloc(i).getCase(j));
-                    newConstraint = new NotEqualConstraint(this.getBloc(i).getCase(j), toInsert, puzzle);
-                    constraints.add(newConstraint);
+                    constraints.add(this.unitConstraint(index.getBlocs()[i], j, puzzle));
                 }
             }
             // contraintes supplémentaires
@@ -319,26 +331,21 @@ public class Sudoku implements Puzzle {
             }
 
             ArrayList<SudokuConstraint> constraints = new ArrayList<>();
-            NotEqualConstraint newConstraint;
-            ArrayList<Case> toInsert;
+            PeerIndex index = this.peerIndex();
+            int[] bloc = index.getBlocs()[c.getBlocIndex()];
+            int positionInBloc = 0;
+            while (bloc[positionInBloc] != c.getLine() * this.size + c.getColumn()) {
+                positionInBloc++;
+            }
 
             // contrainte entre la case et sa ligne
-            toInsert = new ArrayList<>(Arrays.asList(this.getLine(c.getLine())).subList(0, this.size));
-            toInsert.remove(c);
-            newConstraint = new NotEqualConstraint(c, toInsert, puzzle);
-            constraints.add(newConstraint);
+            constraints.add(this.unitConstraint(index.getLines()[c.getLine()], c.getColumn(), puzzle));
 
             // contrainte entre la case et la colonne j
-            toInsert = new ArrayList<>(Arrays.asList(this.getColumn(c.getColumn())).subList(0, this.size));
-            toInsert.remove(c);
-            newConstraint = new NotEqualConstraint(c, toInsert, puzzle);
-            constraints.add(newConstraint);
+            constraints.add(this.unitConstraint(index.getColumns()[c.getColumn()], c.getLine(), puzzle));
 
             // contrainte entre la case et le bloc k
-            toInsert = new ArrayList<>(Arrays.asList(this.getBloc(c.getBlocIndex()).cases()).subList(0, this.size));
-            toInsert.remove(c);
-            newConstraint = new NotEqualConstraint(c, toInsert, puzzle);
-            constraints.add(newConstraint);
+            constraints.add(this.unitConstraint(bloc, positionInBloc, puzzle));
 
             // contraintes supplémentaires s'appliquant sur cette case
             for (SudokuConstraint constraint : this.addedConstraints) {
@@ -354,6 +361,35 @@ public class Sudoku implements Puzzle {
         }
     }
 
+    /**
+     * Crée la contrainte entre une case d'une unité (ligne, colonne ou bloc) et les autres cases de cette unité
+     * @param unit Les indices des cases de l'unité
+     * @param position La position de la case contrainte dans l'unité
+     * @param puzzle Le puzzle sur lequel pointe la contrainte
+     * @return La contrainte créée
+     */
+    private NotEqualConstraint unitConstraint(int[] unit, int position, Puzzle puzzle) {
+        ArrayList<Case> toInsert = new ArrayList<>(unit.length - 1);
+        for (int k = 0; k < unit.length; k++) {
+            if (k != position) {
+                toInsert.add(this.cases[unit[k] / this.size][unit[k] % this.size]);
+            }
+        }
+        return new NotEqualConstraint(this.cases[unit[position] / this.size][unit[position] % this.size], toInsert, puzzle);
+    }
+
+    /**
+     * Retourne l'index des voisins du sudoku, qui est partagé avec tous les sudokus ayant les mêmes blocs
+     * @return L'index des voisins du sudoku
+     */
+    @Override
+    public PeerIndex peerIndex() {
+        if (this.peerIndex == null) {
+            this.peerIndex = PeerIndex.of(this);
+        }
+        return this.peerIndex;
+    }
+
     /**
      * Retourne la liste des cases constituant le sudoku, toujours dans le même ordre
      * @return La liste des cases constituant le sudoku
@@ -398,6 +434,10 @@ public class Sudoku implements Puzzle {
             }
 
             Sudoku newSudoku = new Sudoku(this.size, placements, symbols);
+            // la copie a la même forme, elle peut donc réutiliser le même index
+            newSudoku.peerIndex = this.peerIndex;
+            // la copie représente le même puzzle, elle garde donc son identifiant
+            newSudoku.id = this.id;
 
             // on copie les valeurs des cases
             for (int i = 0; i < this.size; i++) {
@@ -0,0 +1,120 @@
+package Grids;
+
+import java.util.ArrayList;
+
+/**
+ * Un Trail enregistre toutes les valeurs possibles enlevées aux cases d'un puzzle, sous forme d'une pile de paires (case, valeur),
+ * pour pouvoir annuler ces modifications lors d'un retour en arrière au lieu de copier le puzzle entier
+ */
+public final class Trail {
+    /**
+     * Les cases du puzzle suivi, dans l'ordre de la méthode casesList du puzzle
+     */
+    private final Case[] cases;
+    /**
+     * La pile des modifications, où chaque modification occupe deux entiers : l'indice de la case puis la valeur enlevée
+     */
+    private int[] entries;
+    /**
+     * Le nombre d'entiers utilisés dans la pile
+     */
+    private int size;
+
+    /**
+     * Constructeur de la classe, qui attache le trail à toutes les cases du puzzle : à partir de ce moment, toute valeur enlevée à une case est enregistrée
+     * @param puzzle Le puzzle dont on veut suivre les modifications
+     * @throws IllegalArgumentException Si une des cases du puzzle est déjà suivie par un autre trail
+     */
+    public Trail(Puzzle puzzle) throws IllegalArgumentException {
+        ArrayList<Case> casesList = puzzle.casesList();
+        this.cases = casesList.toArray(new Case[0]);
+        this.entries = new int[Math.max(16, this.cases.length * 4)];
+        this.size = 0;
+        for (int i = 0; i < this.cases.length; i++) {
+            this.cases[i].attachTrail(this, i);
+        }
+    }
+
+    /**
+     * Enregistre qu'une valeur a été enlevée à une case, cette méthode n'est appelée que par les cases elles-mêmes
+     * @param index L'indice de la case dans le puzzle
+     * @param value La valeur enlevée
+     */
+    void record(int index, int value) {
+        if (this.size + 2 > this.entries.length) {
+            int[] newEntries = new int[this.entries.length * 2];
+            System.arraycopy(this.entries, 0, newEntries, 0, this.size);
+            this.entries = newEntries;
+        }
+        this.entries[this.size++] = index;
+        this.entries[this.size++] = value;
+    }
+
+    /**
+     * Retourne la position actuelle dans la pile, à passer plus tard à la méthode undo pour revenir à l'état actuel
+     * @return Le nombre de modifications enregistrées jusqu'ici
+     */
+    public int mark() {
+        return this.size >> 1;
+    }
+
+    /**
+     * Annule toutes les modifications enregistrées depuis une position donnée, dans l'ordre inverse où elles ont été faites
+     * @param mark La position à laquelle revenir, obtenue avec la méthode mark
+     * @throws IllegalArgumentException Si la position est après la position actuelle
+     */
+    public void undo(int mark) throws IllegalArgumentException {
+        if (mark < 0 || mark > this.mark()) {
+            throw new IllegalArgumentException("Le trail ne peut pas revenir à la position " + mark);
+        }
+        while (this.size > mark << 1) {
+            int value = this.entries[--this.size];
+            int index = this.entries[--this.size];
+            this.cases[index].restorePossibleValue(value);
+        }
+    }
+
+    /**
+     * Retourne l'indice de la case concernée par une des modifications enregistrées
+     * @param entry La position de la modification dans la pile
+     * @return L'indice de la case dans le puzzle
+     */
+    public int getEntryCase(int entry) {
+        return this.entries[entry << 1];
+    }
+
+    /**
+     * Retourne la valeur enlevée par une des modifications enregistrées
+     * @param entry La position de la modification dans la pile
+     * @return La valeur enlevée
+     */
+    public int getEntryValue(int entry) {
+        return this.entries[(entry << 1) + 1];
+    }
+
+    /**
+     * Getter d'une case du puzzle suivi
+     * @param index L'indice de la case dans le puzzle
+     * @return La case demandée
+     */
+    public Case getCase(int index) {
+        return this.cases[index];
+    }
+
+    /**
+     * Getter du nombre de cases du puzzle suivi
+     * @return Le nombre de cases du puzzle
+     */
+    public int getCasesCount() {
+        return this.cases.length;
+    }
+
+    /**
+     * Détache le trail de toutes les cases du puzzle, qui ne seront plus suivies
+     */
+    public void detach() {
+        for (Case c : this.cases) {
+            c.detachTrail(this);
+        }
+    }
+}
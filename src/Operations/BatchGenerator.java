@@ -0,0 +1,303 @@
+package Operations;
+
+import Constraints.*;
+import Grids.*;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Un BatchGenerator crée un lot de puzzles à résoudre de même forme et de même difficulté en parallèle.
+ * Chaque puzzle a son propre générateur de nombres aléatoires, tiré d'une graine commune et de sa position dans le lot, et les puzzles finis sont donnés à un consommateur dans l'ordre :
+ * avec la même graine, le lot généré est le même quel que soit le nombre de threads.
+ * Les puzzles donnés sont prêts à être résolus : les cases enlevées sont vraiment vides, et non simplement cachées.
+ * Seule une fenêtre de puzzles est générée en avance sur le dernier puzzle donné, la mémoire ne dépend donc pas de la taille du lot
+ */
+public class BatchGenerator implements AutoCloseable {
+    /**
+     * Le nombre de puzzles par thread qui peuvent être en cours de génération ou attendre d'être donnés en même temps
+     */
+    private static final int WINDOW_PER_THREAD = 4;
+
+    /**
+     * Le nombre de threads qui génèrent les puzzles
+     */
+    private final int threads;
+    /**
+     * Les threads sur lesquels sont générés les puzzles
+     */
+    private final ExecutorService executor;
+    /**
+     * La graine dont sont tirés les générateurs de nombres aléatoires des puzzles
+     */
+    private final long seed;
+    /**
+     * Indique si la génération vérifie que la solution reste unique en comptant les solutions
+     */
+    private boolean countingSolutions;
+    /**
+     * La symétrie que doivent respecter les cases enlevées
+     */
+    private RemovalSymmetry symmetry;
+
+    /**
+     * Constructeur de la classe
+     * @param threads Le nombre de threads à utiliser
+     * @param seed La graine dont sont tirés les générateurs de nombres aléatoires des puzzles
+     * @throws IllegalArgumentException Si le nombre de threads n'est pas strictement positif
+     */
+    public BatchGenerator(int threads, long seed) throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Le nombre de threads doit être strictement positif");
+        }
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.seed = seed;
+        this.countingSolutions = false;
+        this.symmetry = RemovalSymmetry.NONE;
+    }
+
+    /**
+     * Constructeur de la classe, qui utilise un thread par cœur de la machine
+     * @param seed La graine dont sont tirés les générateurs de nombres aléatoires des puzzles
+     */
+    public BatchGenerator(long seed) {
+        this(Runtime.getRuntime().availableProcessors(), seed);
+    }
+
+    /**
+     * Choisit comment la génération vérifie que la solution reste unique, comme le fait le contexte de résolution
+     * @param countingSolutions Si la génération doit compter les solutions
+     */
+    public void setCountingSolutions(boolean countingSolutions) {
+        this.countingSolutions = countingSolutions;
+    }
+
+    /**
+     * Choisit la symétrie que doivent respecter les cases enlevées quand on génère des puzzles d'une difficulté donnée
+     * @param symmetry La symétrie
+     * @throws IllegalArgumentException Si la symétrie est nulle
+     */
+    public void setSymmetry(RemovalSymmetry symmetry) throws IllegalArgumentException {
+        if (symmetry == null) {
+            throw new IllegalArgumentException("La symétrie ne peut pas être nulle");
+        }
+        this.symmetry = symmetry;
+    }
+
+    /**
+     * Génère un lot de puzzles à résoudre à partir d'un puzzle vide qui donne leur forme
+     * @param template Le puzzle vide dont chaque puzzle généré est une copie
+     * @param additionalConstraints Des contraintes supplémentaires sur le puzzle vide si on veut en rajouter
+     * @param difficulty La difficulté qu'auront les puzzles, soit 1 (facile), 2 (moyen) ou 3 (difficile)
+     * @param count Le nombre de puzzles à générer
+     * @param sink La méthode à laquelle est donné chaque puzzle généré, prêt à être résolu, dans l'ordre de génération et par un seul thread à la fois
+     * @return Le nombre de puzzles générés qui ont atteint la difficulté souhaitée
+     * @throws IllegalArgumentException Si le puzzle donné n'est pas vide, la difficulté n'existe pas ou le nombre de puzzles est négatif
+     * @throws RuntimeException Si la génération d'un puzzle a échoué ou si le thread appelant est interrompu
+     */
+    public int generate(Puzzle template, ArrayList<SudokuConstraint> additionalConstraints, int difficulty, int count, Consumer<Puzzle> sink) throws IllegalArgumentException, RuntimeException {
+        if (difficulty < 1 || difficulty > 3) {
+            throw new IllegalArgumentException("La difficulté doit être comprise entre 1 et 3 !");
+        }
+        RemovalSymmetry symmetry = this.symmetry;
+        return this.generate(template, additionalConstraints, count, sink,
+                (context, puzzle, constraints) -> Solver.generateNewPuzzleToSolve(context, puzzle, constraints, difficulty, symmetry, null));
+    }
+
+    /**
+     * Génère un lot de puzzles à résoudre dont la difficulté, évaluée par les techniques de déduction nécessaires, est dans un intervalle de niveaux
+     * @param template Le puzzle vide dont chaque puzzle généré est une copie
+     * @param additionalConstraints Des contraintes supplémentaires sur le puzzle vide si on veut en rajouter
+     * @param rater L'évaluateur qui donne le niveau de chaque puzzle
+     * @param minLevel Le niveau minimum que doivent atteindre les puzzles
+     * @param maxLevel Le niveau maximum que ne doivent pas dépasser les puzzles
+     * @param count Le nombre de puzzles à générer
+     * @param sink La méthode à laquelle est donné chaque puzzle généré, prêt à être résolu, dans l'ordre de génération et par un seul thread à la fois
+     * @return Le nombre de puzzles générés qui ont atteint le niveau minimum
+     * @throws IllegalArgumentException Si le puzzle donné n'est pas vide, les niveaux n'existent pas ou le nombre de puzzles est négatif
+     * @throws RuntimeException Si la génération d'un puzzle a échoué ou si le thread appelant est interrompu
+     */
+    public int generate(Puzzle template, ArrayList<SudokuConstraint> additionalConstraints, DifficultyRater rater, int minLevel, int maxLevel, int count, Consumer<Puzzle> sink) throws IllegalArgumentException, RuntimeException {
+        if (minLevel < 0 || minLevel > maxLevel || maxLevel > rater.getMaxLevel()) {
+            throw new IllegalArgumentException("Les niveaux doivent être compris entre 0 et " + rater.getMaxLevel() + " et dans l'ordre !");
+        }
+        return this.generate(template, additionalConstraints, count, sink,
+                (context, puzzle, constraints) -> Solver.generateNewPuzzleToSolve(context, puzzle, constraints, rater, minLevel, maxLevel));
+    }
+
+    /**
+     * Génère un lot de puzzles à résoudre en parallèle, avec une méthode qui enlève les cases d'un puzzle résolu
+     * @param template Le puzzle vide dont chaque puzzle généré est une copie
+     * @param additionalConstraints Des contraintes supplémentaires sur le puzzle vide si on veut en rajouter
+     * @param count Le nombre de puzzles à générer
+     * @param sink La méthode à laquelle est donné chaque puzzle généré, prêt à être résolu
+     * @param removal La méthode qui crée un puzzle à résoudre à partir d'un puzzle résolu
+     * @return Le nombre de puzzles générés pour lesquels la méthode a réussi
+     * @throws IllegalArgumentException Si le puzzle donné n'est pas vide ou le nombre de puzzles est négatif
+     * @throws RuntimeException Si la génération d'un puzzle a échoué ou si le thread appelant est interrompu
+     */
+    private int generate(Puzzle template, ArrayList<SudokuConstraint> additionalConstraints, int count, Consumer<Puzzle> sink, Removal removal) throws IllegalArgumentException, RuntimeException {
+        // on vérifie les arguments avant de lancer les threads
+        for (Case c : template.casesList()) {
+            if (c.getValue() != -1) {
+                throw new IllegalArgumentException("Le puzzle doit être vide !");
+            }
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Le nombre de puzzles ne peut pas être négatif");
+        }
+
+        // chaque thread prend le prochain puzzle à générer s'il est dans la fenêtre, et les puzzles finis sont rangés par position dans la fenêtre puis donnés dans l'ordre.
+        // Dès qu'un thread échoue, les autres ne prennent plus de nouveau puzzle et plus aucun puzzle n'est donné
+        int window = this.threads * WINDOW_PER_THREAD;
+        AtomicInteger reached = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicInteger running = new AtomicInteger(this.threads);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Puzzle[] pending = new Puzzle[window];
+        int[] next = new int[1];
+        int[] delivered = new int[1];
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < this.threads; t++) {
+            futures.add(this.executor.submit(() -> {
+                try {
+                    while (true) {
+                        int i;
+                        synchronized (pending) {
+                            // on attend que le prochain puzzle entre dans la fenêtre, c'est-à-dire que le plus ancien puzzle en cours ait été donné
+                            while (!stop.get() && next[0] < count && next[0] >= delivered[0] + window) {
+                                pending.wait();
+                            }
+                            if (stop.get() || next[0] >= count) return;
+                            i = next[0]++;
+                        }
+
+                        // chaque puzzle du lot est un puzzle différent du modèle, avec son propre identifiant
+                        // et son propre générateur, qui ne dépend que de la graine et de sa position : le résultat ne dépend pas du nombre de threads
+                        Puzzle puzzle = template.copy();
+                        puzzle.renewId();
+                        if (this.generateOne(puzzle, additionalConstraints, removal, new SplittableRandom(puzzleSeed(this.seed, i)))) {
+                            reached.incrementAndGet();
+                        }
+                        // les cases enlevées gardent leur valeur cachée, on donne donc une copie, qui garde le même identifiant mais dont ces cases sont vides
+                        Puzzle toSolve = puzzle.copy();
+                        synchronized (pending) {
+                            if (stop.get()) return;
+                            // on donne tous les puzzles finis qui suivent le dernier puzzle donné
+                            pending[i % window] = toSolve;
+                            while (delivered[0] < count && pending[delivered[0] % window] != null) {
+                                sink.accept(pending[delivered[0] % window]);
+                                pending[delivered[0] % window] = null;
+                                delivered[0]++;
+                            }
+                            pending.notifyAll();
+                        }
+                    }
+                }
+                catch (InterruptedException e) {
+                    stop.set(true);
+                    Thread.currentThread().interrupt();
+                }
+                catch (RuntimeException | Error e) {
+                    stop.set(true);
+                    done.completeExceptionally(e);
+                    // on réveille les threads qui attendent que la fenêtre avance
+                    synchronized (pending) {
+                        pending.notifyAll();
+                    }
+                }
+                finally {
+                    if (running.decrementAndGet() == 0) {
+                        done.complete(null);
+                    }
+                }
+            }));
+        }
+
+        // on attend la fin de tous les threads, ou le premier échec
+        try {
+            done.get();
+        }
+        catch (InterruptedException e) {
+            stop.set(true);
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("La génération du lot a été interrompue");
+        }
+        catch (ExecutionException e) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            throw new RuntimeException("La génération d'un puzzle a échoué : " + e.getCause().getMessage());
+        }
+        return reached.get();
+    }
+
+    /**
+     * Calcule la graine du générateur de nombres aléatoires d'un puzzle du lot, en mélangeant les bits de la graine commune et de la position du puzzle
+     * @param seed La graine commune du lot
+     * @param index La position du puzzle dans le lot
+     * @return La graine du puzzle
+     */
+    private static long puzzleSeed(long seed, int index) {
+        // on utilise la fonction de mélange de SplitMix64, pour que des positions voisines donnent des graines sans rapport
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Génère un seul puzzle du lot, sans loguer ses opérations
+     * @param puzzle La copie vide du puzzle sur laquelle créer le puzzle à résoudre
+     * @param additionalConstraints Les contraintes supplémentaires sur le puzzle vide d'origine
+     * @param removal La méthode qui crée un puzzle à résoudre à partir du puzzle résolu
+     * @param random Le générateur de nombres aléatoires du puzzle
+     * @return Un booléen qui indique si la méthode a réussi
+     * @throws IllegalArgumentException Si le puzzle n'a pas de solution
+     */
+    private boolean generateOne(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, Removal removal, SplittableRandom random) throws IllegalArgumentException {
+        SolverContext context = new SolverContext();
+        context.setLogging(false);
+        context.setRandom(random);
+        context.setCountingSolutions(this.countingSolutions);
+        ArrayList<SudokuConstraint> constraints = Solver.copyConstraints(puzzle, additionalConstraints);
+        if (!Solver.generateNewSolvedPuzzle(context, puzzle, constraints)) {
+            throw new IllegalArgumentException("Le puzzle n'a pas de solution");
+        }
+        return removal.apply(context, puzzle, constraints);
+    }
+
+    /**
+     * Arrête les threads du générateur, après la fin des générations en cours
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+
+    /**
+     * Une méthode qui crée un puzzle à résoudre à partir d'un puzzle résolu
+     */
+    private interface Removal {
+        /**
+         * Enlève des cases d'un puzzle résolu
+         * @param context Le contexte de la génération
+         * @param puzzle Le puzzle résolu
+         * @param constraints Les contraintes supplémentaires sur le puzzle
+         * @return Un booléen qui indique si le puzzle a atteint la difficulté souhaitée
+         */
+        boolean apply(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> constraints);
+    }
+}
@@ -0,0 +1,69 @@
+package Operations;
+
+import Grids.*;
+
+/**
+ * Un record qui contient le résultat de la résolution d'un puzzle dans un lot
+ * @param index La position du puzzle dans le lot
+ * @param puzzle Le puzzle, résolu si la résolution a réussi
+ * @param solved Si le puzzle a été résolu
+ * @param statistics Les statistiques de la résolution, qui donnent aussi sa durée et le nombre de valeurs essayées
+ * @param error Le message de l'erreur arrivée durant la résolution, ou null s'il n'y en a pas eu
+ */
+public record BatchResult(int index, Puzzle puzzle, boolean solved, SolverStatistics statistics, String error) {
+    /**
+     * Constructeur
+     * @param index La position du puzzle dans le lot
+     * @param puzzle Le puzzle, résolu si la résolution a réussi
+     * @param solved Si le puzzle a été résolu
+     * @param statistics Les statistiques de la résolution, qui donnent aussi sa durée et le nombre de valeurs essayées
+     * @param error Le message de l'erreur arrivée durant la résolution, ou null s'il n'y en a pas eu
+     */
+    public BatchResult {
+    }
+
+    /**
+     * Getter de la position du puzzle dans le lot
+     * @return La position du puzzle
+     */
+    @Override
+    public int index() {
+        return this.index;
+    }
+
+    /**
+     * Getter du puzzle
+     * @return Le puzzle
+     */
+    @Override
+    public Puzzle puzzle() {
+        return this.puzzle;
+    }
+
+    /**
+     * Indique si le puzzle a été résolu
+     * @return Si le puzzle a été résolu
+     */
+    @Override
+    public boolean solved() {
+        return this.solved;
+    }
+
+    /**
+     * Getter des statistiques de la résolution
+     * @return Les statistiques
+     */
+    @Override
+    public SolverStatistics statistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Getter du message d'erreur
+     * @return Le message de l'erreur arrivée durant la résolution, ou null s'il n'y en a pas eu
+     */
+    @Override
+    public String error() {
+        return this.error;
+    }
+}
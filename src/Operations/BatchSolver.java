@@ -0,0 +1,203 @@
+package Operations;
+
+import Grids.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Un BatchSolver résout un lot de puzzles en parallèle, chaque puzzle ayant son propre contexte de résolution.
+ * Les puzzles sont résolus sur place, un même puzzle ne doit donc pas apparaître deux fois dans un lot
+ */
+public class BatchSolver implements AutoCloseable {
+    /**
+     * Le nombre de puzzles soumis par thread qui peuvent attendre d'être résolus ou récupérés en même temps
+     */
+    private static final int WINDOW_PER_THREAD = 4;
+
+    /**
+     * L'algorithme utilisé pour résoudre chaque puzzle
+     */
+    private final SolverAlgorithm algorithm;
+    /**
+     * Les threads sur lesquels sont résolus les puzzles
+     */
+    private final ExecutorService executor;
+    /**
+     * Le nombre maximal de puzzles soumis dont le résultat n'a pas encore été récupéré, pour que la mémoire ne dépende pas de la taille du lot
+     */
+    private final int window;
+    /**
+     * Le générateur dont sont tirés les générateurs de nombres aléatoires des puzzles, ou null pour utiliser celui de chaque thread
+     */
+    private final SplittableRandom random;
+    /**
+     * Le cache placé devant le solveur, ou null pour résoudre chaque puzzle
+     */
+    private SolutionCache cache;
+
+    /**
+     * Constructeur de la classe
+     * @param algorithm L'algorithme utilisé pour résoudre chaque puzzle
+     * @param threads Le nombre de threads à utiliser, ou 0 pour utiliser un thread virtuel par puzzle
+     * @throws IllegalArgumentException Si l'algorithme est nul ou si le nombre de threads est négatif
+     */
+    public BatchSolver(SolverAlgorithm algorithm, int threads) throws IllegalArgumentException {
+        this(algorithm, threads, null);
+    }
+
+    /**
+     * Constructeur de la classe, dont les choix aléatoires sont tirés d'une graine : avec la même graine, chaque puzzle est résolu de la même façon quel que soit le nombre de threads
+     * @param algorithm L'algorithme utilisé pour résoudre chaque puzzle
+     * @param threads Le nombre de threads à utiliser, ou 0 pour utiliser un thread virtuel par puzzle
+     * @param seed La graine dont sont tirés les générateurs de nombres aléatoires des puzzles
+     * @throws IllegalArgumentException Si l'algorithme est nul ou si le nombre de threads est négatif
+     */
+    public BatchSolver(SolverAlgorithm algorithm, int threads, long seed) throws IllegalArgumentException {
+        this(algorithm, threads, new SplittableRandom(seed));
+    }
+
+    /**
+     * Constructeur de la classe
+     * @param algorithm L'algorithme utilisé pour résoudre chaque puzzle
+     * @param threads Le nombre de threads à utiliser, ou 0 pour utiliser un thread virtuel par puzzle
+     * @param random Le générateur dont sont tirés les générateurs de nombres aléatoires des puzzles, ou null
+     * @throws IllegalArgumentException Si l'algorithme est nul ou si le nombre de threads est négatif
+     */
+    private BatchSolver(SolverAlgorithm algorithm, int threads, SplittableRandom random) throws IllegalArgumentException {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("L'algorithme ne peut pas être nul");
+        }
+        if (threads < 0) {
+            throw new IllegalArgumentException("Le nombre de threads ne peut pas être négatif");
+        }
+        this.algorithm = algorithm;
+        this.executor = (threads == 0) ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(threads);
+        this.window = ((threads == 0) ? Runtime.getRuntime().availableProcessors() : threads) * WINDOW_PER_THREAD;
+        this.random = random;
+        this.cache = null;
+    }
+
+    /**
+     * Constructeur de la classe, qui utilise un thread par cœur de la machine
+     * @param algorithm L'algorithme utilisé pour résoudre chaque puzzle
+     * @throws IllegalArgumentException Si l'algorithme est nul
+     */
+    public BatchSolver(SolverAlgorithm algorithm) throws IllegalArgumentException {
+        this(algorithm, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Place un cache devant le solveur, qui peut être partagé avec d'autres lots : un puzzle déjà résolu n'est pas résolu une seconde fois
+     * @param cache Le cache, ou null pour résoudre chaque puzzle
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Résout tous les puzzles d'une collection
+     * @param puzzles Les puzzles à résoudre
+     * @return Le résultat de chaque puzzle, dans l'ordre de la collection
+     * @throws RuntimeException Si le thread appelant est interrompu pendant l'attente des résultats
+     */
+    public ArrayList<BatchResult> solveAll(Collection<? extends Puzzle> puzzles) throws RuntimeException {
+        return this.solveAll(puzzles.stream());
+    }
+
+    /**
+     * Résout tous les puzzles d'un flux, qui est parcouru une seule fois dans l'ordre
+     * @param puzzles Les puzzles à résoudre
+     * @return Le résultat de chaque puzzle, dans l'ordre du flux
+     * @throws RuntimeException Si le thread appelant est interrompu pendant l'attente des résultats
+     */
+    public ArrayList<BatchResult> solveAll(Stream<? extends Puzzle> puzzles) throws RuntimeException {
+        ArrayList<BatchResult> results = new ArrayList<>();
+        this.solveAll(puzzles, results::add);
+        return results;
+    }
+
+    /**
+     * Résout tous les puzzles d'un flux, qui est parcouru une seule fois dans l'ordre, et donne chaque résultat dès qu'il est prêt sans les garder.
+     * Le flux n'est lu qu'au fur et à mesure que les résultats sont donnés, ce qui permet de résoudre des fichiers de millions de puzzles avec une mémoire fixe
+     * @param puzzles Les puzzles à résoudre
+     * @param consumer Ce qui reçoit le résultat de chaque puzzle, dans l'ordre du flux, sur le thread appelant
+     * @return Le nombre de puzzles résolus
+     * @throws RuntimeException Si le thread appelant est interrompu pendant l'attente des résultats
+     */
+    public long solveAll(Stream<? extends Puzzle> puzzles, Consumer<BatchResult> consumer) throws RuntimeException {
+        // on ne garde au plus qu'une fenêtre de puzzles soumis, chacun avec son générateur tiré dans l'ordre du flux
+        ArrayDeque<Future<BatchResult>> pending = new ArrayDeque<>(this.window);
+        Iterator<? extends Puzzle> iterator = puzzles.iterator();
+        int submitted = 0;
+        try {
+            while (iterator.hasNext() || !pending.isEmpty()) {
+                if (iterator.hasNext() && pending.size() < this.window) {
+                    Puzzle puzzle = iterator.next();
+                    int index = submitted++;
+                    SplittableRandom random = (this.random != null) ? this.random.split() : null;
+                    pending.addLast(this.executor.submit(() -> this.solveOne(index, puzzle, random)));
+                }
+                else {
+                    // on récupère les résultats dans l'ordre de soumission
+                    consumer.accept(pending.removeFirst().get());
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            for (Future<BatchResult> future : pending) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("La résolution du lot a été interrompue");
+        }
+        catch (ExecutionException e) {
+            for (Future<BatchResult> future : pending) {
+                future.cancel(true);
+            }
+            throw new RuntimeException("La résolution d'un puzzle a échoué : " + e.getCause().getMessage());
+        }
+        return submitted;
+    }
+
+    /**
+     * Résout un seul puzzle du lot, sans loguer ses opérations
+     * @param index La position du puzzle dans le lot
+     * @param puzzle Le puzzle à résoudre
+     * @param random Le générateur de nombres aléatoires du puzzle, ou null pour utiliser celui du thread
+     * @return Le résultat du puzzle
+     */
+    private BatchResult solveOne(int index, Puzzle puzzle, SplittableRandom random) {
+        SolverContext context = new SolverContext();
+        context.setLogging(false);
+        context.setRandom(random);
+        SolverStatistics statistics = context.getStatistics();
+        statistics.start();
+        try {
+            boolean solved = (this.cache != null) ? this.cache.solve(this.algorithm, context, puzzle, null) : this.algorithm.solve(context, puzzle, null);
+            statistics.stop();
+            return new BatchResult(index, puzzle, solved, statistics, null);
+        }
+        catch (RuntimeException e) {
+            statistics.stop();
+            return new BatchResult(index, puzzle, false, statistics, e.getMessage());
+        }
+    }
+
+    /**
+     * Arrête les threads du solveur, après la fin des résolutions en cours
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+}
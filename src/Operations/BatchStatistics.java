@@ -0,0 +1,100 @@
+package Operations;
+
+import Grids.*;
+
+import java.util.TreeMap;
+
+/**
+ * Regroupe les statistiques des résolutions d'un ou plusieurs lots par taille de grille :
+ * un histogramme des durées, qui donne leurs percentiles, et la somme des autres statistiques
+ */
+public class BatchStatistics {
+    /**
+     * L'histogramme des durées de résolution de chaque taille de grille
+     */
+    private final TreeMap<Integer, LatencyHistogram> latencies;
+    /**
+     * La somme des statistiques des résolutions de chaque taille de grille
+     */
+    private final TreeMap<Integer, SolverStatistics> totals;
+
+    /**
+     * Constructeur de la classe, sans aucune résolution
+     */
+    public BatchStatistics() {
+        this.latencies = new TreeMap<>();
+        this.totals = new TreeMap<>();
+    }
+
+    /**
+     * Regroupe les statistiques d'une liste de résultats
+     * @param results Les résultats d'un lot
+     * @return Les statistiques regroupées
+     */
+    public static BatchStatistics of(Iterable<BatchResult> results) {
+        BatchStatistics statistics = new BatchStatistics();
+        for (BatchResult result : results) {
+            statistics.add(result);
+        }
+        return statistics;
+    }
+
+    /**
+     * Ajoute le résultat d'une résolution
+     * @param result Le résultat
+     */
+    public void add(BatchResult result) {
+        int size = gridSize(result.puzzle());
+        if (!this.latencies.containsKey(size)) {
+            this.latencies.put(size, new LatencyHistogram());
+            this.totals.put(size, new SolverStatistics());
+        }
+        this.latencies.get(size).record(result.statistics().getElapsedNanos());
+        this.totals.get(size).add(result.statistics());
+    }
+
+    /**
+     * Calcule la taille de la grille d'un puzzle
+     * @param puzzle Le puzzle
+     * @return La taille d'un sudoku, ou celle de la grille entière d'un multidoku
+     */
+    static int gridSize(Puzzle puzzle) {
+        if (puzzle instanceof Multidoku) {
+            return ((Multidoku) puzzle).getSizeMultidokuGrid();
+        }
+        return ((Sudoku) puzzle).getSize();
+    }
+
+    /**
+     * Getter des histogrammes des durées
+     * @return L'histogramme de chaque taille de grille, trié par taille
+     */
+    public TreeMap<Integer, LatencyHistogram> getLatencies() {
+        return this.latencies;
+    }
+
+    /**
+     * Getter des sommes des statistiques
+     * @return La somme des statistiques de chaque taille de grille, trié par taille
+     */
+    public TreeMap<Integer, SolverStatistics> getTotals() {
+        return this.totals;
+    }
+
+    /**
+     * Retourne les statistiques avec une ligne par taille de grille
+     * @return Le texte
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int size : this.latencies.keySet()) {
+            LatencyHistogram latency = this.latencies.get(size);
+            SolverStatistics total = this.totals.get(size);
+            sb.append("taille ").append(size).append(" : ").append(latency)
+                    .append(String.format(", %.1f nœuds et %.1f essais en moyenne, profondeur max %d", (double) total.getNodes() / latency.getCount(), (double) total.getGuesses() / latency.getCount(), total.getMaxDepth()))
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,317 @@
+package Operations;
+
+import Grids.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+/**
+ * Lit les sudokus d'un fichier binaire écrit par BinaryPuzzleWriter.
+ * Le fichier est projeté en mémoire et chaque enregistrement est décodé directement depuis ses octets,
+ * sans passer par des lignes de texte, ce qui permet de parcourir des millions de sudokus rapidement
+ */
+public class BinaryPuzzleReader implements AutoCloseable {
+    /**
+     * Le fichier ouvert
+     */
+    private final FileChannel channel;
+    /**
+     * Les morceaux du fichier projetés en mémoire, chacun contenant un nombre entier d'enregistrements
+     */
+    private final ArrayList<MappedByteBuffer> segments;
+    /**
+     * Le nombre d'enregistrements dans chaque morceau, sauf peut-être le dernier
+     */
+    private final int recordsPerSegment;
+    /**
+     * La taille des sudokus du fichier
+     */
+    private final int size;
+    /**
+     * Les placements des blocs des sudokus du fichier, ou null s'ils utilisent les blocs par défaut
+     */
+    private final int[][] placements;
+    /**
+     * Les symboles des sudokus du fichier, ou null s'ils n'en ont pas
+     */
+    private final HashMap<Integer, String> symbols;
+    /**
+     * Le nombre de bits utilisés pour chaque case
+     */
+    private final int bits;
+    /**
+     * Le nombre d'octets d'un enregistrement
+     */
+    private final int recordLength;
+    /**
+     * Le nombre de sudokus dans le fichier
+     */
+    private final long count;
+    /**
+     * Le chemin du fichier
+     */
+    private final String filepath;
+    /**
+     * L'événement JFR qui couvre toute la lecture, jusqu'à la fermeture du fichier
+     */
+    private final FileEvent event;
+
+    /**
+     * Constructeur de la classe, qui ouvre le fichier, lit son en-tête et le projette en mémoire
+     * @param filename Le nom du fichier, sans extension, dans le dossier des sudokus
+     * @throws IOException S'il y a une erreur lors de la lecture du fichier
+     * @throws IllegalArgumentException Si le fichier n'est pas un fichier binaire de sudokus valide
+     */
+    public BinaryPuzzleReader(String filename) throws IOException, IllegalArgumentException {
+        String filepath = "./data/sudokus/" + filename + ".bin";
+        this.filepath = filepath;
+        this.event = new FileEvent();
+        this.event.begin();
+        this.channel = FileChannel.open(Path.of(filepath), StandardOpenOption.READ);
+        try {
+            long fileLength = this.channel.size();
+
+            // on lit le début du fichier pour connaître la taille de l'en-tête
+            ByteBuffer prefix = ByteBuffer.allocate(BinaryPuzzleWriter.PREFIX_LENGTH);
+            while (prefix.hasRemaining()) {
+                if (this.channel.read(prefix, prefix.position()) <= 0) break;
+            }
+            prefix.flip();
+            if (prefix.remaining() < BinaryPuzzleWriter.PREFIX_LENGTH || prefix.getInt() != BinaryPuzzleWriter.MAGIC) {
+                throw new IllegalArgumentException("Le fichier " + filepath + " n'est pas un fichier binaire de sudokus");
+            }
+            if (prefix.getShort() != BinaryPuzzleWriter.VERSION) {
+                throw new IllegalArgumentException("La version du fichier " + filepath + " n'est pas prise en charge");
+            }
+            int headerLength = prefix.getInt();
+            if (headerLength < BinaryPuzzleWriter.PREFIX_LENGTH || headerLength > fileLength) {
+                throw new IllegalArgumentException("L'en-tête du fichier " + filepath + " est invalide");
+            }
+
+            // on lit l'en-tête, en vérifiant avant chaque champ qu'il tient dans la longueur annoncée
+            ByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, headerLength);
+            header.position(BinaryPuzzleWriter.PREFIX_LENGTH);
+            checkRemaining(header, Integer.BYTES + 1, filepath);
+            this.size = header.getInt();
+            // un enregistrement doit tenir dans un seul morceau projeté en mémoire
+            if (this.size <= 0 || ((long) this.size * this.size * BinaryPuzzleWriter.bitsPerCell(this.size) + 7) / 8 > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("La taille des sudokus du fichier " + filepath + " est invalide");
+            }
+            this.bits = BinaryPuzzleWriter.bitsPerCell(this.size);
+            this.recordLength = BinaryPuzzleWriter.recordLength(this.size);
+            byte placementId = header.get();
+            if (placementId == BinaryPuzzleWriter.CUSTOM_PLACEMENTS) {
+                checkRemaining(header, this.recordLength, filepath);
+                int[] blocs = new int[this.size * this.size];
+                unpack(header, header.position(), this.bits, blocs);
+                header.position(header.position() + this.recordLength);
+                this.placements = new int[this.size][this.size];
+                for (int i = 0; i < this.size; i++) {
+                    System.arraycopy(blocs, i * this.size, this.placements[i], 0, this.size);
+                }
+            }
+            else if (placementId == BinaryPuzzleWriter.DEFAULT_PLACEMENTS) {
+                this.placements = null;
+            }
+            else {
+                throw new IllegalArgumentException("Le placement des blocs du fichier " + filepath + " est inconnu");
+            }
+            checkRemaining(header, Integer.BYTES, filepath);
+            int symbolsCount = header.getInt();
+            if (symbolsCount == 0) {
+                this.symbols = null;
+            }
+            else if (symbolsCount != this.size) {
+                throw new IllegalArgumentException("Le nombre de symboles du fichier " + filepath + " ne correspond pas à la taille des sudokus");
+            }
+            else {
+                this.symbols = new HashMap<>();
+                for (int i = 0; i < symbolsCount; i++) {
+                    checkRemaining(header, Integer.BYTES, filepath);
+                    int symbolLength = header.getInt();
+                    checkRemaining(header, symbolLength, filepath);
+                    byte[] symbol = new byte[symbolLength];
+                    header.get(symbol);
+                    this.symbols.put(i, new String(symbol, StandardCharsets.UTF_8));
+                }
+            }
+
+            // on projette les enregistrements par morceaux, car un seul morceau ne peut pas dépasser 2 Go
+            long recordsLength = fileLength - headerLength;
+            if (recordsLength % this.recordLength != 0) {
+                throw new IllegalArgumentException("Le fichier " + filepath + " contient un enregistrement incomplet");
+            }
+            this.count = recordsLength / this.recordLength;
+            this.recordsPerSegment = Integer.MAX_VALUE / this.recordLength;
+            this.segments = new ArrayList<>();
+            for (long first = 0; first < this.count; first += this.recordsPerSegment) {
+                long records = Math.min(this.recordsPerSegment, this.count - first);
+                this.segments.add(this.channel.map(FileChannel.MapMode.READ_ONLY, headerLength + first * this.recordLength, records * this.recordLength));
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Vérifie qu'un champ de l'en-tête tient dans les octets qui restent avant la fin de l'en-tête
+     * @param header L'en-tête, positionné au début du champ
+     * @param length La longueur du champ en octets
+     * @param filepath Le chemin du fichier, pour le message d'erreur
+     * @throws IllegalArgumentException Si la longueur est négative ou dépasse la fin de l'en-tête
+     */
+    private static void checkRemaining(ByteBuffer header, int length, String filepath) throws IllegalArgumentException {
+        if (length < 0 || length > header.remaining()) {
+            throw new IllegalArgumentException("L'en-tête du fichier " + filepath + " est tronqué");
+        }
+    }
+
+    /**
+     * Lit les valeurs d'un sudoku du fichier, sans créer de sudoku
+     * @param index La position du sudoku dans le fichier, à partir de 0
+     * @param values Le tableau à remplir, de la taille du nombre de cases, avec les valeurs ligne par ligne et -1 pour une case vide
+     * @throws IllegalArgumentException Si la position n'existe pas ou si le tableau n'a pas la bonne taille
+     */
+    public void readValues(long index, int[] values) throws IllegalArgumentException {
+        if (index < 0 || index >= this.count) {
+            throw new IllegalArgumentException("Le sudoku numéro " + index + " n'existe pas");
+        }
+        if (values.length != this.size * this.size) {
+            throw new IllegalArgumentException("Le tableau doit avoir une place par case");
+        }
+        MappedByteBuffer segment = this.segments.get((int) (index / this.recordsPerSegment));
+        unpack(segment, (int) (index % this.recordsPerSegment) * this.recordLength, this.bits, values);
+        // une case vide est codée par 0, et une valeur par elle-même plus un
+        for (int i = 0; i < values.length; i++) {
+            values[i]--;
+        }
+    }
+
+    /**
+     * Lit un sudoku du fichier
+     * @param index La position du sudoku dans le fichier, à partir de 0
+     * @return Un nouveau sudoku avec les blocs et les symboles du fichier
+     * @throws IllegalArgumentException Si la position n'existe pas ou si le fichier contient des valeurs invalides
+     */
+    public Sudoku read(long index) throws IllegalArgumentException {
+        return this.read(index, new int[this.size * this.size]);
+    }
+
+    /**
+     * Lit un sudoku du fichier avec un tableau de valeurs donné, et émet l'événement JFR de sa lecture
+     * @param index La position du sudoku dans le fichier, à partir de 0
+     * @param values Le tableau dans lequel lire les valeurs, de la taille du nombre de cases
+     * @return Un nouveau sudoku avec les blocs et les symboles du fichier
+     * @throws IllegalArgumentException Si la position n'existe pas ou si le fichier contient des valeurs invalides
+     */
+    private Sudoku read(long index, int[] values) throws IllegalArgumentException {
+        FileEvent record = new FileEvent();
+        record.begin();
+        this.readValues(index, values);
+        Sudoku sudoku = this.createSudoku(values);
+        FilesOperations.endRecordEvent(record, "lecture sudoku binaire", this.filepath, sudoku, index, this.recordLength);
+        return sudoku;
+    }
+
+    /**
+     * Parcourt tous les sudokus du fichier dans l'ordre, en réutilisant le même tableau de valeurs
+     * @param sink La méthode à laquelle sont données les valeurs de chaque sudoku, qui ne doit pas garder le tableau
+     */
+    public void forEachValues(Consumer<int[]> sink) {
+        int[] values = new int[this.size * this.size];
+        for (long i = 0; i < this.count; i++) {
+            this.readValues(i, values);
+            sink.accept(values);
+        }
+    }
+
+    /**
+     * Parcourt tous les sudokus du fichier dans l'ordre
+     * @param sink La méthode à laquelle est donné chaque sudoku
+     * @throws IllegalArgumentException Si le fichier contient des valeurs invalides
+     */
+    public void forEach(Consumer<Sudoku> sink) throws IllegalArgumentException {
+        int[] values = new int[this.size * this.size];
+        for (long i = 0; i < this.count; i++) {
+            sink.accept(this.read(i, values));
+        }
+    }
+
+    /**
+     * Crée un sudoku avec les blocs et les symboles du fichier
+     * @param values Les valeurs du sudoku ligne par ligne, -1 pour une case vide
+     * @return Le sudoku
+     * @throws IllegalArgumentException Si une valeur est invalide
+     */
+    private Sudoku createSudoku(int[] values) throws IllegalArgumentException {
+        HashMap<Integer, String> symbols = (this.symbols != null) ? new HashMap<>(this.symbols) : null;
+        Sudoku sudoku = new Sudoku(this.size, this.placements, symbols);
+        for (int i = 0; i < this.size; i++) {
+            for (int j = 0; j < this.size; j++) {
+                int value = values[i * this.size + j];
+                if (value != -1) {
+                    sudoku.getCase(i, j).setValue(value);
+                }
+            }
+        }
+        return sudoku;
+    }
+
+    /**
+     * Getter de la taille des sudokus du fichier
+     * @return La taille des sudokus
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Getter du nombre de sudokus dans le fichier
+     * @return Le nombre de sudokus
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Ferme le fichier
+     * @throws IOException S'il y a une erreur lors de la fermeture
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+        FilesOperations.endFileEvent(this.event, "lecture sudokus binaires", this.filepath, null, this.count);
+    }
+
+    /**
+     * Relit des entiers rangés les uns à la suite des autres par BinaryPuzzleWriter.pack
+     * @param buffer Les octets à lire, qui ne sont pas déplacés
+     * @param offset La position du premier octet
+     * @param bits Le nombre de bits de chaque entier
+     * @param values Le tableau à remplir
+     */
+    private static void unpack(ByteBuffer buffer, int offset, int bits, int[] values) {
+        long mask = (1L << bits) - 1;
+        long bitBuffer = 0;
+        int buffered = 0;
+        int n = offset;
+        for (int i = 0; i < values.length; i++) {
+            while (buffered < bits) {
+                bitBuffer = (bitBuffer << 8) | (buffer.get(n++) & 0xFF);
+                buffered += 8;
+            }
+            buffered -= bits;
+            values[i] = (int) ((bitBuffer >>> buffered) & mask);
+        }
+    }
+}
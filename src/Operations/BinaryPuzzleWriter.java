@@ -0,0 +1,223 @@
+package Operations;
+
+import Grids.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Écrit des sudokus dans un fichier binaire compact, lu par BinaryPuzzleReader.
+ * Le fichier commence par un en-tête commun à tous les sudokus (taille, placements des blocs et symboles),
+ * suivi d'un enregistrement de taille fixe par sudoku, où chaque case est codée sur le nombre de bits juste nécessaire.
+ * Tous les sudokus d'un même fichier doivent donc avoir la même taille, les mêmes blocs et aucune contrainte ajoutée
+ */
+public class BinaryPuzzleWriter implements AutoCloseable {
+    /**
+     * Les 4 octets au début de chaque fichier binaire de sudokus
+     */
+    static final int MAGIC = 0x53444B42;
+    /**
+     * La version du format
+     */
+    static final short VERSION = 1;
+    /**
+     * Le nombre d'octets au début de l'en-tête qui donnent sa taille : les 4 octets de MAGIC, les 2 de la version et les 4 de la taille de l'en-tête
+     */
+    static final int PREFIX_LENGTH = 10;
+    /**
+     * L'identifiant de placement qui indique que les blocs par défaut sont utilisés
+     */
+    static final byte DEFAULT_PLACEMENTS = 0;
+    /**
+     * L'identifiant de placement qui indique que les blocs de chaque case sont écrits dans l'en-tête
+     */
+    static final byte CUSTOM_PLACEMENTS = 1;
+
+    /**
+     * Le flux dans lequel on écrit
+     */
+    private final DataOutputStream output;
+    /**
+     * La taille des sudokus du fichier
+     */
+    private final int size;
+    /**
+     * Le bloc de chaque case des sudokus du fichier, ligne par ligne
+     */
+    private final int[] blocs;
+    /**
+     * Le nombre de bits utilisés pour chaque case
+     */
+    private final int bits;
+    /**
+     * Les valeurs du sudoku en cours d'écriture, réutilisées d'un sudoku à l'autre
+     */
+    private final int[] values;
+    /**
+     * L'enregistrement en cours d'écriture, réutilisé d'un sudoku à l'autre
+     */
+    private final byte[] record;
+    /**
+     * Le nombre de sudokus écrits
+     */
+    private long count;
+    /**
+     * Le chemin du fichier
+     */
+    private final String filepath;
+    /**
+     * L'événement JFR qui couvre toute l'écriture, jusqu'à la fermeture du fichier
+     */
+    private final FileEvent event;
+
+    /**
+     * Constructeur de la classe, qui crée le fichier et écrit son en-tête
+     * @param filename Le nom du fichier, sans extension, dans le dossier des sudokus
+     * @param model Un sudoku dont la taille, les blocs et les symboles seront ceux de tous les sudokus du fichier
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws IllegalArgumentException Si le sudoku modèle a des contraintes ajoutées
+     */
+    public BinaryPuzzleWriter(String filename, Sudoku model) throws IOException, IllegalArgumentException {
+        if (!model.getAddedConstraints().isEmpty()) {
+            throw new IllegalArgumentException("Le format binaire ne peut pas contenir de contraintes ajoutées");
+        }
+        this.size = model.getSize();
+        this.bits = bitsPerCell(this.size);
+        this.blocs = new int[this.size * this.size];
+        for (int i = 0; i < this.size; i++) {
+            for (int j = 0; j < this.size; j++) {
+                this.blocs[i * this.size + j] = model.getCase(i, j).getBlocIndex();
+            }
+        }
+        this.values = new int[this.size * this.size];
+        this.record = new byte[recordLength(this.size)];
+        this.count = 0;
+
+        // on prépare l'en-tête à part pour connaître sa taille avant de l'écrire
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(this.size);
+        if (model.isUsingDefaultPlacements()) {
+            header.writeByte(DEFAULT_PLACEMENTS);
+        }
+        else {
+            header.writeByte(CUSTOM_PLACEMENTS);
+            byte[] placements = new byte[recordLength(this.size)];
+            pack(this.blocs, this.bits, placements);
+            header.write(placements);
+        }
+        HashMap<Integer, String> symbols = model.getSymbols();
+        if (symbols == null) {
+            header.writeInt(0);
+        }
+        else {
+            header.writeInt(this.size);
+            for (int i = 0; i < this.size; i++) {
+                byte[] symbol = symbols.get(i).getBytes(StandardCharsets.UTF_8);
+                header.writeInt(symbol.length);
+                header.write(symbol);
+            }
+        }
+        header.flush();
+
+        this.filepath = "./data/sudokus/" + filename + ".bin";
+        this.event = new FileEvent();
+        this.event.begin();
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.filepath), 1 << 16));
+        this.output.writeInt(MAGIC);
+        this.output.writeShort(VERSION);
+        this.output.writeInt(PREFIX_LENGTH + headerBytes.size());
+        headerBytes.writeTo(this.output);
+    }
+
+    /**
+     * Ajoute un sudoku à la fin du fichier, avec ses valeurs visibles
+     * @param sudoku Le sudoku à écrire
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws IllegalArgumentException Si le sudoku n'a pas la taille ou les blocs du fichier, ou s'il a des contraintes ajoutées
+     */
+    public void write(Sudoku sudoku) throws IOException, IllegalArgumentException {
+        if (sudoku.getSize() != this.size) {
+            throw new IllegalArgumentException("Le sudoku n'a pas la taille des sudokus du fichier");
+        }
+        if (!sudoku.getAddedConstraints().isEmpty()) {
+            throw new IllegalArgumentException("Le format binaire ne peut pas contenir de contraintes ajoutées");
+        }
+        for (int i = 0; i < this.size; i++) {
+            for (int j = 0; j < this.size; j++) {
+                Case c = sudoku.getCase(i, j);
+                if (c.getBlocIndex() != this.blocs[i * this.size + j]) {
+                    throw new IllegalArgumentException("Le sudoku n'a pas les blocs des sudokus du fichier");
+                }
+                // une case vide est codée par 0, et une valeur par elle-même plus un
+                this.values[i * this.size + j] = c.getValue() + 1;
+            }
+        }
+        FileEvent recordEvent = new FileEvent();
+        recordEvent.begin();
+        pack(this.values, this.bits, this.record);
+        this.output.write(this.record);
+        FilesOperations.endRecordEvent(recordEvent, "écriture sudoku binaire", this.filepath, sudoku, this.count, this.record.length);
+        this.count++;
+    }
+
+    /**
+     * Getter du nombre de sudokus écrits
+     * @return Le nombre de sudokus
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Termine l'écriture et ferme le fichier
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     */
+    @Override
+    public void close() throws IOException {
+        this.output.close();
+        FilesOperations.endFileEvent(this.event, "écriture sudokus binaires", this.filepath, null, this.count);
+    }
+
+    /**
+     * Calcule le nombre de bits nécessaires pour coder une case, qui peut valoir de 0 (case vide) à la taille du sudoku
+     * @param size La taille du sudoku
+     * @return Le nombre de bits
+     */
+    static int bitsPerCell(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+
+    /**
+     * Calcule le nombre d'octets d'un enregistrement, arrondi à l'octet supérieur
+     * @param size La taille du sudoku
+     * @return Le nombre d'octets
+     */
+    static int recordLength(int size) {
+        return (int) (((long) size * size * bitsPerCell(size) + 7) / 8);
+    }
+
+    /**
+     * Range des entiers les uns à la suite des autres, bit de poids fort en premier, sur un nombre de bits fixe
+     * @param values Les entiers, qui doivent tenir sur le nombre de bits
+     * @param bits Le nombre de bits de chaque entier
+     * @param bytes Le tableau à remplir, de la taille d'un enregistrement
+     */
+    static void pack(int[] values, int bits, byte[] bytes) {
+        long buffer = 0;
+        int buffered = 0;
+        int n = 0;
+        for (int value : values) {
+            buffer = (buffer << bits) | value;
+            buffered += bits;
+            while (buffered >= 8) {
+                buffered -= 8;
+                bytes[n++] = (byte) (buffer >>> buffered);
+            }
+        }
+        if (buffered > 0) {
+            bytes[n] = (byte) (buffer << (8 - buffered));
+        }
+    }
+}
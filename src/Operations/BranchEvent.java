@@ -0,0 +1,40 @@
+package Operations;
+
+import jdk.jfr.*;
+
+/**
+ * Un événement JFR émis pour chaque valeur essayée par le backtracking, dont la durée est celle de l'exploration de cette branche.
+ * Par défaut, seules les branches de plus d'une milliseconde sont enregistrées
+ */
+@Name("sudoku.Branch")
+@Label("Branche du backtracking")
+@Category({"Sudoku", "Solveur"})
+@Description("Une valeur essayée par le backtracking et l'exploration qui a suivi")
+@Threshold("1 ms")
+class BranchEvent extends Event {
+    /**
+     * L'identifiant du puzzle résolu, donné par Puzzle.getId
+     */
+    @Label("Identifiant du puzzle")
+    long puzzleId;
+    /**
+     * La profondeur de la branche dans la recherche
+     */
+    @Label("Profondeur")
+    int depth;
+    /**
+     * L'indice de la case essayée dans le puzzle
+     */
+    @Label("Case")
+    int cell;
+    /**
+     * La valeur essayée, à partir de 0
+     */
+    @Label("Valeur")
+    int value;
+    /**
+     * Si la valeur a mené à une solution
+     */
+    @Label("Acceptée")
+    boolean accepted;
+}
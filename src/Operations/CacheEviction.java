@@ -0,0 +1,15 @@
+package Operations;
+
+/**
+ * Les façons de choisir quelle entrée enlever d'un cache de solutions quand il est plein
+ */
+public enum CacheEviction {
+    /**
+     * On enlève l'entrée lue ou ajoutée il y a le plus longtemps
+     */
+    LEAST_RECENTLY_USED,
+    /**
+     * On enlève l'entrée ajoutée il y a le plus longtemps, même si elle vient d'être lue
+     */
+    OLDEST_FIRST
+}
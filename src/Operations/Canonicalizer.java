@@ -0,0 +1,357 @@
+package Operations;
+
+import Grids.*;
+
+import java.util.Arrays;
+
+/**
+ * Calcule la forme canonique d'un sudoku : le plus petit représentant, dans l'ordre lexicographique, de toutes les grilles qu'on peut obtenir
+ * en renommant les valeurs, en échangeant les lignes d'une même bande, les colonnes d'une même pile, les bandes, les piles, et en transposant si les blocs sont carrés.
+ * Deux sudokus équivalents ont donc la même forme canonique et la même empreinte.
+ * Toutes les façons d'ordonner les colonnes sont essayées, et pour chacune les lignes sont choisies une par une en abandonnant
+ * dès que la grille en cours de construction dépasse la meilleure trouvée jusqu'ici.
+ * Deux lignes identiques d'une même bande, ou deux bandes faites des mêmes lignes, donnent les mêmes grilles : on n'essaie que la première, et de même pour les colonnes et les piles.
+ * Les grilles presque vides, dont beaucoup de lignes sont identiques, sont donc rapides à traiter
+ */
+public abstract class Canonicalizer {
+    /**
+     * Le nombre maximum de façons d'ordonner les colonnes multiplié par le nombre de façons d'ordonner les lignes, au-delà duquel la recherche pourrait être trop longue.
+     * C'est le nombre de grilles essayées quand aucune ligne ne se distingue des autres : il vaut 1 679 616 pour un sudoku 9x9, le plus grand accepté
+     */
+    private static final int MAX_ORDERS = 2_000_000;
+
+    /**
+     * Calcule la forme canonique d'un sudoku, sans le modifier
+     * @param sudoku Le sudoku, dont seules les valeurs visibles sont prises en compte
+     * @return Les valeurs de la forme canonique ligne par ligne, 0 pour une case vide et de 1 à la taille du sudoku pour les valeurs renommées dans leur ordre d'apparition
+     * @throws IllegalArgumentException Si le sudoku n'a pas les blocs par défaut, s'il a des contraintes ajoutées, ou s'il est plus grand qu'un sudoku 9x9
+     */
+    public static int[] canonicalForm(Sudoku sudoku) throws IllegalArgumentException {
+        IsomorphGenerator.checkTransformable(sudoku);
+        int size = sudoku.getSize();
+        int width = IsomorphGenerator.blocWidth(size);
+        int height = size / width;
+        double columnOrders = factorial(height) * Math.pow(factorial(width), height);
+        double rowOrders = factorial(width) * Math.pow(factorial(height), width);
+        if (columnOrders * rowOrders > MAX_ORDERS) {
+            throw new IllegalArgumentException("Le sudoku est trop grand pour calculer sa forme canonique");
+        }
+
+        int[][] grid = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                grid[i][j] = sudoku.getCase(i, j).getValue();
+            }
+        }
+
+        Search search = new Search(size, width, height);
+        search.searchColumns(grid);
+        if (width == height) {
+            // la transposée a des bandes et des piles de même taille, on peut donc la chercher de la même façon
+            int[][] transposed = new int[size][size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    transposed[i][j] = grid[j][i];
+                }
+            }
+            search.searchColumns(transposed);
+        }
+        return search.best;
+    }
+
+    /**
+     * Calcule l'empreinte de 128 bits de la forme canonique d'un sudoku
+     * @param sudoku Le sudoku, dont seules les valeurs visibles sont prises en compte
+     * @return L'empreinte, la même pour tous les sudokus équivalents
+     * @throws IllegalArgumentException Si le sudoku n'a pas les blocs par défaut, s'il a des contraintes ajoutées, ou s'il est plus grand qu'un sudoku 9x9
+     */
+    public static GridHash canonicalHash(Sudoku sudoku) throws IllegalArgumentException {
+        return GridHash.of(canonicalForm(sudoku));
+    }
+
+    /**
+     * Calcule la factorielle d'un entier
+     * @param n L'entier
+     * @return Sa factorielle
+     */
+    private static double factorial(int n) {
+        double result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+
+    /**
+     * Numérote des lignes ou des colonnes selon leur contenu
+     * @param lines Les lignes ou les colonnes
+     * @return Pour chacune, la position de la première qui lui est identique
+     */
+    private static int[] lineClasses(int[][] lines) {
+        int[] classes = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            classes[i] = i;
+            for (int j = 0; j < i; j++) {
+                if (Arrays.equals(lines[j], lines[i])) {
+                    classes[i] = j;
+                    break;
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Numérote des bandes ou des piles selon les lignes ou les colonnes qu'elles contiennent, dans n'importe quel ordre
+     * @param lineClasses Les numéros des lignes ou des colonnes, donnés par lineClasses
+     * @param groupSize Le nombre de lignes d'une bande, ou de colonnes d'une pile
+     * @return Pour chaque bande ou pile, la position de la première qui contient les mêmes lignes ou colonnes
+     */
+    private static int[] groupClasses(int[] lineClasses, int groupSize) {
+        int groups = lineClasses.length / groupSize;
+        int[][] contents = new int[groups][];
+        for (int g = 0; g < groups; g++) {
+            contents[g] = Arrays.copyOfRange(lineClasses, g * groupSize, (g + 1) * groupSize);
+            Arrays.sort(contents[g]);
+        }
+        return lineClasses(contents);
+    }
+
+    /**
+     * L'état de la recherche de la forme canonique d'un sudoku
+     */
+    private static class Search {
+        /**
+         * La taille du sudoku
+         */
+        private final int size;
+        /**
+         * La largeur d'un bloc, qui est aussi le nombre de colonnes d'une pile et le nombre de bandes
+         */
+        private final int width;
+        /**
+         * La hauteur d'un bloc, qui est aussi le nombre de lignes d'une bande et le nombre de piles
+         */
+        private final int height;
+        /**
+         * La grille dont on cherche la meilleure façon d'ordonner les lignes
+         */
+        private int[][] grid;
+        /**
+         * Pour chaque ligne de la grille, la position de la première ligne identique
+         */
+        private int[] rowClasses;
+        /**
+         * Pour chaque bande de la grille, la position de la première bande qui contient les mêmes lignes
+         */
+        private int[] bandClasses;
+        /**
+         * Pour chaque colonne de la grille, la position de la première colonne identique
+         */
+        private int[] columnClasses;
+        /**
+         * Pour chaque pile de la grille, la position de la première pile qui contient les mêmes colonnes
+         */
+        private int[] stackClasses;
+        /**
+         * L'ordre des colonnes en cours d'essai, où la case i contient la colonne d'origine placée en position i
+         */
+        private final int[] columns;
+        /**
+         * Le nouveau nom de chaque valeur d'origine, ou 0 si elle n'a pas encore été renommée
+         */
+        private final int[] labels;
+        /**
+         * Le nombre de valeurs déjà renommées
+         */
+        private int labelCount;
+        /**
+         * La grille en cours de construction, ligne par ligne
+         */
+        private final int[] current;
+        /**
+         * La plus petite grille trouvée jusqu'ici, ou null si on n'en a pas encore trouvé
+         */
+        private int[] best;
+        /**
+         * La position de la première ligne de la grille en cours plus petite que celle de la meilleure grille, ou la taille du sudoku si elles sont égales jusqu'ici
+         */
+        private int smallerFrom;
+
+        /**
+         * Constructeur de la classe
+         * @param size La taille du sudoku
+         * @param width La largeur d'un bloc
+         * @param height La hauteur d'un bloc
+         */
+        private Search(int size, int width, int height) {
+            this.size = size;
+            this.width = width;
+            this.height = height;
+            this.columns = new int[size];
+            this.labels = new int[size];
+            this.labelCount = 0;
+            this.current = new int[size * size];
+            this.best = null;
+            this.smallerFrom = size;
+        }
+
+        /**
+         * Essaie toutes les façons d'ordonner les colonnes d'une grille : on ordonne les piles, puis les colonnes de chaque pile
+         * @param grid La grille, avec -1 pour les cases vides
+         */
+        private void searchColumns(int[][] grid) {
+            this.grid = grid;
+            int[][] gridColumns = new int[this.size][this.size];
+            for (int i = 0; i < this.size; i++) {
+                for (int j = 0; j < this.size; j++) {
+                    gridColumns[j][i] = grid[i][j];
+                }
+            }
+            this.rowClasses = lineClasses(grid);
+            this.bandClasses = groupClasses(this.rowClasses, this.height);
+            this.columnClasses = lineClasses(gridColumns);
+            this.stackClasses = groupClasses(this.columnClasses, this.width);
+            this.orderStacks(0, 0);
+        }
+
+        /**
+         * Indique si une ligne ou une colonne donne les mêmes grilles qu'une autre déjà essayée à la même position :
+         * une ligne ou une colonne identique du même groupe qui n'est pas encore placée et qui vient avant elle
+         * @param classes Les numéros des lignes ou des colonnes
+         * @param group Le groupe, bande ou pile
+         * @param groupSize Le nombre de lignes ou de colonnes d'un groupe
+         * @param line La position de la ligne ou de la colonne dans son groupe
+         * @param used Les lignes ou les colonnes du groupe déjà placées, sous forme de masque
+         * @return Si on peut ne pas l'essayer
+         */
+        private static boolean isRepeated(int[] classes, int group, int groupSize, int line, int used) {
+            for (int other = 0; other < line; other++) {
+                if ((used & (1 << other)) == 0 && classes[group * groupSize + other] == classes[group * groupSize + line]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Choisit la pile placée en une position, puis l'ordre de ses colonnes
+         * @param position La position de la pile à choisir
+         * @param usedStacks Les piles déjà placées, sous forme de masque
+         */
+        private void orderStacks(int position, int usedStacks) {
+            if (position == this.height) {
+                this.orderRows(0, 0, 0, -1);
+                return;
+            }
+            for (int stack = 0; stack < this.height; stack++) {
+                if ((usedStacks & (1 << stack)) == 0 && !isRepeated(this.stackClasses, 0, 1, stack, usedStacks)) {
+                    this.orderColumns(position, stack, 0, 0, usedStacks | (1 << stack));
+                }
+            }
+        }
+
+        /**
+         * Choisit les colonnes d'une pile une par une
+         * @param position La position de la pile
+         * @param stack La pile d'origine placée à cette position
+         * @param k Le nombre de colonnes de la pile déjà placées
+         * @param usedColumns Les colonnes de la pile déjà placées, sous forme de masque
+         * @param usedStacks Les piles déjà placées, sous forme de masque
+         */
+        private void orderColumns(int position, int stack, int k, int usedColumns, int usedStacks) {
+            if (k == this.width) {
+                this.orderStacks(position + 1, usedStacks);
+                return;
+            }
+            for (int column = 0; column < this.width; column++) {
+                if ((usedColumns & (1 << column)) == 0 && !isRepeated(this.columnClasses, stack, this.width, column, usedColumns)) {
+                    this.columns[position * this.width + k] = stack * this.width + column;
+                    this.orderColumns(position, stack, k + 1, usedColumns | (1 << column), usedStacks);
+                }
+            }
+        }
+
+        /**
+         * Choisit la ligne placée en une position, en renommant ses valeurs et en abandonnant si la grille devient plus grande que la meilleure
+         * @param position La position de la ligne à choisir
+         * @param usedBands Les bandes déjà placées, sous forme de masque
+         * @param usedRows Les lignes de la bande en cours déjà placées, sous forme de masque
+         * @param band La bande en cours, ou -1 si on doit en choisir une nouvelle
+         */
+        private void orderRows(int position, int usedBands, int usedRows, int band) {
+            if (position == this.size) {
+                if (this.best == null || this.smallerFrom < this.size) {
+                    // la grille en cours devient la meilleure, toutes les lignes déjà placées lui sont donc égales
+                    this.best = this.current.clone();
+                    this.smallerFrom = this.size;
+                }
+                return;
+            }
+            // au début d'une bande on peut choisir n'importe quelle bande restante, sinon une ligne restante de la bande en cours
+            int firstBand = (band == -1) ? 0 : band;
+            int lastBand = (band == -1) ? this.width - 1 : band;
+            for (int b = firstBand; b <= lastBand; b++) {
+                if (band == -1 && ((usedBands & (1 << b)) != 0 || isRepeated(this.bandClasses, 0, 1, b, usedBands))) continue;
+                for (int r = 0; r < this.height; r++) {
+                    if (band != -1 && (usedRows & (1 << r)) != 0) continue;
+                    if (isRepeated(this.rowClasses, b, this.height, r, (band == -1) ? 0 : usedRows)) continue;
+                    int labelMark = this.labelCount;
+                    int comparison = this.writeRow(position, this.grid[b * this.height + r], this.smallerFrom < position);
+                    if (comparison <= 0) {
+                        if (comparison < 0) {
+                            this.smallerFrom = position;
+                        }
+                        boolean endOfBand = ((position + 1) % this.height == 0);
+                        int nextUsedRows = (band == -1) ? (1 << r) : (usedRows | (1 << r));
+                        this.orderRows(position + 1, usedBands | (1 << b), endOfBand ? 0 : nextUsedRows, endOfBand ? -1 : b);
+                        if (this.smallerFrom == position) {
+                            this.smallerFrom = this.size;
+                        }
+                    }
+                    // on oublie les noms donnés par cette ligne
+                    for (int v = 0; v < this.size; v++) {
+                        if (this.labels[v] > labelMark) {
+                            this.labels[v] = 0;
+                        }
+                    }
+                    this.labelCount = labelMark;
+                }
+            }
+        }
+
+        /**
+         * Écrit une ligne d'origine à une position de la grille en cours, avec l'ordre des colonnes en cours et en renommant les nouvelles valeurs,
+         * puis la compare à la même ligne de la meilleure grille
+         * @param position La position de la ligne
+         * @param row La ligne d'origine
+         * @param smaller Si la grille en cours est déjà strictement plus petite que la meilleure, auquel cas on ne compare pas
+         * @return Un nombre négatif si la ligne est plus petite que celle de la meilleure grille, positif si elle est plus grande, et 0 sinon
+         */
+        private int writeRow(int position, int[] row, boolean smaller) {
+            int offset = position * this.size;
+            boolean compare = !smaller && this.best != null;
+            int comparison = 0;
+            for (int j = 0; j < this.size; j++) {
+                int value = row[this.columns[j]];
+                int cell = 0;
+                if (value != -1) {
+                    if (this.labels[value] == 0) {
+                        this.labels[value] = ++this.labelCount;
+                    }
+                    cell = this.labels[value];
+                }
+                this.current[offset + j] = cell;
+                if (compare && cell != this.best[offset + j]) {
+                    if (cell > this.best[offset + j]) {
+                        return 1;
+                    }
+                    // la ligne est plus petite, on finit de l'écrire sans comparer
+                    comparison = -1;
+                    compare = false;
+                }
+            }
+            return comparison;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package Operations;
+
+import Constraints.*;
+import Grids.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Un moteur de propagation de contraintes par file d'attente (à la manière d'AC-3) : chaque contrainte n'est réappliquée
+ * que si une des cases qu'elle surveille a perdu une valeur possible, ce qui est détecté grâce au trail attaché au puzzle.
+ * La propagation s'arrête exactement quand la file est vide, c'est-à-dire quand plus aucune contrainte ne peut rien changer
+ */
+public class ConstraintPropagator {
+    /**
+     * Les contraintes à propager
+     */
+    private final SudokuConstraint[] constraints;
+    /**
+     * Pour chaque case du puzzle, les indices des contraintes qui la surveillent
+     */
+    private final int[][] watchers;
+    /**
+     * Le trail attaché au puzzle, qui indique quelles cases ont été modifiées
+     */
+    private final Trail trail;
+    /**
+     * La méthode appelée après chaque application d'une contrainte, pour pouvoir la loguer
+     */
+    private final Consumer<SudokuConstraint> listener;
+    /**
+     * La file des contraintes à appliquer, sous forme de tampon circulaire
+     */
+    private final int[] queue;
+    /**
+     * Indique pour chaque contrainte si elle est déjà dans la file
+     */
+    private final boolean[] queued;
+    /**
+     * Indique pour chaque contrainte si elle a été résolue, auquel cas elle n'a plus besoin d'être appliquée
+     */
+    private final boolean[] resolved;
+    /**
+     * La position du premier élément de la file
+     */
+    private int head;
+    /**
+     * Le nombre d'éléments dans la file
+     */
+    private int queueSize;
+
+    /**
+     * Constructeur de la classe, qui met toutes les contraintes dans la file
+     * @param constraints Les contraintes à propager
+     * @param trail Le trail attaché au puzzle sur lequel s'appliquent les contraintes
+     * @param listener La méthode appelée après chaque application d'une contrainte
+     */
+    public ConstraintPropagator(ArrayList<SudokuConstraint> constraints, Trail trail, Consumer<SudokuConstraint> listener) {
+        this.constraints = constraints.toArray(new SudokuConstraint[0]);
+        this.trail = trail;
+        this.listener = listener;
+        this.queue = new int[Math.max(1, this.constraints.length)];
+        this.queued = new boolean[this.constraints.length];
+        this.resolved = new boolean[this.constraints.length];
+
+        // on retrouve l'indice de chaque case dans le puzzle
+        IdentityHashMap<Case, Integer> indexes = new IdentityHashMap<>();
+        for (int i = 0; i < trail.getCasesCount(); i++) {
+            indexes.put(trail.getCase(i), i);
+        }
+
+        // on compte puis on remplit les contraintes qui surveillent chaque case
+        int[] counts = new int[trail.getCasesCount()];
+        for (SudokuConstraint constraint : this.constraints) {
+            forEachWatchedCase(constraint, indexes, cell -> counts[cell]++);
+        }
+        this.watchers = new int[trail.getCasesCount()][];
+        for (int i = 0; i < counts.length; i++) {
+            this.watchers[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int k = 0; k < this.constraints.length; k++) {
+            final int constraintIndex = k;
+            forEachWatchedCase(this.constraints[k], indexes, cell -> this.watchers[cell][counts[cell]++] = constraintIndex);
+        }
+
+        // au départ, toutes les contraintes doivent être appliquées
+        for (int k = 0; k < this.constraints.length; k++) {
+            this.enqueue(k);
+        }
+    }
+
+    /**
+     * Parcourt les cases surveillées par une contrainte, en ignorant celles qui n'appartiennent pas au puzzle
+     * @param constraint La contrainte
+     * @param indexes L'indice de chaque case dans le puzzle
+     * @param action L'action à effectuer sur l'indice de chaque case surveillée
+     */
+    private static void forEachWatchedCase(SudokuConstraint constraint, IdentityHashMap<Case, Integer> indexes, IntConsumer action) {
+        Integer cell = indexes.get(constraint.getConstrainedCase());
+        if (cell != null) {
+            action.accept(cell);
+        }
+        for (Case c : constraint.getCasesToCompareTo()) {
+            cell = indexes.get(c);
+            if (cell != null) {
+                action.accept(cell);
+            }
+        }
+    }
+
+    /**
+     * Applique les contraintes de la file jusqu'à ce qu'elle soit vide
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    public boolean propagate() {
+        while (this.queueSize > 0) {
+            int k = this.queue[this.head];
+            this.head = (this.head + 1) % this.queue.length;
+            this.queueSize--;
+            this.queued[k] = false;
+            if (this.resolved[k]) continue;
+
+            SudokuConstraint constraint = this.constraints[k];
+            int mark = this.trail.mark();
+            boolean valid = constraint.setNewPossibleValues();
+            this.listener.accept(constraint);
+            if (!valid) {
+                return false;
+            }
+            // une contrainte résolue n'a plus rien à enlever, on ne l'applique plus
+            if (constraint.hasBeenResolved()) {
+                this.resolved[k] = true;
+            }
+            // on réveille les contraintes qui surveillent les cases modifiées, sauf celle qui vient de s'appliquer
+            this.notifyChanges(mark, k);
+        }
+        return true;
+    }
+
+    /**
+     * Remet dans la file les contraintes qui surveillent les cases modifiées depuis une position du trail,
+     * à appeler quand le puzzle a été modifié autrement que par les contraintes du moteur
+     * @param mark La position du trail à partir de laquelle les modifications n'ont pas été vues par le moteur
+     */
+    public void notifyChanges(int mark) {
+        this.notifyChanges(mark, -1);
+    }
+
+    /**
+     * Remet dans la file les contraintes qui surveillent les cases modifiées depuis une position du trail
+     * @param mark La position du trail à partir de laquelle les modifications n'ont pas été vues par le moteur
+     * @param source L'indice de la contrainte qui a fait les modifications, qui n'est pas remise dans la file, ou -1
+     */
+    private void notifyChanges(int mark, int source) {
+        for (int entry = mark; entry < this.trail.mark(); entry++) {
+            for (int k : this.watchers[this.trail.getEntryCase(entry)]) {
+                if (k != source) {
+                    this.enqueue(k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ajoute une contrainte à la fin de la file, si elle n'y est pas déjà et qu'elle n'a pas été résolue
+     * @param k L'indice de la contrainte
+     */
+    private void enqueue(int k) {
+        if (this.queued[k] || this.resolved[k]) return;
+        this.queued[k] = true;
+        this.queue[(this.head + this.queueSize) % this.queue.length] = k;
+        this.queueSize++;
+    }
+
+    /**
+     * Indique si toutes les contraintes ont été résolues, c'est-à-dire si toutes les cases contraintes ont une valeur
+     * @return Si toutes les contraintes ont été résolues
+     */
+    public boolean allResolved() {
+        for (SudokuConstraint constraint : this.constraints) {
+            if (!constraint.hasBeenResolved()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,583 @@
+package Operations;
+
+import Constraints.*;
+import Grids.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Un solveur qui traduit un puzzle en problème de couverture exacte et le résout avec l'algorithme X de Knuth, implémenté par les liens dansants.
+ * Chaque ligne de la matrice correspond à une valeur placée sur une position de la grille, et chaque colonne à une exigence :
+ * la position a une valeur, ou une ligne, une colonne ou un bloc d'un sudoku contient une valeur donnée.
+ * Dans un multidoku, les cases superposées forment une seule position, qui couvre les exigences de tous les sudokus auxquels elle appartient.
+ * Les contraintes supplémentaires ne se traduisent pas en couverture exacte : quand il ne reste plus qu'une position sans valeur dans une contrainte,
+ * on retire de la matrice les lignes de cette position qui la violeraient, et la recherche n'énumère donc jamais les grilles qui l'ignorent
+ */
+public class DancingLinks {
+    /**
+     * Les cases du puzzle, dans l'ordre de la méthode casesList
+     */
+    private final ArrayList<Case> cases;
+    /**
+     * Les contraintes supplémentaires à vérifier sur chaque solution
+     */
+    private final ArrayList<SudokuConstraint> constraints;
+    /**
+     * Pour chaque position de la grille, les indices dans constraints des contraintes qui portent sur une de ses cases
+     */
+    private int[][] positionConstraints;
+    /**
+     * Pour chaque contrainte, les positions de ses cases, ou null si une de ses cases n'est pas dans le puzzle
+     */
+    private int[][] constraintPositions;
+    /**
+     * Pour chaque contrainte, le nombre de ses positions qui n'ont pas encore de valeur choisie
+     */
+    private int[] remainingPositions;
+    /**
+     * Le nombre de positions qui ont au moins une contrainte
+     */
+    private int constrainedPositionsCount;
+    /**
+     * Les premiers nœuds des lignes retirées parce qu'elles violeraient une contrainte, dans l'ordre de leur retrait
+     */
+    private int[] hiddenRows;
+    /**
+     * Le nombre de lignes retirées par les contraintes
+     */
+    private int hiddenCount;
+    /**
+     * Pour chaque position choisie, le nombre de lignes retirées par les contraintes avant qu'elle soit choisie
+     */
+    private int[] hiddenMarks;
+    /**
+     * Les contraintes dont une case n'est pas dans le puzzle, qui ne peuvent être vérifiées que sur une solution complète
+     */
+    private final ArrayList<SudokuConstraint> unplacedConstraints;
+    /**
+     * Pour chaque position de la grille, les indices des cases qui s'y trouvent
+     */
+    private final int[][] positions;
+    /**
+     * Le lien vers la gauche de chaque nœud, l'en-tête de la matrice étant le nœud 0 et les en-têtes des colonnes les suivants
+     */
+    private final int[] left;
+    /**
+     * Le lien vers la droite de chaque nœud
+     */
+    private final int[] right;
+    /**
+     * Le lien vers le haut de chaque nœud
+     */
+    private final int[] up;
+    /**
+     * Le lien vers le bas de chaque nœud
+     */
+    private final int[] down;
+    /**
+     * La colonne de chaque nœud
+     */
+    private final int[] column;
+    /**
+     * La ligne de la matrice de chaque nœud
+     */
+    private final int[] row;
+    /**
+     * Le nombre de nœuds encore présents dans chaque colonne
+     */
+    private final int[] columnSize;
+    /**
+     * Le nombre de nœuds créés
+     */
+    private int nodesCount;
+    /**
+     * La position de la grille de chaque ligne de la matrice
+     */
+    private final int[] rowPosition;
+    /**
+     * La valeur de chaque ligne de la matrice
+     */
+    private final int[] rowValue;
+    /**
+     * Le nombre de lignes de la matrice
+     */
+    private int rowsCount;
+    /**
+     * Les lignes choisies dans la solution en cours de construction
+     */
+    private final int[] chosenRows;
+    /**
+     * La valeur de chaque case dans la première solution trouvée, ou null s'il n'y en a pas encore
+     */
+    private int[] solution;
+    /**
+     * L'ordre dans lequel les positions de la première solution ont été choisies
+     */
+    private int[] solutionOrder;
+    /**
+     * Les statistiques dans lesquelles compter les nœuds visités et les lignes essayées, ou null pour ne rien compter
+     */
+    private SolverStatistics statistics;
+
+    /**
+     * Constructeur de la classe, qui construit la matrice de couverture exacte à partir des valeurs encore possibles de chaque case
+     * @param puzzle Le puzzle à résoudre, qui n'est jamais modifié
+     * @param constraints Les contraintes supplémentaires à vérifier sur chaque solution, en plus de celles ajoutées aux sudokus du puzzle
+     * @throws IllegalArgumentException Si le puzzle n'est pas d'un genre connu
+     */
+    public DancingLinks(Puzzle puzzle, ArrayList<SudokuConstraint> constraints) throws IllegalArgumentException {
+        this.cases = puzzle.casesList();
+        this.constraints = new ArrayList<>();
+        if (constraints != null) {
+            this.constraints.addAll(constraints);
+        }
+        if (puzzle instanceof Sudoku) {
+            this.constraints.addAll(((Sudoku) puzzle).getAddedConstraints());
+        }
+        else if (puzzle instanceof Multidoku) {
+            for (PlacedSudoku placedSudoku : ((Multidoku) puzzle).getSudokus()) {
+                this.constraints.addAll(placedSudoku.sudoku().getAddedConstraints());
+            }
+        }
+        else {
+            throw new IllegalArgumentException("Le puzzle n'est pas d'un genre connu");
+        }
+
+        // on regroupe les cases superposées en une seule position
+        PeerIndex index = puzzle.peerIndex();
+        ArrayList<int[]> positionsList = new ArrayList<>();
+        boolean[] placed = new boolean[this.cases.size()];
+        for (int i = 0; i < this.cases.size(); i++) {
+            if (placed[i]) continue;
+            int[] links = index.getLinks(i);
+            int[] position = new int[links.length + 1];
+            position[0] = i;
+            System.arraycopy(links, 0, position, 1, links.length);
+            for (int cell : position) {
+                placed[cell] = true;
+            }
+            positionsList.add(position);
+        }
+        this.positions = positionsList.toArray(new int[0][]);
+        this.chosenRows = new int[this.positions.length];
+        this.unplacedConstraints = new ArrayList<>();
+        this.indexConstraints();
+
+        // une colonne par position, puis une colonne par unité et par valeur
+        int size = index.getLines()[0].length;
+        int linesCount = index.getLines().length;
+        int columnsCount = index.getColumns().length;
+        int unitColumnsStart = 1 + this.positions.length;
+        int headersCount = unitColumnsStart + (linesCount + columnsCount + index.getBlocs().length) * size;
+        this.columnSize = new int[headersCount];
+        // chaque ligne a un nœud pour sa position et trois pour chacune de ses cases
+        int capacity = headersCount + size * (this.positions.length + 3 * this.cases.size());
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.up = new int[capacity];
+        this.down = new int[capacity];
+        this.column = new int[capacity];
+        this.row = new int[capacity];
+        for (int h = 0; h < headersCount; h++) {
+            this.left[h] = (h == 0) ? headersCount - 1 : h - 1;
+            this.right[h] = (h == headersCount - 1) ? 0 : h + 1;
+            this.up[h] = h;
+            this.down[h] = h;
+            this.column[h] = h;
+        }
+        this.nodesCount = headersCount;
+        this.rowPosition = new int[this.positions.length * size];
+        this.rowValue = new int[this.positions.length * size];
+
+        // une ligne par position et par valeur encore possible dans toutes ses cases
+        for (int p = 0; p < this.positions.length; p++) {
+            for (int value = 0; value < size; value++) {
+                boolean possible = true;
+                for (int cell : this.positions[p]) {
+                    if (!this.cases.get(cell).isPossibleValue(value)) {
+                        possible = false;
+                        break;
+                    }
+                }
+                if (!possible) continue;
+
+                int first = this.addNode(1 + p, this.rowsCount, -1);
+                for (int cell : this.positions[p]) {
+                    this.addNode(unitColumnsStart + index.getLineOf(cell) * size + value, this.rowsCount, first);
+                    this.addNode(unitColumnsStart + (linesCount + index.getColumnOf(cell)) * size + value, this.rowsCount, first);
+                    this.addNode(unitColumnsStart + (linesCount + columnsCount + index.getBlocOf(cell)) * size + value, this.rowsCount, first);
+                }
+                this.rowPosition[this.rowsCount] = p;
+                this.rowValue[this.rowsCount] = value;
+                this.rowsCount++;
+            }
+        }
+        this.hiddenRows = new int[this.rowsCount];
+        this.hiddenCount = 0;
+        this.hiddenMarks = new int[this.positions.length];
+    }
+
+    /**
+     * Relie chaque contrainte supplémentaire aux positions de ses cases, pour pouvoir la vérifier dès que la dernière a une valeur choisie
+     */
+    private void indexConstraints() {
+        IdentityHashMap<Case, Integer> positionOf = new IdentityHashMap<>();
+        for (int p = 0; p < this.positions.length; p++) {
+            for (int cell : this.positions[p]) {
+                positionOf.put(this.cases.get(cell), p);
+            }
+        }
+        int[] counts = new int[this.positions.length];
+        this.constraintPositions = new int[this.constraints.size()][];
+        this.remainingPositions = new int[this.constraints.size()];
+        for (int k = 0; k < this.constraints.size(); k++) {
+            SudokuConstraint constraint = this.constraints.get(k);
+            ArrayList<Case> constrained = new ArrayList<>(constraint.getCasesToCompareTo());
+            constrained.add(constraint.getConstrainedCase());
+            int[] list = new int[constrained.size()];
+            int count = 0;
+            for (Case c : constrained) {
+                Integer p = positionOf.get(c);
+                if (p == null) {
+                    count = -1;
+                    break;
+                }
+                // on ne compte qu'une fois une position qui revient dans la contrainte
+                boolean seen = false;
+                for (int j = 0; j < count; j++) {
+                    if (list[j] == p) {
+                        seen = true;
+                        break;
+                    }
+                }
+                if (!seen) {
+                    list[count++] = p;
+                }
+            }
+            if (count == -1) {
+                this.unplacedConstraints.add(constraint);
+                continue;
+            }
+            this.constraintPositions[k] = Arrays.copyOf(list, count);
+            this.remainingPositions[k] = count;
+            for (int p : this.constraintPositions[k]) {
+                counts[p]++;
+            }
+        }
+        this.positionConstraints = new int[this.positions.length][];
+        for (int p = 0; p < this.positions.length; p++) {
+            this.positionConstraints[p] = new int[counts[p]];
+            if (counts[p] > 0) {
+                this.constrainedPositionsCount++;
+            }
+            counts[p] = 0;
+        }
+        for (int k = 0; k < this.constraints.size(); k++) {
+            if (this.constraintPositions[k] == null) continue;
+            for (int p : this.constraintPositions[k]) {
+                this.positionConstraints[p][counts[p]++] = k;
+            }
+        }
+    }
+
+    /**
+     * Ajoute un nœud en bas d'une colonne et à la fin d'une ligne de la matrice
+     * @param c La colonne du nœud
+     * @param r La ligne de la matrice du nœud
+     * @param first Le premier nœud de la ligne, ou -1 si le nœud est le premier
+     * @return Le nœud créé
+     */
+    private int addNode(int c, int r, int first) {
+        int node = this.nodesCount++;
+        this.column[node] = c;
+        this.row[node] = r;
+        this.up[node] = this.up[c];
+        this.down[node] = c;
+        this.down[this.up[c]] = node;
+        this.up[c] = node;
+        this.columnSize[c]++;
+        if (first == -1) {
+            this.left[node] = node;
+            this.right[node] = node;
+        }
+        else {
+            this.left[node] = this.left[first];
+            this.right[node] = first;
+            this.right[this.left[first]] = node;
+            this.left[first] = node;
+        }
+        return node;
+    }
+
+    /**
+     * Cherche les solutions du puzzle, en gardant la première trouvée
+     * @param limit Le nombre de solutions à partir duquel on arrête de chercher, ou 0 pour toutes les compter
+     * @return Le nombre de solutions trouvées, qui ne dépasse pas la limite
+     */
+    public int solve(int limit) {
+        return this.search(0, limit, 0);
+    }
+
+    /**
+     * Donne les statistiques dans lesquelles compter les nœuds visités et les lignes essayées
+     * @param statistics Les statistiques, ou null pour ne rien compter
+     */
+    void setStatistics(SolverStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Applique récursivement l'algorithme X sur la matrice
+     * @param depth Le nombre de lignes déjà choisies
+     * @param limit Le nombre de solutions à partir duquel on arrête de chercher, ou 0 pour toutes les compter
+     * @param found Le nombre de solutions déjà trouvées
+     * @return Le nombre total de solutions trouvées
+     */
+    private int search(int depth, int limit, int found) {
+        if (this.statistics != null) {
+            this.statistics.countNode(depth);
+        }
+        // si toutes les colonnes sont couvertes, on a une solution
+        if (this.right[0] == 0) {
+            return this.acceptSolution(depth) ? found + 1 : found;
+        }
+
+        // on choisit la colonne qui a le moins de nœuds
+        int c = this.right[0];
+        for (int h = this.right[c]; h != 0; h = this.right[h]) {
+            if (this.columnSize[h] < this.columnSize[c]) {
+                c = h;
+            }
+        }
+        if (this.columnSize[c] == 0) {
+            return found;
+        }
+        // sauf si elle est forcée, on lui préfère la position d'une contrainte qui a le moins de nœuds, pour vérifier les contraintes le plus tôt possible
+        if (this.columnSize[c] > 1 && this.constrainedPositionsCount > 0) {
+            int best = -1;
+            for (int h = this.right[0]; h != 0 && h <= this.positions.length; h = this.right[h]) {
+                if (this.positionConstraints[h - 1].length > 0 && (best == -1 || this.columnSize[h] < this.columnSize[best])) {
+                    best = h;
+                }
+            }
+            if (best != -1) {
+                c = best;
+            }
+        }
+
+        // on essaie chacune de ses lignes
+        this.cover(c);
+        for (int node = this.down[c]; node != c && (limit == 0 || found < limit); node = this.down[node]) {
+            this.chosenRows[depth] = this.row[node];
+            if (this.statistics != null) {
+                this.statistics.countGuess();
+            }
+            if (!this.placeRow(this.row[node])) {
+                // la ligne viole une contrainte supplémentaire, on ne cherche pas plus loin
+                this.removeRow(this.row[node]);
+                continue;
+            }
+            for (int other = this.right[node]; other != node; other = this.right[other]) {
+                this.cover(this.column[other]);
+            }
+            found = this.search(depth + 1, limit, found);
+            for (int other = this.left[node]; other != node; other = this.left[other]) {
+                this.uncover(this.column[other]);
+            }
+            this.removeRow(this.row[node]);
+        }
+        this.uncover(c);
+        return found;
+    }
+
+    /**
+     * Écrit au crayon à papier la valeur d'une ligne choisie sur les cases de sa position, puis regarde les contraintes supplémentaires de cette position :
+     * celles dont c'était la dernière position sans valeur sont vérifiées, et pour celles dont il ne reste qu'une position sans valeur,
+     * on retire de la matrice les lignes de cette position qui les violeraient
+     * @param r La ligne de la matrice choisie
+     * @return Si aucune contrainte n'est violée
+     */
+    private boolean placeRow(int r) {
+        if (this.constraints.isEmpty()) {
+            return true;
+        }
+        int p = this.rowPosition[r];
+        this.hiddenMarks[p] = this.hiddenCount;
+        for (int cell : this.positions[p]) {
+            this.cases.get(cell).tryTestValue(this.rowValue[r]);
+        }
+        // on décompte toutes les contraintes même après une violation, pour que removeRow les remette toutes
+        boolean valid = true;
+        for (int k : this.positionConstraints[p]) {
+            this.remainingPositions[k]--;
+        }
+        for (int k : this.positionConstraints[p]) {
+            if (this.remainingPositions[k] == 0) {
+                if (!this.constraints.get(k).isConstraintValid()) {
+                    valid = false;
+                    break;
+                }
+            }
+            else if (this.remainingPositions[k] == 1) {
+                this.hideViolatingRows(k, p);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Retire de la matrice les lignes de la dernière position sans valeur d'une contrainte qui la violeraient
+     * @param k L'indice de la contrainte, dont il ne reste qu'une position sans valeur
+     * @param chosen La position qui vient d'être choisie, dont la colonne n'est pas encore couverte
+     */
+    private void hideViolatingRows(int k, int chosen) {
+        SudokuConstraint constraint = this.constraints.get(k);
+        for (int last : this.constraintPositions[k]) {
+            // la position qui reste est la seule autre dont la colonne n'est pas couverte
+            if (last == chosen || this.left[this.right[1 + last]] != 1 + last) continue;
+            int node = this.down[1 + last];
+            while (node != 1 + last) {
+                int next = this.down[node];
+                int r = this.row[node];
+                for (int cell : this.positions[last]) {
+                    this.cases.get(cell).tryTestValue(this.rowValue[r]);
+                }
+                boolean violates = !constraint.isConstraintValid();
+                for (int cell : this.positions[last]) {
+                    this.cases.get(cell).scrapTestValue();
+                }
+                if (violates) {
+                    int j = node;
+                    do {
+                        this.down[this.up[j]] = this.down[j];
+                        this.up[this.down[j]] = this.up[j];
+                        this.columnSize[this.column[j]]--;
+                        j = this.right[j];
+                    } while (j != node);
+                    this.hiddenRows[this.hiddenCount++] = node;
+                }
+                node = next;
+            }
+            return;
+        }
+    }
+
+    /**
+     * Efface la valeur écrite par placeRow sur les cases de la position d'une ligne, et remet les lignes retirées à cause de ce choix, dans l'ordre inverse de leur retrait
+     * @param r La ligne de la matrice retirée
+     */
+    private void removeRow(int r) {
+        if (this.constraints.isEmpty()) {
+            return;
+        }
+        int p = this.rowPosition[r];
+        while (this.hiddenCount > this.hiddenMarks[p]) {
+            int node = this.hiddenRows[--this.hiddenCount];
+            int j = node;
+            do {
+                j = this.left[j];
+                this.columnSize[this.column[j]]++;
+                this.down[this.up[j]] = j;
+                this.up[this.down[j]] = j;
+            } while (j != node);
+        }
+        for (int cell : this.positions[p]) {
+            this.cases.get(cell).scrapTestValue();
+        }
+        for (int k : this.positionConstraints[p]) {
+            this.remainingPositions[k]++;
+        }
+    }
+
+    /**
+     * Retire une colonne de la matrice, ainsi que toutes les lignes qui la couvrent
+     * @param c La colonne à retirer
+     */
+    private void cover(int c) {
+        this.right[this.left[c]] = this.right[c];
+        this.left[this.right[c]] = this.left[c];
+        for (int i = this.down[c]; i != c; i = this.down[i]) {
+            for (int j = this.right[i]; j != i; j = this.right[j]) {
+                this.down[this.up[j]] = this.down[j];
+                this.up[this.down[j]] = this.up[j];
+                this.columnSize[this.column[j]]--;
+            }
+        }
+    }
+
+    /**
+     * Remet une colonne retirée dans la matrice, dans l'ordre inverse de son retrait
+     * @param c La colonne à remettre
+     */
+    private void uncover(int c) {
+        for (int i = this.up[c]; i != c; i = this.up[i]) {
+            for (int j = this.left[i]; j != i; j = this.left[j]) {
+                this.columnSize[this.column[j]]++;
+                this.down[this.up[j]] = j;
+                this.up[this.down[j]] = j;
+            }
+        }
+        this.right[this.left[c]] = c;
+        this.left[this.right[c]] = c;
+    }
+
+    /**
+     * Vérifie les contraintes qui n'ont pas pu l'être pendant la recherche sur une solution de la couverture exacte, et la garde si c'est la première valide.
+     * Les valeurs de la solution sont déjà écrites au crayon à papier par placeRow
+     * @param depth Le nombre de lignes choisies dans la solution
+     * @return Si la solution respecte les contraintes supplémentaires
+     */
+    private boolean acceptSolution(int depth) {
+        boolean valid = true;
+        for (SudokuConstraint constraint : this.unplacedConstraints) {
+            if (!constraint.isConstraintValid()) {
+                valid = false;
+                break;
+            }
+        }
+        if (valid && this.solution == null) {
+            this.solution = new int[this.cases.size()];
+            this.solutionOrder = new int[depth];
+            for (int k = 0; k < depth; k++) {
+                int p = this.rowPosition[this.chosenRows[k]];
+                for (int cell : this.positions[p]) {
+                    this.solution[cell] = this.rowValue[this.chosenRows[k]];
+                }
+                this.solutionOrder[k] = p;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Getter de la première solution trouvée
+     * @return La valeur de chaque case dans l'ordre de la méthode casesList, ou null si aucune solution n'a été trouvée
+     */
+    public int[] getSolution() {
+        return this.solution;
+    }
+
+    /**
+     * Retourne les cases de la première solution trouvée, dans l'ordre où l'algorithme a choisi leurs positions
+     * @return Les indices des cases dans l'ordre de la méthode casesList, ou un tableau vide si aucune solution n'a été trouvée
+     */
+    public int[] getSolutionOrder() {
+        if (this.solutionOrder == null) {
+            return new int[0];
+        }
+        int count = 0;
+        for (int p : this.solutionOrder) {
+            count += this.positions[p].length;
+        }
+        int[] order = new int[count];
+        int k = 0;
+        for (int p : this.solutionOrder) {
+            for (int cell : this.positions[p]) {
+                order[k++] = cell;
+            }
+        }
+        return order;
+    }
+}
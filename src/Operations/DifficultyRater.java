@@ -0,0 +1,228 @@
+package Operations;
+
+import Constraints.*;
+import Grids.*;
+
+import java.util.ArrayList;
+
+/**
+ * Un DifficultyRater évalue la difficulté d'un puzzle comme le ferait un joueur : il le résout en appliquant toujours la technique la moins dure
+ * qui permet d'avancer, et retient la plus dure dont il a eu besoin. Les singletons sont propagés avec le trail comme le fait l'algo sans copie,
+ * puis les règles de déduction sont essayées dans l'ordre, et on ne fait une supposition que si aucune ne permet d'avancer.
+ * L'évaluation travaille sur une copie du puzzle, et un même évaluateur peut être utilisé par plusieurs threads en même temps
+ */
+public class DifficultyRater {
+    /**
+     * Le nom de la technique de niveau 0, où il suffit d'enlever la valeur des cases résolues à leurs voisins
+     */
+    private static final String SINGLES = "singleton nu";
+    /**
+     * Le nom de la technique du niveau le plus haut, où il faut faire des suppositions
+     */
+    private static final String BACKTRACKING = "backtracking";
+    /**
+     * Les règles de déduction, de la moins dure à la plus dure
+     */
+    private final ArrayList<DeductionRule> rules;
+
+    /**
+     * Constructeur de la classe
+     * @param rules Les règles de déduction, de la moins dure à la plus dure
+     * @throws IllegalArgumentException Si la liste des règles est nulle
+     */
+    public DifficultyRater(ArrayList<DeductionRule> rules) throws IllegalArgumentException {
+        if (rules == null) {
+            throw new IllegalArgumentException("La liste des règles ne peut pas être nulle");
+        }
+        this.rules = new ArrayList<>(rules);
+    }
+
+    /**
+     * Constructeur de la classe, qui utilise les règles de déduction par défaut
+     */
+    public DifficultyRater() {
+        this(DeductionRule.defaultRules());
+    }
+
+    /**
+     * Getter du niveau le plus haut, qui correspond au backtracking
+     * @return Le niveau le plus haut
+     */
+    public int getMaxLevel() {
+        return this.rules.size() + 1;
+    }
+
+    /**
+     * Getter du nom de la technique d'un niveau
+     * @param level Le niveau
+     * @return Le nom de la technique
+     * @throws IllegalArgumentException Si le niveau n'existe pas
+     */
+    public String getTechnique(int level) throws IllegalArgumentException {
+        if (level < 0 || level > this.getMaxLevel()) {
+            throw new IllegalArgumentException("Le niveau doit être compris entre 0 et " + this.getMaxLevel());
+        }
+        if (level == 0) {
+            return SINGLES;
+        }
+        if (level == this.getMaxLevel()) {
+            return BACKTRACKING;
+        }
+        return this.rules.get(level - 1).getName();
+    }
+
+    /**
+     * Évalue la difficulté d'un puzzle sans le modifier
+     * @param puzzle Le puzzle à évaluer, dont seules les valeurs visibles sont prises en compte
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return L'évaluation du puzzle
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public DifficultyRating rate(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        // on travaille sur une copie, avec les contraintes supplémentaires et celles ajoutées au puzzle
+        Puzzle newPuzzle = puzzle.copy();
+        ArrayList<SudokuConstraint> constraints = Solver.copyConstraints(newPuzzle, additionalConstraints);
+        constraints.addAll(Solver.addedConstraints(newPuzzle));
+        SolverContext context = new SolverContext();
+        context.setLogging(false);
+
+        Rating rating = new Rating(context, newPuzzle, newPuzzle.peerIndex(), constraints, new Trail(newPuzzle));
+        boolean solved;
+        try {
+            solved = Solver.initialiseWithTrail(context, newPuzzle, rating.index, rating.trail) && this.search(rating, 0);
+        }
+        finally {
+            rating.trail.detach();
+        }
+
+        int level = (rating.branches > 0) ? this.getMaxLevel() : rating.hardest;
+        return new DifficultyRating(solved, level, this.getTechnique(level), rating.steps, rating.branches);
+    }
+
+    /**
+     * Résout le puzzle par déduction, puis fait une supposition sur la case la plus contrainte si on est bloqué
+     * @param rating L'état de l'évaluation
+     * @param from La position dans le trail à partir de laquelle les modifications n'ont pas encore été propagées
+     * @return Si une solution a été trouvée, sinon les modifications faites doivent être annulées par l'appelant
+     */
+    private boolean search(Rating rating, int from) {
+        if (!this.deduce(rating, from)) {
+            return false;
+        }
+
+        // on cherche la case avec le moins de valeurs possibles
+        Case testedCase = null;
+        for (int i = 0; i < rating.trail.getCasesCount(); i++) {
+            Case c = rating.trail.getCase(i);
+            if (!c.hasValue() && (testedCase == null || c.possibleValuesCount() < testedCase.possibleValuesCount())) {
+                testedCase = c;
+            }
+        }
+        if (testedCase == null) {
+            for (SudokuConstraint constraint : rating.constraints) {
+                if (!constraint.isConstraintValid()) return false;
+            }
+            return true;
+        }
+
+        // on est bloqué, on essaye ses valeurs dans l'ordre
+        rating.branches++;
+        for (int value = testedCase.nextPossibleValue(0); value != -1; value = testedCase.nextPossibleValue(value + 1)) {
+            int mark = rating.trail.mark();
+            testedCase.setValue(value);
+            if (this.search(rating, mark)) {
+                return true;
+            }
+            rating.trail.undo(mark);
+        }
+        return false;
+    }
+
+    /**
+     * Propage les singletons, puis applique la règle la moins dure qui permet d'avancer, jusqu'à ce qu'aucune ne change plus rien
+     * @param rating L'état de l'évaluation
+     * @param from La position dans le trail à partir de laquelle les modifications n'ont pas encore été propagées
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    private boolean deduce(Rating rating, int from) {
+        int head = from;
+        while (true) {
+            if (!Solver.propagateWithTrail(rating.context, rating.puzzle, rating.index, rating.constraints, rating.trail, head)) {
+                return false;
+            }
+            head = rating.trail.mark();
+            boolean changed = false;
+            for (int k = 0; k < this.rules.size() && !changed; k++) {
+                if (!this.rules.get(k).apply(rating.index, rating.trail)) {
+                    return false;
+                }
+                if (rating.trail.mark() != head) {
+                    // on recommence par les singletons, puis par la règle la moins dure
+                    rating.steps++;
+                    rating.hardest = Math.max(rating.hardest, k + 1);
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * L'état d'une évaluation, propre à un appel de rate
+     */
+    private static class Rating {
+        /**
+         * Le contexte de la résolution, qui ne logue rien
+         */
+        private final SolverContext context;
+        /**
+         * La copie du puzzle évalué
+         */
+        private final Puzzle puzzle;
+        /**
+         * L'index des voisins du puzzle
+         */
+        private final PeerIndex index;
+        /**
+         * Les contraintes supplémentaires sur la copie du puzzle
+         */
+        private final ArrayList<SudokuConstraint> constraints;
+        /**
+         * Le trail qui suit les cases de la copie du puzzle
+         */
+        private final Trail trail;
+        /**
+         * Le niveau de la règle la plus dure utilisée
+         */
+        private int hardest;
+        /**
+         * Le nombre de fois qu'une règle a enlevé des valeurs possibles
+         */
+        private int steps;
+        /**
+         * Le nombre de suppositions
+         */
+        private int branches;
+
+        /**
+         * Constructeur de la classe
+         * @param context Le contexte de la résolution
+         * @param puzzle La copie du puzzle évalué
+         * @param index L'index des voisins du puzzle
+         * @param constraints Les contraintes supplémentaires sur la copie du puzzle
+         * @param trail Le trail qui suit les cases de la copie du puzzle
+         */
+        private Rating(SolverContext context, Puzzle puzzle, PeerIndex index, ArrayList<SudokuConstraint> constraints, Trail trail) {
+            this.context = context;
+            this.puzzle = puzzle;
+            this.index = index;
+            this.constraints = constraints;
+            this.trail = trail;
+            this.hardest = 0;
+            this.steps = 0;
+            this.branches = 0;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package Operations;
+
+/**
+ * Un record qui contient l'évaluation de la difficulté d'un puzzle par les techniques de déduction nécessaires pour le résoudre
+ * @param solved Si le puzzle a une solution
+ * @param level Le niveau de la technique la plus dure utilisée : 0 pour les singletons, le rang de la règle de déduction à partir de 1, ou le nombre de règles plus 1 pour le backtracking
+ * @param technique Le nom de la technique la plus dure utilisée
+ * @param steps Le nombre de fois qu'une règle de déduction a enlevé des valeurs possibles
+ * @param branches Le nombre de cases sur lesquelles il a fallu faire une supposition
+ */
+public record DifficultyRating(boolean solved, int level, String technique, int steps, int branches) {
+    /**
+     * Constructeur
+     * @param solved Si le puzzle a une solution
+     * @param level Le niveau de la technique la plus dure utilisée
+     * @param technique Le nom de la technique la plus dure utilisée
+     * @param steps Le nombre de fois qu'une règle de déduction a enlevé des valeurs possibles
+     * @param branches Le nombre de cases sur lesquelles il a fallu faire une supposition
+     */
+    public DifficultyRating {
+    }
+
+    /**
+     * Indique si le puzzle a une solution
+     * @return Si le puzzle a une solution
+     */
+    @Override
+    public boolean solved() {
+        return this.solved;
+    }
+
+    /**
+     * Getter du niveau de la technique la plus dure utilisée
+     * @return Le niveau, 0 pour les singletons
+     */
+    @Override
+    public int level() {
+        return this.level;
+    }
+
+    /**
+     * Getter du nom de la technique la plus dure utilisée
+     * @return Le nom de la technique
+     */
+    @Override
+    public String technique() {
+        return this.technique;
+    }
+
+    /**
+     * Getter du nombre de fois qu'une règle de déduction a enlevé des valeurs possibles
+     * @return Le nombre d'étapes
+     */
+    @Override
+    public int steps() {
+        return this.steps;
+    }
+
+    /**
+     * Getter du nombre de cases sur lesquelles il a fallu faire une supposition
+     * @return Le nombre de branchements
+     */
+    @Override
+    public int branches() {
+        return this.branches;
+    }
+
+    /**
+     * Retourne l'évaluation sous forme de texte
+     * @return Le texte
+     */
+    @Override
+    public String toString() {
+        if (!this.solved) {
+            return "sans solution";
+        }
+        return this.technique + " (niveau " + this.level + ", " + this.steps + " étapes, " + this.branches + " suppositions)";
+    }
+}
@@ -0,0 +1,45 @@
+package Operations;
+
+import jdk.jfr.*;
+
+/**
+ * Un événement JFR émis pour chaque lecture ou écriture d'un fichier de puzzles, dont la durée est celle de l'opération
+ */
+@Name("sudoku.File")
+@Label("Fichier de puzzles")
+@Category({"Sudoku", "Fichiers"})
+@Description("Une lecture ou une écriture de fichier de puzzles")
+class FileEvent extends Event {
+    /**
+     * L'opération faite sur le fichier
+     */
+    @Label("Opération")
+    String operation;
+    /**
+     * Le chemin du fichier
+     */
+    @Label("Chemin")
+    String path;
+    /**
+     * La taille du fichier
+     */
+    @Label("Octets")
+    @DataAmount
+    long bytes;
+    /**
+     * L'identifiant du puzzle lu ou écrit, donné par Puzzle.getId, ou 0 pour l'événement qui couvre tout un fichier de plusieurs puzzles,
+     * chacun de ses puzzles ayant alors son propre événement
+     */
+    @Label("Identifiant du puzzle")
+    long puzzleId;
+    /**
+     * La position du puzzle dans le fichier, à partir de 0, ou -1 pour l'événement qui couvre tout un fichier de plusieurs puzzles
+     */
+    @Label("Position dans le fichier")
+    long record;
+    /**
+     * Le nombre de puzzles lus ou écrits
+     */
+    @Label("Puzzles")
+    long puzzles;
+}
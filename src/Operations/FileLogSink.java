@@ -0,0 +1,189 @@
+package Operations;
+
+import Grids.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écrit les logs d'une résolution dans un nouveau fichier de logs pendant la résolution, au lieu de les garder en mémoire.
+ * Les lignes passent par une file de taille fixe vidée par un thread d'écriture : la mémoire utilisée reste la même quelle que soit la longueur de la recherche,
+ * et si le disque ne suit pas, le solveur attend que la file se libère plutôt que de la faire grandir.
+ * Le fichier a le même format que ceux créés par FilesOperations.createNewLogFile, et n'est complet qu'une fois le LogSink fermé
+ */
+public class FileLogSink implements LogSink {
+    /**
+     * Le nombre de lignes que peut contenir la file par défaut
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+    /**
+     * Le nombre maximal de lignes que le thread d'écriture retire de la file d'un coup
+     */
+    private static final int BATCH_SIZE = 1024;
+    /**
+     * La ligne envoyée au thread d'écriture pour lui indiquer la fin des logs, reconnue par son adresse et non par son contenu
+     */
+    private static final String END = new String("end");
+
+    /**
+     * Le nom du fichier de logs, sans extension
+     */
+    private final String filename;
+    /**
+     * Les lignes en attente d'écriture
+     */
+    private final ArrayBlockingQueue<String> queue;
+    /**
+     * Le thread qui écrit les lignes dans le fichier
+     */
+    private final Thread writerThread;
+    /**
+     * L'erreur rencontrée par le thread d'écriture, ou null s'il n'y en a pas eu
+     */
+    private volatile IOException failure;
+    /**
+     * Indique si le LogSink a été fermé
+     */
+    private boolean closed;
+
+    /**
+     * Constructeur de la classe, qui crée le fichier de logs à la date du jour avec une file de taille par défaut
+     * @param algorithm Le nom de l'algorithme qui va créer les logs
+     * @param puzzle Le puzzle sur lequel l'algorithme va être effectué
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws RuntimeException Si le puzzle n'est pas pris en charge
+     */
+    public FileLogSink(String algorithm, Puzzle puzzle) throws IOException, RuntimeException {
+        this(algorithm, puzzle, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructeur de la classe, qui crée le fichier de logs à la date du jour
+     * @param algorithm Le nom de l'algorithme qui va créer les logs
+     * @param puzzle Le puzzle sur lequel l'algorithme va être effectué
+     * @param capacity Le nombre de lignes que peut contenir la file
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws RuntimeException Si le puzzle n'est pas pris en charge ou si la taille de la file n'est pas positive
+     */
+    public FileLogSink(String algorithm, Puzzle puzzle, int capacity) throws IOException, RuntimeException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La taille de la file doit être positive");
+        }
+        StringBuilder name = new StringBuilder();
+        OutputStream output = FilesOperations.newLogFile(name, ".txt");
+        this.filename = name.toString();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.failure = null;
+        this.closed = false;
+
+        // on écrit l'en-tête tout de suite, pour qu'une erreur soit visible dès la création
+        BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(output), 1 << 16);
+        try {
+            FilesOperations.writeLogHeader(bw, algorithm, puzzle);
+        }
+        catch (IOException | RuntimeException e) {
+            bw.close();
+            throw e;
+        }
+
+        this.writerThread = new Thread(() -> this.writeLines(bw), "sudoku-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Envoie une ligne au thread d'écriture, en attendant qu'il y ait de la place dans la file si elle est pleine.
+     * Si le thread d'écriture a rencontré une erreur, la ligne est ignorée et l'erreur sera donnée par close
+     * @param line La ligne de log
+     * @throws RuntimeException Si le LogSink a déjà été fermé, ou si le thread est interrompu pendant l'attente
+     */
+    @Override
+    public void log(String line) throws RuntimeException {
+        if (this.closed) {
+            throw new RuntimeException("Le fichier de logs a déjà été fermé");
+        }
+        this.enqueue(line);
+    }
+
+    /**
+     * Met une ligne dans la file, sans attendre indéfiniment si le thread d'écriture s'est arrêté sur une erreur
+     * @param line La ligne
+     * @throws RuntimeException Si le thread est interrompu pendant l'attente
+     */
+    private void enqueue(String line) throws RuntimeException {
+        try {
+            while (!this.queue.offer(line, 100, TimeUnit.MILLISECONDS)) {
+                if (this.failure != null) {
+                    return;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrompu pendant l'écriture des logs");
+        }
+    }
+
+    /**
+     * La boucle du thread d'écriture, qui vide la file dans le fichier jusqu'à recevoir la fin des logs
+     * @param bw Le fichier de logs, dont l'en-tête a déjà été écrit
+     */
+    private void writeLines(BufferedWriter bw) {
+        ArrayList<String> batch = new ArrayList<>(BATCH_SIZE);
+        try (bw) {
+            boolean end = false;
+            while (!end) {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch, BATCH_SIZE - 1);
+                for (String line : batch) {
+                    if (line == END) {
+                        end = true;
+                        break;
+                    }
+                    bw.append(line).append("\n");
+                }
+                batch.clear();
+            }
+            bw.append("end\n");
+        }
+        catch (IOException e) {
+            this.failure = e;
+        }
+        catch (InterruptedException e) {
+            this.failure = new InterruptedIOException("Le thread d'écriture des logs a été interrompu");
+        }
+    }
+
+    /**
+     * Getter du nom du fichier de logs
+     * @return Le nom du fichier, sans extension, dans le dossier des logs
+     */
+    public String getFilename() {
+        return this.filename;
+    }
+
+    /**
+     * Attend que toutes les lignes soient écrites, termine le fichier et le ferme
+     * @throws IOException S'il y a eu une erreur lors de l'écriture dans le fichier
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.enqueue(END);
+        try {
+            this.writerThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrompu pendant la fermeture du fichier de logs");
+        }
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+}
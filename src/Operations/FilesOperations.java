@@ -4,14 +4,26 @@ import Constraints.*;
 import Grids.*;
 
 import java.io.*;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * Une classe qui procure des méthodes pour gérer le stockage des puzzles dans des fichiers
  */
 public abstract class FilesOperations {
+    /**
+     * Les caractères utilisés par défaut pour les valeurs dans les fichiers d'un sudoku par ligne, le premier pour la valeur 1
+     */
+    public static final String DEFAULT_LINE_ALPHABET = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
     /**
      * Prend un sudoku en entrée et le stocke dans un fichier
      * @param sudoku Le sudoku à stocker
@@ -22,6 +34,8 @@ public abstract class FilesOperations {
     public static void convertSudokuToFile(Sudoku sudoku, String filename) throws IOException, IllegalArgumentException {
         // ouverture du fichier (ou création s'il n'existait pas)
         String filepath = "./data/sudokus/" + filename + ".txt";
+        FileEvent event = new FileEvent();
+        event.begin();
         FileWriter fw = new FileWriter(filepath);
         BufferedWriter bw = new BufferedWriter(fw);
 
@@ -32,6 +46,7 @@ public abstract class FilesOperations {
         bw.flush();
         bw.close();
         fw.close();
+        endFileEvent(event, "écriture sudoku", filepath, sudoku, 1);
     }
 
     /**
@@ -45,6 +60,8 @@ public abstract class FilesOperations {
 
         // ouverture du fichier (ou création s'il n'existait pas)
         String filepath = "./data/multidokus/" + filename + ".txt";
+        FileEvent event = new FileEvent();
+        event.begin();
         FileWriter fw = new FileWriter(filepath);
         BufferedWriter bw = new BufferedWriter(fw);
 
@@ -80,6 +97,7 @@ public abstract class FilesOperations {
         bw.flush();
         bw.close();
         fw.close();
+        endFileEvent(event, "écriture multidoku", filepath, multidoku, 1);
     }
 
     /**
@@ -145,6 +163,8 @@ public abstract class FilesOperations {
     public static Sudoku readSudokuFromFile(String filename) throws IOException, IllegalArgumentException {
         // ouverture du fichier
         String filepath = "./data/sudokus/" + filename + ".txt";
+        FileEvent event = new FileEvent();
+        event.begin();
         FileReader fr = new FileReader(filepath);
         BufferedReader br = new BufferedReader(fr);
 
@@ -161,6 +181,7 @@ public abstract class FilesOperations {
         // fermeture du fichier
         br.close();
         fr.close();
+        endFileEvent(event, "lecture sudoku", filepath, sudoku, 1);
         return sudoku;
     }
 
@@ -174,6 +195,8 @@ public abstract class FilesOperations {
     public static Multidoku readMultidokuFromFile(String filename) throws IOException, RuntimeException {
         // ouverture du fichier
         String filepath = "./data/multidokus/" + filename + ".txt";
+        FileEvent event = new FileEvent();
+        event.begin();
         FileReader fr = new FileReader(filepath);
         BufferedReader br = new BufferedReader(fr);
 
@@ -233,6 +256,7 @@ public abstract class FilesOperations {
         // fermeture du fichier
         br.close();
         fr.close();
+        endFileEvent(event, "lecture multidoku", filepath, multidoku, 1);
         return multidoku;
     }
 
@@ -363,6 +387,228 @@ public abstract class FilesOperations {
         return null;
     }
 
+    /**
+     * Lit un fichier où chaque ligne contient un sudoku, sans tout charger en mémoire : les sudokus sont créés au fur et à mesure que le flux est parcouru.
+     * Chaque ligne contient les cases ligne par ligne, avec '.' ou '0' pour une case vide et les caractères "123456789ABC..." pour les valeurs,
+     * et la taille du sudoku est déduite de la longueur de la ligne. Les lignes vides et celles qui commencent par '#' sont ignorées.
+     * Le flux garde le fichier ouvert et doit donc être fermé, par exemple avec un try-with-resources
+     * @param filename Le nom du fichier, sans extension, dans le dossier des sudokus
+     * @return Le flux des sudokus du fichier
+     * @throws IOException S'il y a une erreur lors de l'ouverture du fichier
+     */
+    public static Stream<Sudoku> readSudokusFromLines(String filename) throws IOException {
+        return readSudokusFromLines(filename, DEFAULT_LINE_ALPHABET);
+    }
+
+    /**
+     * Lit un fichier où chaque ligne contient un sudoku, sans tout charger en mémoire : les sudokus sont créés au fur et à mesure que le flux est parcouru.
+     * Le flux garde le fichier ouvert et doit donc être fermé, par exemple avec un try-with-resources
+     * @param filename Le nom du fichier, sans extension, dans le dossier des sudokus
+     * @param alphabet Les caractères des valeurs, le premier pour la valeur 1, qui ne doivent contenir ni '.' ni '0'
+     * @return Le flux des sudokus du fichier, qui lance une IllegalArgumentException en arrivant sur une ligne invalide
+     * @throws IOException S'il y a une erreur lors de l'ouverture du fichier
+     * @throws IllegalArgumentException Si l'alphabet est invalide
+     */
+    public static Stream<Sudoku> readSudokusFromLines(String filename, String alphabet) throws IOException, IllegalArgumentException {
+        int[] table = lineAlphabetTable(alphabet);
+        String filepath = "./data/sudokus/" + filename + ".sdm";
+        // l'événement JFR couvre tout le parcours du flux, jusqu'à sa fermeture
+        FileEvent event = new FileEvent();
+        event.begin();
+        long[] count = new long[1];
+        return Files.lines(Path.of(filepath))
+                .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                .map(line -> {
+                    FileEvent record = new FileEvent();
+                    record.begin();
+                    Sudoku sudoku = parseSudokuLine(line.strip(), table);
+                    endRecordEvent(record, "lecture sudoku par ligne", filepath, sudoku, count[0], line.length() + 1);
+                    count[0]++;
+                    return sudoku;
+                })
+                .onClose(() -> endFileEvent(event, "lecture sudokus par ligne", filepath, null, count[0]));
+    }
+
+    /**
+     * Crée un sudoku à partir d'une ligne
+     * @param line La ligne, avec '.' ou '0' pour une case vide et les caractères de l'alphabet pour les valeurs
+     * @param alphabet Les caractères des valeurs, le premier pour la valeur 1, qui ne doivent contenir ni '.' ni '0'
+     * @return Le sudoku, avec les blocs par défaut
+     * @throws IllegalArgumentException Si l'alphabet ou la ligne sont invalides
+     */
+    public static Sudoku parseSudokuLine(String line, String alphabet) throws IllegalArgumentException {
+        return parseSudokuLine(line, lineAlphabetTable(alphabet));
+    }
+
+    /**
+     * Crée un sudoku à partir d'une ligne
+     * @param line La ligne
+     * @param table La valeur de chaque caractère, calculée par lineAlphabetTable
+     * @return Le sudoku, avec les blocs par défaut
+     * @throws IllegalArgumentException Si la ligne est invalide
+     */
+    private static Sudoku parseSudokuLine(String line, int[] table) throws IllegalArgumentException {
+        int size = (int) Math.round(Math.sqrt(line.length()));
+        if (size == 0 || size * size != line.length()) {
+            throw new IllegalArgumentException("La ligne \"" + line + "\" n'a pas un nombre carré de cases");
+        }
+        Sudoku sudoku = new Sudoku(size, null);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                char c = line.charAt(i * size + j);
+                int value = (c < table.length) ? table[c] : -2;
+                if (value == -2 || value >= size) {
+                    throw new IllegalArgumentException("Le caractère '" + c + "' n'est pas une valeur d'un sudoku de taille " + size);
+                }
+                if (value != -1) {
+                    sudoku.getCase(i, j).setValue(value);
+                }
+            }
+        }
+        return sudoku;
+    }
+
+    /**
+     * Écrit un sudoku sur une ligne, avec '.' pour une case vide
+     * @param sudoku Le sudoku, dont seules les valeurs visibles sont écrites
+     * @param alphabet Les caractères des valeurs, le premier pour la valeur 1
+     * @return La ligne
+     * @throws IllegalArgumentException Si l'alphabet est trop court, ou si le sudoku n'a pas les blocs par défaut ou a des contraintes ajoutées, car la ligne ne peut pas les contenir
+     */
+    public static String formatSudokuLine(Sudoku sudoku, String alphabet) throws IllegalArgumentException {
+        int size = sudoku.getSize();
+        if (alphabet.length() < size) {
+            throw new IllegalArgumentException("L'alphabet doit avoir au moins " + size + " caractères");
+        }
+        if (!sudoku.getAddedConstraints().isEmpty()) {
+            throw new IllegalArgumentException("Un sudoku avec des contraintes ajoutées ne peut pas être écrit sur une ligne");
+        }
+        // une copie n'est plus marquée comme utilisant les blocs par défaut, on compare donc directement les blocs
+        int width = IsomorphGenerator.blocWidth(size);
+        int height = size / width;
+        char[] line = new char[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (sudoku.getCase(i, j).getBlocIndex() != ((i / height) * height) + (j / width)) {
+                    throw new IllegalArgumentException("Seul un sudoku avec les blocs par défaut peut être écrit sur une ligne");
+                }
+                int value = sudoku.getCase(i, j).getValue();
+                line[i * size + j] = (value == -1) ? '.' : alphabet.charAt(value);
+            }
+        }
+        return new String(line);
+    }
+
+    /**
+     * Écrit des sudokus dans un fichier, un par ligne, au fur et à mesure que le flux est parcouru
+     * @param sudokus Les sudokus à écrire
+     * @param filename Le nom du fichier, sans extension, dans le dossier des sudokus
+     * @return Le nombre de sudokus écrits
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws IllegalArgumentException Si un sudoku ne peut pas être écrit sur une ligne
+     */
+    public static long writeSudokusToLines(Stream<Sudoku> sudokus, String filename) throws IOException, IllegalArgumentException {
+        return writeSudokusToLines(sudokus, filename, DEFAULT_LINE_ALPHABET);
+    }
+
+    /**
+     * Écrit des sudokus dans un fichier, un par ligne, au fur et à mesure que le flux est parcouru
+     * @param sudokus Les sudokus à écrire
+     * @param filename Le nom du fichier, sans extension, dans le dossier des sudokus
+     * @param alphabet Les caractères des valeurs, le premier pour la valeur 1, qui ne doivent contenir ni '.' ni '0'
+     * @return Le nombre de sudokus écrits
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws IllegalArgumentException Si l'alphabet est invalide ou si un sudoku ne peut pas être écrit sur une ligne
+     */
+    public static long writeSudokusToLines(Stream<Sudoku> sudokus, String filename, String alphabet) throws IOException, IllegalArgumentException {
+        lineAlphabetTable(alphabet);
+        String filepath = "./data/sudokus/" + filename + ".sdm";
+        FileEvent event = new FileEvent();
+        event.begin();
+        long count = 0;
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filepath), 1 << 16)) {
+            Iterator<Sudoku> iterator = sudokus.iterator();
+            while (iterator.hasNext()) {
+                FileEvent record = new FileEvent();
+                record.begin();
+                Sudoku sudoku = iterator.next();
+                String line = formatSudokuLine(sudoku, alphabet);
+                bw.append(line).append("\n");
+                endRecordEvent(record, "écriture sudoku par ligne", filepath, sudoku, count, line.length() + 1);
+                count++;
+            }
+        }
+        endFileEvent(event, "écriture sudokus par ligne", filepath, null, count);
+        return count;
+    }
+
+    /**
+     * Calcule la valeur de chaque caractère d'un alphabet, pour lire les lignes sans chercher chaque caractère dans l'alphabet
+     * @param alphabet Les caractères des valeurs, le premier pour la valeur 1
+     * @return Un tableau indexé par caractère, qui contient la valeur du caractère, -1 pour une case vide ou -2 pour un caractère invalide
+     * @throws IllegalArgumentException Si l'alphabet contient '.', '0' ou deux fois le même caractère
+     */
+    private static int[] lineAlphabetTable(String alphabet) throws IllegalArgumentException {
+        int length = Math.max('0', '.') + 1;
+        for (int k = 0; k < alphabet.length(); k++) {
+            length = Math.max(length, alphabet.charAt(k) + 1);
+        }
+        int[] table = new int[length];
+        Arrays.fill(table, -2);
+        table['.'] = -1;
+        table['0'] = -1;
+        for (int k = 0; k < alphabet.length(); k++) {
+            if (table[alphabet.charAt(k)] != -2) {
+                throw new IllegalArgumentException("Le caractère '" + alphabet.charAt(k) + "' ne peut pas être utilisé dans l'alphabet");
+            }
+            table[alphabet.charAt(k)] = k;
+        }
+        return table;
+    }
+
+    /**
+     * Termine l'événement JFR de la lecture ou de l'écriture d'un fichier, et ne remplit ses champs que s'il est enregistré
+     * @param event L'événement commencé avant d'ouvrir le fichier
+     * @param operation L'opération faite sur le fichier
+     * @param filepath Le chemin du fichier
+     * @param puzzle Le puzzle lu ou écrit, ou null si le fichier en contient plusieurs, qui ont alors chacun leur événement donné par endRecordEvent
+     * @param puzzles Le nombre de puzzles lus ou écrits
+     */
+    static void endFileEvent(FileEvent event, String operation, String filepath, Puzzle puzzle, long puzzles) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.path = filepath;
+            event.bytes = new File(filepath).length();
+            event.puzzleId = (puzzle != null) ? puzzle.getId() : 0;
+            event.record = (puzzle != null) ? 0 : -1;
+            event.puzzles = puzzles;
+            event.commit();
+        }
+    }
+
+    /**
+     * Termine l'événement JFR de la lecture ou de l'écriture d'un seul puzzle dans un fichier qui en contient plusieurs, et ne remplit ses champs que s'il est enregistré
+     * @param event L'événement commencé avant de lire ou d'écrire le puzzle
+     * @param operation L'opération faite sur le puzzle
+     * @param filepath Le chemin du fichier
+     * @param puzzle Le puzzle lu ou écrit
+     * @param record La position du puzzle dans le fichier, à partir de 0
+     * @param bytes Le nombre d'octets du puzzle dans le fichier
+     */
+    static void endRecordEvent(FileEvent event, String operation, String filepath, Puzzle puzzle, long record, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.path = filepath;
+            event.bytes = bytes;
+            event.puzzleId = puzzle.getId();
+            event.record = record;
+            event.puzzles = 1;
+            event.commit();
+        }
+    }
+
     /**
      * Créer un nouveau fichier de logs à la date du jour
      * @param logs La liste de logs à ajouter au fichier
@@ -373,20 +619,60 @@ public abstract class FilesOperations {
      * @throws Exception S'il y a une erreur lors de l'écriture dans le fichier
      */
     public static String createNewLogFile(ArrayList<String> logs, String algorithm, Puzzle puzzle) throws RuntimeException, Exception {
-        // on crée le nom du fichier à partir de la date actuelle
-        LocalDateTime date = java.time.LocalDateTime.now();
-        String filepath = "./data/logs/";
-        StringBuilder filename = new StringBuilder();
-        filename.append(date.getYear()).append("_").append(date.getMonthValue()).append("_").append(date.getDayOfMonth()).append("_").append(date.getHour()).append("_").append(date.getMinute()).append("_").append(date.getSecond());
-        while (new File(filepath + filename + ".txt").isFile()) {
-            filename.append("_bis");
-        }
-        filepath = filepath + filename + ".txt";
-
         // on ouvre le fichier
-        FileWriter fw = new FileWriter(filepath);
+        StringBuilder name = new StringBuilder();
+        OutputStreamWriter fw = new OutputStreamWriter(newLogFile(name, ".txt"));
         BufferedWriter bw = new BufferedWriter(fw);
+        String filename = name.toString();
+
+        // on rajoute le nom de l'algo et la taille du puzzle
+        writeLogHeader(bw, algorithm, puzzle);
+
+        // on rajoute les logs
+        for (String line : logs) {
+            bw.append(line).append("\n");
+        }
+        bw.append("end\n");
+
+        // on ferme le fichier
+        bw.flush();
+        bw.close();
+        fw.close();
+        return filename;
+    }
+
+    /**
+     * Crée un nouveau fichier dans le dossier des logs, sans jamais remplacer un fichier existant : si le nom est déjà pris, même par un fichier
+     * créé au même moment par un autre thread ou un autre programme, la création échoue et on réessaie en ajoutant _bis au nom
+     * @param filename Le début du nom du fichier, sans extension, ou vide pour utiliser la date actuelle. Il contient le nom choisi au retour
+     * @param extension L'extension du fichier, avec son point
+     * @return Le flux d'écriture du fichier créé
+     * @throws IOException S'il y a une erreur lors de la création du fichier
+     */
+    static OutputStream newLogFile(StringBuilder filename, String extension) throws IOException {
+        if (filename.length() == 0) {
+            LocalDateTime date = java.time.LocalDateTime.now();
+            filename.append(date.getYear()).append("_").append(date.getMonthValue()).append("_").append(date.getDayOfMonth()).append("_").append(date.getHour()).append("_").append(date.getMinute()).append("_").append(date.getSecond());
+        }
+        while (true) {
+            try {
+                return Files.newOutputStream(Path.of("./data/logs/" + filename + extension), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            catch (FileAlreadyExistsException e) {
+                filename.append("_bis");
+            }
+        }
+    }
 
+    /**
+     * Écrit le début d'un fichier de logs, jusqu'à la ligne qui annonce les logs
+     * @param bw Le fichier de logs
+     * @param algorithm Le nom de l'algorithme utilisé qui a créé les logs
+     * @param puzzle Le puzzle sur lequel l'algorithme a été effectué
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws RuntimeException Si le puzzle n'est pas pris en charge
+     */
+    static void writeLogHeader(BufferedWriter bw, String algorithm, Puzzle puzzle) throws IOException, RuntimeException {
         // on rajoute le nom de l'algo
         bw.append("algorithm:\n").append(algorithm).append("\n");
 
@@ -407,19 +693,75 @@ public abstract class FilesOperations {
         else {
             throw new RuntimeException("Type de puzzle inconnu");
         }
-
-        // on rajoute les logs
         bw.append("logs:\n");
-        for (String line : logs) {
-            bw.append(line).append("\n");
+    }
+
+    /**
+     * Convertit un fichier de logs en trace binaire du même nom, lisible par TraceReplayer, sans garder les logs en mémoire.
+     * Une trace existante n'est jamais remplacée : s'il y en a déjà une de ce nom, on ajoute _bis au nom de la nouvelle.
+     * Le fichier de logs ne contenant pas les valeurs du puzzle de départ, la trace part d'une grille vide
+     * @param filename Le nom du fichier de logs
+     * @return Le nom de la trace créée, sans extension
+     * @throws IOException S'il y a une erreur lors de la lecture ou de l'écriture des fichiers
+     * @throws RuntimeException Si le fichier de logs n'est pas au bon format
+     */
+    public static String convertLogFileToTrace(String filename) throws IOException, RuntimeException {
+        String filepath = "./data/logs/" + filename + ".txt";
+        try (BufferedReader br = new BufferedReader(new FileReader(filepath), 1 << 16)) {
+            // on lit l'en-tête pour connaître la taille de la grille
+            readField(br, "algorithm:");
+            String algorithm = br.readLine();
+            readField(br, "puzzleType:");
+            String puzzleType = br.readLine();
+            int gridSize;
+            switch (puzzleType) {
+                case "sudoku":
+                    readField(br, "size:");
+                    gridSize = Integer.parseInt(br.readLine());
+                    break;
+                case "multidoku":
+                    readField(br, "sudokusSize:");
+                    int sudokusSize = Integer.parseInt(br.readLine());
+                    readField(br, "sudokusCount:");
+                    int sudokusCount = Integer.parseInt(br.readLine());
+                    gridSize = 0;
+                    for (int i = 0; i < sudokusCount; i++) {
+                        readField(br, "sudokuLine:");
+                        gridSize = Math.max(gridSize, Integer.parseInt(br.readLine()) - 1 + sudokusSize);
+                        readField(br, "sudokuColumn:");
+                        gridSize = Math.max(gridSize, Integer.parseInt(br.readLine()) - 1 + sudokusSize);
+                    }
+                    break;
+                default:
+                    throw new RuntimeException("Type de puzzle inconnu");
+            }
+            readField(br, "logs:");
+
+            // on écrit les logs un par un dans la trace
+            try (TraceLogSink trace = new TraceLogSink(filename, algorithm, gridSize, new int[gridSize * gridSize], TraceLogSink.DEFAULT_KEYFRAME_INTERVAL)) {
+                String line;
+                while (!(line = br.readLine()).equals("end")) {
+                    trace.log(line);
+                }
+                return trace.getFilename();
+            }
         }
-        bw.append("end\n");
+        catch (NumberFormatException | NullPointerException e) {
+            throw new RuntimeException("Le fichier de logs n'est pas au bon format");
+        }
+    }
 
-        // on ferme le fichier
-        bw.flush();
-        bw.close();
-        fw.close();
-        return filename.toString();
+    /**
+     * Lit le nom d'un champ d'un fichier de logs
+     * @param br Le fichier de logs
+     * @param field Le nom attendu
+     * @throws IOException S'il y a une erreur lors de la lecture du fichier
+     * @throws RuntimeException Si la ligne lue n'est pas le nom attendu
+     */
+    private static void readField(BufferedReader br, String field) throws IOException, RuntimeException {
+        if (!field.equals(br.readLine())) {
+            throw new RuntimeException("Le champ " + field + " est manquant dans le fichier de logs");
+        }
     }
 
     /**
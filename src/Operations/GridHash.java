@@ -0,0 +1,69 @@
+package Operations;
+
+/**
+ * Un record qui contient une empreinte de 128 bits d'une grille, qui permet de la reconnaître sans garder toutes ses valeurs
+ * @param high Les 64 bits de poids fort
+ * @param low Les 64 bits de poids faible
+ */
+public record GridHash(long high, long low) {
+    /**
+     * Constructeur
+     * @param high Les 64 bits de poids fort
+     * @param low Les 64 bits de poids faible
+     */
+    public GridHash {
+    }
+
+    /**
+     * Calcule une empreinte de 128 bits d'une liste de valeurs, avec deux hachages de 64 bits indépendants
+     * @param values Les valeurs
+     * @return L'empreinte
+     */
+    static GridHash of(int[] values) {
+        long high = 0x9E3779B97F4A7C15L ^ values.length;
+        long low = 0xC2B2AE3D27D4EB4FL ^ values.length;
+        for (int value : values) {
+            high = (high ^ value) * 0x100000001B3L;
+            low = Long.rotateLeft(low ^ value, 31) * 0x9E3779B97F4A7C15L;
+        }
+        return new GridHash(mix(high), mix(low));
+    }
+
+    /**
+     * Mélange les bits d'un entier pour que chaque bit du résultat dépende de tous les bits de l'entrée
+     * @param z L'entier
+     * @return L'entier mélangé
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Getter des 64 bits de poids fort
+     * @return Les bits de poids fort
+     */
+    @Override
+    public long high() {
+        return this.high;
+    }
+
+    /**
+     * Getter des 64 bits de poids faible
+     * @return Les bits de poids faible
+     */
+    @Override
+    public long low() {
+        return this.low;
+    }
+
+    /**
+     * Retourne l'empreinte sous forme de 32 chiffres hexadécimaux
+     * @return Le texte
+     */
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", this.high, this.low);
+    }
+}
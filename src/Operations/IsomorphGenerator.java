@@ -0,0 +1,165 @@
+package Operations;
+
+import Grids.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+/**
+ * Un IsomorphGenerator crée de nouveaux puzzles à partir de puzzles existants, en leur appliquant des transformations qui gardent l'unicité de la solution :
+ * échange des valeurs, des lignes d'une même bande, des colonnes d'une même pile, des bandes, des piles, et transposition si les blocs sont carrés.
+ * Le solveur n'est jamais appelé, ce qui permet de créer un très grand nombre de puzzles à partir de quelques puzzles générés normalement.
+ * Seuls les sudokus avec les blocs par défaut et sans contraintes ajoutées peuvent être transformés, et les symboles du sudoku d'origine sont gardés
+ */
+public class IsomorphGenerator {
+    /**
+     * Le générateur de nombres aléatoires qui choisit les transformations
+     */
+    private final RandomGenerator random;
+
+    /**
+     * Constructeur de la classe
+     * @param random Le générateur de nombres aléatoires qui choisit les transformations
+     * @throws IllegalArgumentException Si le générateur est nul
+     */
+    public IsomorphGenerator(RandomGenerator random) throws IllegalArgumentException {
+        if (random == null) {
+            throw new IllegalArgumentException("Le générateur de nombres aléatoires ne peut pas être nul");
+        }
+        this.random = random;
+    }
+
+    /**
+     * Crée un lot de puzzles en transformant tour à tour chacun des puzzles d'origine
+     * @param seeds Les puzzles d'origine
+     * @param count Le nombre de puzzles à créer
+     * @param sink La méthode à laquelle est donné chaque puzzle créé
+     * @throws IllegalArgumentException Si la liste des puzzles d'origine est vide, si le nombre de puzzles est négatif, ou si un puzzle ne peut pas être transformé
+     */
+    public void generate(ArrayList<Sudoku> seeds, int count, Consumer<Sudoku> sink) throws IllegalArgumentException {
+        if (seeds == null || seeds.isEmpty()) {
+            throw new IllegalArgumentException("Il faut au moins un puzzle d'origine");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Le nombre de puzzles ne peut pas être négatif");
+        }
+        for (Sudoku seed : seeds) {
+            checkTransformable(seed);
+        }
+        for (int i = 0; i < count; i++) {
+            sink.accept(this.transform(seeds.get(i % seeds.size())));
+        }
+    }
+
+    /**
+     * Crée un nouveau sudoku en appliquant une transformation aléatoire à un sudoku, sans le modifier
+     * @param sudoku Le sudoku à transformer, dont seules les valeurs visibles sont gardées
+     * @return Le sudoku transformé, qui a les mêmes symboles
+     * @throws IllegalArgumentException Si le sudoku n'a pas les blocs par défaut ou s'il a des contraintes ajoutées
+     */
+    public Sudoku transform(Sudoku sudoku) throws IllegalArgumentException {
+        checkTransformable(sudoku);
+        int size = sudoku.getSize();
+        int width = blocWidth(size);
+        int height = size / width;
+
+        // les lignes sont regroupées en bandes de la hauteur d'un bloc, et les colonnes en piles de la largeur d'un bloc
+        int[] values = this.permutation(size);
+        int[] lines = this.groupedPermutation(width, height);
+        int[] columns = this.groupedPermutation(height, width);
+        boolean transpose = (width == height) && this.random.nextBoolean();
+
+        HashMap<Integer, String> symbols = (sudoku.getSymbols() != null) ? new HashMap<>(sudoku.getSymbols()) : null;
+        Sudoku newSudoku = new Sudoku(size, null, symbols);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int value = sudoku.getCase(lines[i], columns[j]).getValue();
+                if (value != -1) {
+                    if (transpose) {
+                        newSudoku.getCase(j, i).setValue(values[value]);
+                    }
+                    else {
+                        newSudoku.getCase(i, j).setValue(values[value]);
+                    }
+                }
+            }
+        }
+        return newSudoku;
+    }
+
+    /**
+     * Vérifie qu'un sudoku peut être transformé, c'est-à-dire que ses blocs ont la forme par défaut et qu'il n'a pas de contraintes ajoutées,
+     * car elles font référence à des cases précises que les transformations déplaceraient
+     * @param sudoku Le sudoku à vérifier
+     * @throws IllegalArgumentException Si le sudoku ne peut pas être transformé
+     */
+    static void checkTransformable(Sudoku sudoku) throws IllegalArgumentException {
+        if (!sudoku.getAddedConstraints().isEmpty()) {
+            throw new IllegalArgumentException("Un sudoku avec des contraintes ajoutées ne peut pas être transformé");
+        }
+        // une copie n'est plus marquée comme utilisant les blocs par défaut, on compare donc directement les blocs
+        int size = sudoku.getSize();
+        int width = blocWidth(size);
+        int height = size / width;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (sudoku.getCase(i, j).getBlocIndex() != ((i / height) * height) + (j / width)) {
+                    throw new IllegalArgumentException("Seul un sudoku avec les blocs par défaut peut être transformé");
+                }
+            }
+        }
+    }
+
+    /**
+     * Calcule la largeur des blocs par défaut d'un sudoku, comme le fait son constructeur
+     * @param size La taille du sudoku
+     * @return La largeur des blocs
+     */
+    static int blocWidth(int size) {
+        int width = (int) Math.sqrt(size);
+        while (size % width != 0 && width > 1) {
+            width--;
+        }
+        return width;
+    }
+
+    /**
+     * Crée une permutation aléatoire des entiers de 0 à n - 1
+     * @param n Le nombre d'entiers
+     * @return La permutation, où la case i contient l'image de i
+     */
+    private int[] permutation(int n) {
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = this.random.nextInt(0, i + 1);
+            int tmp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = tmp;
+        }
+        return permutation;
+    }
+
+    /**
+     * Crée une permutation aléatoire de lignes ou de colonnes qui garde ensemble celles d'un même groupe :
+     * on permute les groupes entre eux, puis les éléments à l'intérieur de chaque groupe
+     * @param groups Le nombre de groupes
+     * @param groupSize Le nombre d'éléments dans chaque groupe
+     * @return La permutation, où la case i contient l'élément d'origine placé en position i
+     */
+    private int[] groupedPermutation(int groups, int groupSize) {
+        int[] groupOrder = this.permutation(groups);
+        int[] permutation = new int[groups * groupSize];
+        for (int g = 0; g < groups; g++) {
+            int[] inside = this.permutation(groupSize);
+            for (int k = 0; k < groupSize; k++) {
+                permutation[g * groupSize + k] = groupOrder[g] * groupSize + inside[k];
+            }
+        }
+        return permutation;
+    }
+}
@@ -0,0 +1,175 @@
+package Operations;
+
+/**
+ * Un histogramme de durées qui permet d'en calculer les percentiles avec une mémoire fixe, quel que soit le nombre de durées.
+ * Les durées sont rangées dans des intervalles dont la largeur double à chaque puissance de 2,
+ * chacun étant découpé en SUB_BUCKETS parts égales, ce qui garde l'erreur relative sur un percentile en dessous de 1 / SUB_BUCKETS
+ */
+public class LatencyHistogram {
+    /**
+     * Le logarithme en base 2 du nombre de parts dans chaque puissance de 2
+     */
+    private static final int SUB_BITS = 5;
+    /**
+     * Le nombre de parts dans chaque puissance de 2
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * Le nombre de durées dans chaque intervalle
+     */
+    private final long[] counts;
+    /**
+     * Le nombre total de durées
+     */
+    private long count;
+    /**
+     * La somme des durées, en nanosecondes
+     */
+    private long sum;
+    /**
+     * La plus petite durée, en nanosecondes
+     */
+    private long min;
+    /**
+     * La plus grande durée, en nanosecondes
+     */
+    private long max;
+
+    /**
+     * Constructeur de la classe, avec un histogramme vide
+     */
+    public LatencyHistogram() {
+        this.counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+        this.count = 0;
+        this.sum = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+    }
+
+    /**
+     * Ajoute une durée à l'histogramme
+     * @param nanos La durée, en nanosecondes
+     * @throws IllegalArgumentException Si la durée est négative
+     */
+    public void record(long nanos) throws IllegalArgumentException {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Une durée ne peut pas être négative");
+        }
+        this.counts[bucket(nanos)]++;
+        this.count++;
+        this.sum += nanos;
+        this.min = Math.min(this.min, nanos);
+        this.max = Math.max(this.max, nanos);
+    }
+
+    /**
+     * Ajoute toutes les durées d'un autre histogramme à celui-ci
+     * @param other L'histogramme à ajouter
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.count += other.count;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Calcule un percentile des durées
+     * @param percentile Le percentile, entre 0 et 100
+     * @return La durée en dessous de laquelle se trouvent ce pourcentage des durées, en nanosecondes, ou 0 si l'histogramme est vide
+     * @throws IllegalArgumentException Si le percentile n'est pas entre 0 et 100
+     */
+    public long percentile(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Le percentile doit être entre 0 et 100");
+        }
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                // on donne la plus grande durée de l'intervalle, sans dépasser les durées vraiment vues
+                return Math.max(this.min, Math.min(this.max, highestValue(i)));
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Calcule l'intervalle dans lequel est rangée une durée
+     * @param nanos La durée, positive
+     * @return L'indice de l'intervalle
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Calcule la plus grande durée rangée dans un intervalle
+     * @param bucket L'indice de l'intervalle
+     * @return La durée, en nanosecondes
+     */
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Getter du nombre de durées
+     * @return Le nombre de durées
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Getter de la plus petite durée
+     * @return La durée, en nanosecondes, ou 0 si l'histogramme est vide
+     */
+    public long getMin() {
+        return (this.count == 0) ? 0 : this.min;
+    }
+
+    /**
+     * Getter de la plus grande durée
+     * @return La durée, en nanosecondes
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Getter de la durée moyenne
+     * @return La durée, en nanosecondes, ou 0 si l'histogramme est vide
+     */
+    public double getMean() {
+        return (this.count == 0) ? 0 : (double) this.sum / this.count;
+    }
+
+    /**
+     * Retourne les percentiles usuels sur une ligne, en millisecondes
+     * @return Le texte
+     */
+    @Override
+    public String toString() {
+        return String.format("%d durées, moyenne %.3f ms, p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms",
+                this.count, this.getMean() / 1e6, this.percentile(50) / 1e6, this.percentile(90) / 1e6,
+                this.percentile(99) / 1e6, this.percentile(99.9) / 1e6, this.max / 1e6);
+    }
+}
@@ -0,0 +1,45 @@
+package Operations;
+
+import java.util.ArrayList;
+
+/**
+ * Garde les logs d'une résolution en mémoire, dans une liste.
+ * C'est le LogSink par défaut d'un contexte, mais sa taille grandit avec la recherche : pour une longue résolution, il vaut mieux utiliser un FileLogSink
+ */
+public class ListLogSink implements LogSink {
+    /**
+     * Les logs, dans l'ordre où ils ont été ajoutés
+     */
+    private final ArrayList<String> logs;
+
+    /**
+     * Constructeur de la classe, avec une liste vide
+     */
+    public ListLogSink() {
+        this.logs = new ArrayList<>();
+    }
+
+    /**
+     * Rajoute un log à la suite dans la liste
+     * @param line La ligne de log
+     */
+    @Override
+    public void log(String line) {
+        this.logs.addLast(line);
+    }
+
+    /**
+     * Getter des logs
+     * @return La liste des logs, dans l'ordre où ils ont été ajoutés
+     */
+    public ArrayList<String> getLogs() {
+        return this.logs;
+    }
+
+    /**
+     * Ne fait rien, les logs restant disponibles dans la liste
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,21 @@
+package Operations;
+
+import java.io.IOException;
+
+/**
+ * Les classes qui implémentent cette interface reçoivent les logs d'une résolution, ligne par ligne, au fur et à mesure qu'ils sont créés
+ */
+public interface LogSink extends AutoCloseable {
+    /**
+     * Une implémentation de cette méthode doit garder ou écrire une ligne de log, à la suite des précédentes
+     * @param line La ligne de log, sans retour à la ligne
+     */
+    void log(String line);
+
+    /**
+     * Une implémentation de cette méthode doit terminer l'écriture des logs et libérer ce qu'elle utilise
+     * @throws IOException S'il y a eu une erreur lors de l'écriture des logs
+     */
+    @Override
+    void close() throws IOException;
+}
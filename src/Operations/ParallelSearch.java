@@ -0,0 +1,434 @@
+package Operations;
+
+import Constraints.*;
+import Grids.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Une recherche parallèle à l'intérieur d'un seul puzzle : les premiers niveaux de l'arbre de recherche sont découpés en tâches fork-join,
+ * chacune travaillant sur sa propre copie du puzzle, puis chaque tâche explore son sous-arbre avec un trail comme le fait l'algo sans copie.
+ * Chaque tâche a son propre contexte, tiré de celui de la recherche : il en garde la configuration, son générateur de nombres aléatoires est tiré de celui de la tâche parente
+ * dans un ordre fixe, et ses statistiques sont ajoutées à celles de la recherche à la fin de la tâche.
+ * En mode résolution, la solution gardée est celle de la tâche qui vient la première dans l'ordre de la recherche, et une tâche s'arrête dès qu'une tâche
+ * qui vient avant elle a trouvé une solution : avec un contexte initialisé avec une graine, la solution ne dépend donc pas de l'ordre d'exécution des tâches.
+ * En mode comptage, les solutions de toutes les tâches sont additionnées
+ */
+public class ParallelSearch implements AutoCloseable {
+    /**
+     * Le nombre de niveaux de l'arbre de recherche découpés en tâches par défaut
+     */
+    private static final int DEFAULT_SPLIT_DEPTH = 3;
+    /**
+     * Les threads qui exécutent les tâches, en se volant du travail les uns aux autres
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Le nombre de niveaux de l'arbre de recherche découpés en tâches
+     */
+    private final int splitDepth;
+
+    /**
+     * Constructeur de la classe, avec ses propres threads
+     * @param parallelism Le nombre de threads à utiliser
+     * @param splitDepth Le nombre de niveaux de l'arbre de recherche découpés en tâches, 0 revenant à une recherche séquentielle
+     * @throws IllegalArgumentException Si le nombre de threads n'est pas strictement positif ou si le nombre de niveaux est négatif
+     */
+    public ParallelSearch(int parallelism, int splitDepth) throws IllegalArgumentException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Le nombre de threads doit être strictement positif");
+        }
+        if (splitDepth < 0) {
+            throw new IllegalArgumentException("Le nombre de niveaux découpés ne peut pas être négatif");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Constructeur de la classe, qui utilise les threads communs de la machine
+     */
+    public ParallelSearch() {
+        this.pool = ForkJoinPool.commonPool();
+        this.splitDepth = DEFAULT_SPLIT_DEPTH;
+    }
+
+    /**
+     * Cherche une solution d'un puzzle en parallèle, et l'écrit dans le puzzle si elle existe
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public boolean solve(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        SolverContext context = new SolverContext();
+        context.setLogging(false);
+        return this.solve(context, puzzle, additionalConstraints);
+    }
+
+    /**
+     * Cherche une solution d'un puzzle en parallèle, et l'écrit dans le puzzle si elle existe.
+     * Les opérations des tâches se faisant en même temps, elles ne forment pas une suite qui a un sens : seules les cases remplies par la solution sont loguées dans le contexte
+     * @param context Le contexte de la recherche, qui donne sa configuration aux tâches et reçoit leurs statistiques
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public boolean solve(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        SearchState state = new SearchState(additionalConstraints, 1, true);
+        this.search(context, state, puzzle);
+        int[] solution = state.solution.get();
+        if (solution == null) {
+            return false;
+        }
+        ArrayList<Case> cases = puzzle.casesList();
+        for (int i = 0; i < cases.size(); i++) {
+            Case c = cases.get(i);
+            if (c.getValue() != solution[i]) {
+                c.setValue(solution[i]);
+                context.log(c, puzzle);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compte les solutions d'un puzzle en parallèle, sans le modifier
+     * @param puzzle Le puzzle dont on veut compter les solutions
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @param limit Le nombre de solutions à partir duquel on arrête de chercher, ou 0 pour toutes les compter
+     * @return Le nombre de solutions, qui ne dépasse pas la limite
+     * @throws IllegalArgumentException Si la limite est négative, ou si une erreur arrive durant la recherche
+     */
+    public long countSolutions(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, long limit) throws IllegalArgumentException {
+        SolverContext context = new SolverContext();
+        context.setLogging(false);
+        return this.countSolutions(context, puzzle, additionalConstraints, limit);
+    }
+
+    /**
+     * Compte les solutions d'un puzzle en parallèle, sans le modifier
+     * @param context Le contexte de la recherche, qui donne sa configuration aux tâches et reçoit leurs statistiques
+     * @param puzzle Le puzzle dont on veut compter les solutions
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @param limit Le nombre de solutions à partir duquel on arrête de chercher, ou 0 pour toutes les compter
+     * @return Le nombre de solutions, qui ne dépasse pas la limite
+     * @throws IllegalArgumentException Si la limite est négative, ou si une erreur arrive durant la recherche
+     */
+    public long countSolutions(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, long limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("La limite ne peut pas être négative");
+        }
+        SearchState state = new SearchState(additionalConstraints, limit, false);
+        this.search(context, state, puzzle);
+        long count = state.count.get();
+        return (limit != 0) ? Math.min(count, limit) : count;
+    }
+
+    /**
+     * Lance la tâche racine de la recherche, puis ajoute les statistiques des tâches à celles du contexte
+     * @param context Le contexte de la recherche
+     * @param state L'état partagé par les tâches
+     * @param puzzle Le puzzle d'origine, qui n'est pas modifié
+     */
+    private void search(SolverContext context, SearchState state, Puzzle puzzle) {
+        Puzzle copy = puzzle.copy();
+        context.countCopy();
+        this.pool.invoke(new SearchTask(state, context.child(), copy, new int[0], this.splitDepth));
+        context.getStatistics().add(state.statistics);
+    }
+
+    /**
+     * Arrête les threads de la recherche, s'ils lui sont propres
+     */
+    @Override
+    public void close() {
+        if (this.pool != ForkJoinPool.commonPool()) {
+            this.pool.shutdown();
+        }
+    }
+
+    /**
+     * L'état partagé par toutes les tâches d'une même recherche
+     */
+    private static class SearchState {
+        /**
+         * Les contraintes supplémentaires, qui font référence au puzzle d'origine et sont copiées par chaque tâche
+         */
+        private final ArrayList<SudokuConstraint> constraints;
+        /**
+         * Le nombre de solutions à partir duquel on arrête de chercher, ou 0 pour toutes les compter
+         */
+        private final long limit;
+        /**
+         * Le nombre de solutions trouvées
+         */
+        private final AtomicLong count;
+        /**
+         * Indique si toutes les tâches doivent s'arrêter
+         */
+        private final AtomicBoolean stop;
+        /**
+         * Indique si on garde la solution de la tâche qui vient la première dans l'ordre de la recherche, plutôt que d'arrêter tout à la première solution
+         */
+        private final boolean ordered;
+        /**
+         * La valeur de chaque case dans la solution gardée
+         */
+        private final AtomicReference<int[]> solution;
+        /**
+         * Le chemin de la tâche qui a trouvé la solution gardée, c'est-à-dire la position de chacune de ses tâches parentes parmi leurs sœurs
+         */
+        private final AtomicReference<int[]> solutionPath;
+        /**
+         * La somme des statistiques des tâches terminées, modifiée en se synchronisant dessus
+         */
+        private final SolverStatistics statistics;
+
+        /**
+         * Constructeur de la classe
+         * @param constraints Les contraintes supplémentaires sur le puzzle d'origine
+         * @param limit Le nombre de solutions à partir duquel on arrête de chercher, ou 0 pour toutes les compter
+         * @param ordered Si on garde la solution de la tâche qui vient la première dans l'ordre de la recherche
+         */
+        private SearchState(ArrayList<SudokuConstraint> constraints, long limit, boolean ordered) {
+            this.constraints = constraints;
+            this.limit = limit;
+            this.ordered = ordered;
+            this.count = new AtomicLong();
+            this.stop = new AtomicBoolean(false);
+            this.solution = new AtomicReference<>();
+            this.solutionPath = new AtomicReference<>();
+            this.statistics = new SolverStatistics();
+        }
+
+        /**
+         * Enregistre une solution trouvée par une tâche, et arrête la recherche si on en a trouvé assez
+         * @param trail Le trail qui suit les cases résolues de la tâche
+         * @param path Le chemin de la tâche
+         */
+        private void found(Trail trail, int[] path) {
+            this.count.incrementAndGet();
+            if (this.ordered) {
+                int[] values = new int[trail.getCasesCount()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = trail.getCase(i).getValue();
+                }
+                synchronized (this) {
+                    int[] best = this.solutionPath.get();
+                    if (best == null || Arrays.compare(path, best) < 0) {
+                        this.solution.set(values);
+                        this.solutionPath.set(path);
+                    }
+                }
+            }
+            else if (this.count.get() >= this.limit && this.limit != 0) {
+                this.stop.set(true);
+            }
+        }
+
+        /**
+         * Indique si une tâche peut arrêter de chercher
+         * @param path Le chemin de la tâche
+         * @return Si on a trouvé assez de solutions, ou si une tâche qui vient avant elle a trouvé une solution
+         */
+        private boolean shouldStop(int[] path) {
+            if (this.stop.get()) {
+                return true;
+            }
+            int[] best = this.solutionPath.get();
+            return best != null && Arrays.compare(best, path) < 0;
+        }
+
+        /**
+         * Ajoute les statistiques d'une tâche terminée à celles de la recherche
+         * @param statistics Les statistiques de la tâche
+         */
+        private void add(SolverStatistics statistics) {
+            synchronized (this.statistics) {
+                this.statistics.add(statistics);
+            }
+        }
+    }
+
+    /**
+     * Une tâche qui explore le sous-arbre de recherche d'une copie du puzzle dont certaines valeurs ont déjà été choisies
+     */
+    @SuppressWarnings("serial")
+    private static class SearchTask extends RecursiveAction {
+        /**
+         * L'état partagé par toutes les tâches de la recherche
+         */
+        private final SearchState state;
+        /**
+         * Le contexte propre à cette tâche
+         */
+        private final SolverContext context;
+        /**
+         * La copie du puzzle propre à cette tâche
+         */
+        private final Puzzle puzzle;
+        /**
+         * Le chemin de la tâche, dont la longueur est sa profondeur dans l'arbre de recherche
+         */
+        private final int[] path;
+        /**
+         * Le nombre de niveaux de l'arbre de recherche découpés en tâches
+         */
+        private final int splitDepth;
+
+        /**
+         * Constructeur de la classe
+         * @param state L'état partagé par toutes les tâches de la recherche
+         * @param context Le contexte propre à cette tâche
+         * @param puzzle La copie du puzzle propre à cette tâche
+         * @param path Le chemin de la tâche
+         * @param splitDepth Le nombre de niveaux de l'arbre de recherche découpés en tâches
+         */
+        private SearchTask(SearchState state, SolverContext context, Puzzle puzzle, int[] path, int splitDepth) {
+            this.state = state;
+            this.context = context;
+            this.puzzle = puzzle;
+            this.path = path;
+            this.splitDepth = splitDepth;
+        }
+
+        /**
+         * Propage les valeurs de la copie du puzzle, puis découpe la suite de la recherche en sous-tâches ou l'explore directement
+         */
+        @Override
+        protected void compute() {
+            if (this.state.shouldStop(this.path)) return;
+
+            // chaque tâche a ses propres contraintes et son propre trail
+            ArrayList<SudokuConstraint> constraints = Solver.copyConstraints(this.puzzle, this.state.constraints);
+            constraints.addAll(Solver.addedConstraints(this.puzzle));
+            PeerIndex index = this.puzzle.peerIndex();
+            Trail trail = new Trail(this.puzzle);
+            try {
+                if (!Solver.initialiseWithTrail(this.context, this.puzzle, index, trail)) return;
+                if (this.path.length >= this.splitDepth) {
+                    this.search(index, constraints, trail, 0, this.path.length);
+                    return;
+                }
+                this.context.countNode(this.path.length);
+                if (!Solver.propagateWithTrail(this.context, this.puzzle, index, constraints, trail, 0)) return;
+
+                // on crée une sous-tâche par valeur possible de la case la plus contrainte, dans un ordre tiré du générateur de la tâche
+                int cell = mostConstrainedCase(trail);
+                if (cell == -1) {
+                    // la propagation a résolu le puzzle, la recherche séquentielle se contente de vérifier la solution
+                    this.search(index, constraints, trail, trail.mark(), this.path.length);
+                    return;
+                }
+                int[] values = this.shuffledValues(trail.getCase(cell));
+                ArrayList<SearchTask> children = new ArrayList<>();
+                for (int i = 0; i < values.length; i++) {
+                    Puzzle child = this.puzzle.copy();
+                    this.context.countCopy();
+                    child.casesList().get(cell).setValue(values[i]);
+                    this.context.countGuess();
+                    int[] childPath = Arrays.copyOf(this.path, this.path.length + 1);
+                    childPath[this.path.length] = i;
+                    children.add(new SearchTask(this.state, this.context.child(), child, childPath, this.splitDepth));
+                }
+                invokeAll(children);
+            }
+            finally {
+                trail.detach();
+                this.state.add(this.context.getStatistics());
+            }
+        }
+
+        /**
+         * Explore séquentiellement le sous-arbre de la tâche, en annulant les modifications grâce au trail
+         * @param index L'index des voisins du puzzle
+         * @param constraints Les contraintes supplémentaires sur la copie du puzzle
+         * @param trail Le trail qui suit les cases de la copie du puzzle
+         * @param from La position dans le trail à partir de laquelle les modifications n'ont pas encore été propagées
+         * @param depth La profondeur dans l'arbre de recherche
+         * @return Si une solution a été trouvée dans le sous-arbre
+         */
+        private boolean search(PeerIndex index, ArrayList<SudokuConstraint> constraints, Trail trail, int from, int depth) {
+            if (this.state.shouldStop(this.path)) return false;
+            this.context.countNode(depth);
+            if (!Solver.propagateWithTrail(this.context, this.puzzle, index, constraints, trail, from)) return false;
+
+            int cell = mostConstrainedCase(trail);
+            if (cell == -1) {
+                // les contraintes ont été appliquées au fur et à mesure, mais on vérifie quand même la solution
+                for (SudokuConstraint constraint : constraints) {
+                    if (!constraint.isConstraintValid()) return false;
+                }
+                this.state.found(trail, this.path);
+                return true;
+            }
+            Case testedCase = trail.getCase(cell);
+            boolean found = false;
+            for (int value : this.shuffledValues(testedCase)) {
+                if (this.state.shouldStop(this.path)) break;
+                int mark = trail.mark();
+                testedCase.setValue(value);
+                this.context.countGuess();
+                BranchEvent branch = new BranchEvent();
+                branch.begin();
+                boolean accepted = this.search(index, constraints, trail, mark, depth + 1);
+                Solver.endBranch(branch, this.context, depth, cell, value, accepted);
+                trail.undo(mark);
+                if (accepted) {
+                    found = true;
+                    // la première solution du sous-arbre est celle qui vient la première dans l'ordre de la recherche
+                    if (this.state.ordered) break;
+                }
+                else if (!this.state.shouldStop(this.path)) {
+                    // une branche coupée parce qu'une autre tâche a déjà trouvé la solution n'est pas un retour en arrière
+                    this.context.countBacktrack();
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Récupère les valeurs possibles d'une case dans un ordre aléatoire, tiré du générateur de la tâche
+         * @param c La case
+         * @return Les valeurs possibles
+         */
+        private int[] shuffledValues(Case c) {
+            int[] values = new int[c.possibleValuesCount()];
+            int n = 0;
+            for (int value = c.nextPossibleValue(0); value != -1; value = c.nextPossibleValue(value + 1)) {
+                values[n++] = value;
+            }
+            for (int i = values.length - 1; i > 0; i--) {
+                int j = this.context.getRandom().nextInt(i + 1);
+                int tmp = values[i];
+                values[i] = values[j];
+                values[j] = tmp;
+            }
+            return values;
+        }
+
+        /**
+         * Cherche la case non résolue qui a le moins de valeurs possibles
+         * @param trail Le trail qui suit les cases du puzzle
+         * @return L'indice de la case, ou -1 si toutes les cases sont résolues
+         */
+        private static int mostConstrainedCase(Trail trail) {
+            int best = -1;
+            for (int i = 0; i < trail.getCasesCount(); i++) {
+                Case c = trail.getCase(i);
+                if (!c.hasValue() && (best == -1 || c.possibleValuesCount() < trail.getCase(best).possibleValuesCount())) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package Operations;
+
+import jdk.jfr.*;
+
+/**
+ * Un événement JFR émis pour chaque groupe de cases que le générateur essaie d'enlever, dont la durée est celle du test d'unicité
+ */
+@Name("sudoku.Removal")
+@Label("Étape de génération")
+@Category({"Sudoku", "Générateur"})
+@Description("Une tentative d'enlever des cases à un puzzle en cours de génération")
+class RemovalEvent extends Event {
+    /**
+     * L'identifiant du puzzle généré, donné par Puzzle.getId
+     */
+    @Label("Identifiant du puzzle")
+    long puzzleId;
+    /**
+     * Le nombre de cases que l'on a essayé d'enlever
+     */
+    @Label("Cases essayées")
+    int cells;
+    /**
+     * Si les cases ont été enlevées
+     */
+    @Label("Enlevées")
+    boolean removed;
+    /**
+     * Le nombre de cases vides du puzzle après cette étape
+     */
+    @Label("Cases vides")
+    int emptyCases;
+}
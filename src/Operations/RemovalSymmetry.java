@@ -0,0 +1,109 @@
+package Operations;
+
+import Grids.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Les symétries que peut respecter le générateur quand il enlève des cases : les cases sont regroupées en orbites,
+ * et chaque orbite est enlevée ou gardée en entier, avec un seul test d'unicité par orbite
+ */
+public enum RemovalSymmetry {
+    /**
+     * Aucune symétrie, chaque case est enlevée seule
+     */
+    NONE,
+    /**
+     * Symétrie par rotation d'un demi-tour autour du centre de la grille
+     */
+    ROTATIONAL,
+    /**
+     * Symétrie par rotation d'un quart de tour autour du centre de la grille
+     */
+    QUARTER_ROTATIONAL,
+    /**
+     * Symétrie par rapport à l'axe vertical au centre de la grille
+     */
+    MIRROR,
+    /**
+     * Symétrie par rapport aux deux axes au centre de la grille
+     */
+    DOUBLE_MIRROR;
+
+    /**
+     * Regroupe les cases d'un puzzle en orbites, en ignorant les orbites qui contiennent une case qu'on ne veut pas enlever.
+     * Dans un multidoku, les positions sont celles de la grille entière, donc les cases superposées sont dans la même orbite
+     * @param puzzle Le puzzle dont on veut les orbites
+     * @param mask Les cases qui peuvent être enlevées, indexées par ligne puis par colonne sur la grille entière, ou null pour toutes les autoriser
+     * @return Les orbites, chacune étant la liste des indices de ses cases dans le puzzle
+     * @throws IllegalArgumentException Si le masque n'a pas la taille de la grille
+     */
+    public ArrayList<int[]> orbits(Puzzle puzzle, boolean[][] mask) throws IllegalArgumentException {
+        ArrayList<Case> casesList = puzzle.casesList();
+        int gridSize = (puzzle instanceof Multidoku) ? ((Multidoku) puzzle).getSizeMultidokuGrid() : ((Sudoku) puzzle).getSize();
+        if (mask != null && (mask.length != gridSize || mask[0].length != gridSize)) {
+            throw new IllegalArgumentException("Le masque doit avoir la taille de la grille");
+        }
+
+        // on regroupe les cases par la plus petite position de leur orbite
+        HashMap<Integer, ArrayList<Integer>> groups = new HashMap<>();
+        HashMap<Integer, Boolean> allowed = new HashMap<>();
+        ArrayList<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < casesList.size(); i++) {
+            Case c = casesList.get(i);
+            int line = c.getLine();
+            int column = c.getColumn();
+            if (puzzle instanceof Multidoku) {
+                PlacedSudoku placedSudoku = ((Multidoku) puzzle).getSudoku(c);
+                line += placedSudoku.line();
+                column += placedSudoku.column();
+            }
+            // sans symétrie, les cases superposées d'un multidoku restent enlevées une par une
+            int key = (this == NONE) ? i : this.orbitKey(line, column, gridSize);
+            if (!groups.containsKey(key)) {
+                groups.put(key, new ArrayList<>());
+                allowed.put(key, true);
+                keys.add(key);
+            }
+            groups.get(key).add(i);
+            if (mask != null && !mask[line][column]) {
+                allowed.put(key, false);
+            }
+        }
+
+        ArrayList<int[]> orbits = new ArrayList<>();
+        for (int key : keys) {
+            if (allowed.get(key)) {
+                orbits.add(groups.get(key).stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        return orbits;
+    }
+
+    /**
+     * Calcule la plus petite position de l'orbite d'une case, qui identifie l'orbite
+     * @param line La ligne de la case sur la grille entière
+     * @param column La colonne de la case sur la grille entière
+     * @param gridSize La taille de la grille entière
+     * @return La position, égale à ligne * taille + colonne
+     */
+    private int orbitKey(int line, int column, int gridSize) {
+        int last = gridSize - 1;
+        int key = line * gridSize + column;
+        if (this == ROTATIONAL || this == QUARTER_ROTATIONAL || this == DOUBLE_MIRROR) {
+            key = Math.min(key, (last - line) * gridSize + (last - column));
+        }
+        if (this == QUARTER_ROTATIONAL) {
+            key = Math.min(key, column * gridSize + (last - line));
+            key = Math.min(key, (last - column) * gridSize + line);
+        }
+        if (this == MIRROR || this == DOUBLE_MIRROR) {
+            key = Math.min(key, line * gridSize + (last - column));
+        }
+        if (this == DOUBLE_MIRROR) {
+            key = Math.min(key, (last - line) * gridSize + column);
+        }
+        return key;
+    }
+}
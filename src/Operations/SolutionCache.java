@@ -0,0 +1,246 @@
+package Operations;
+
+import Constraints.*;
+import Grids.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Un cache de solutions placé devant le solveur : chaque puzzle est reconnu par une empreinte de ses valeurs, de ses blocs et de ses contraintes,
+ * et sa solution ou le fait qu'il n'en ait pas est gardé pour les prochaines résolutions du même puzzle.
+ * La taille du cache est comptée en cases gardées, pour que la mémoire utilisée reste bornée quelle que soit la taille des puzzles,
+ * et un même cache peut être utilisé par plusieurs threads en même temps
+ */
+public class SolutionCache {
+    /**
+     * La valeur gardée pour un puzzle qui n'a pas de solution
+     */
+    private static final int[] UNSOLVABLE = new int[0];
+    /**
+     * Les solutions gardées, dans l'ordre où elles seront enlevées
+     */
+    private final LinkedHashMap<GridHash, int[]> entries;
+    /**
+     * Le nombre maximum de cases gardées
+     */
+    private final long maxCases;
+    /**
+     * Le nombre de cases actuellement gardées
+     */
+    private long cases;
+    /**
+     * Le nombre de résolutions dont la solution était dans le cache
+     */
+    private long hits;
+    /**
+     * Le nombre de résolutions dont la solution n'était pas dans le cache
+     */
+    private long misses;
+
+    /**
+     * Constructeur de la classe
+     * @param maxCases Le nombre maximum de cases gardées, un puzzle sans solution comptant pour une case
+     * @param eviction La façon de choisir quelle solution enlever quand le cache est plein
+     * @throws IllegalArgumentException Si le nombre de cases n'est pas strictement positif ou si la façon d'enlever les solutions est nulle
+     */
+    public SolutionCache(long maxCases, CacheEviction eviction) throws IllegalArgumentException {
+        if (maxCases < 1) {
+            throw new IllegalArgumentException("Le nombre de cases gardées doit être strictement positif");
+        }
+        if (eviction == null) {
+            throw new IllegalArgumentException("La façon d'enlever les solutions ne peut pas être nulle");
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, eviction == CacheEviction.LEAST_RECENTLY_USED);
+        this.maxCases = maxCases;
+        this.cases = 0;
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+    /**
+     * Résout un puzzle en passant par le cache : si le même puzzle a déjà été résolu, sa solution est recopiée sans appeler le solveur.
+     * Dans les deux cas, les cases dont la valeur était cachée sont montrées, pour que tout le puzzle résolu soit visible
+     * @param algorithm L'algorithme à utiliser si le puzzle n'est pas dans le cache
+     * @param context Le contexte de la résolution, qui ne reçoit pas de logs si la solution vient du cache
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public boolean solve(SolverAlgorithm algorithm, SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        GridHash key = fingerprint(puzzle, additionalConstraints);
+        int[] solution = this.get(key);
+        if (solution != null) {
+            if (solution == UNSOLVABLE) {
+                return false;
+            }
+            ArrayList<Case> casesList = puzzle.casesList();
+            for (int i = 0; i < casesList.size(); i++) {
+                Case c = casesList.get(i);
+                if (c.getValue() == -1) {
+                    // une case cachée a déjà sa valeur, il suffit de la montrer
+                    if (c.hasValue()) {
+                        c.showValue();
+                    }
+                    else {
+                        c.setValue(solution[i]);
+                    }
+                }
+            }
+            return true;
+        }
+
+        // la solution n'est pas dans le cache, on résout le puzzle puis on la garde
+        boolean solved = algorithm.solve(context, puzzle, additionalConstraints);
+        if (solved) {
+            ArrayList<Case> casesList = puzzle.casesList();
+            solution = new int[casesList.size()];
+            for (int i = 0; i < solution.length; i++) {
+                // le solveur garde les cases cachées comme des valeurs données, on les montre pour avoir toute la solution
+                casesList.get(i).showValue();
+                solution[i] = casesList.get(i).getValue();
+            }
+        }
+        this.put(key, solved ? solution : UNSOLVABLE);
+        return solved;
+    }
+
+    /**
+     * Cherche une solution dans le cache, et compte si elle y était
+     * @param key L'empreinte du puzzle
+     * @return La solution, UNSOLVABLE si le puzzle n'a pas de solution, ou null si le puzzle n'est pas dans le cache
+     */
+    private synchronized int[] get(GridHash key) {
+        int[] solution = this.entries.get(key);
+        if (solution != null) {
+            this.hits++;
+        }
+        else {
+            this.misses++;
+        }
+        return solution;
+    }
+
+    /**
+     * Ajoute une solution au cache, en enlevant les plus anciennes tant qu'il y a trop de cases gardées
+     * @param key L'empreinte du puzzle
+     * @param solution La solution, ou UNSOLVABLE si le puzzle n'a pas de solution
+     */
+    private synchronized void put(GridHash key, int[] solution) {
+        int[] previous = this.entries.put(key, solution);
+        if (previous != null) {
+            this.cases -= weight(previous);
+        }
+        this.cases += weight(solution);
+        Iterator<Map.Entry<GridHash, int[]>> iterator = this.entries.entrySet().iterator();
+        while (this.cases > this.maxCases && iterator.hasNext()) {
+            this.cases -= weight(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Calcule le nombre de cases que compte une solution dans la taille du cache
+     * @param solution La solution, ou UNSOLVABLE
+     * @return Le nombre de cases
+     */
+    private static int weight(int[] solution) {
+        return Math.max(1, solution.length);
+    }
+
+    /**
+     * Calcule l'empreinte d'un puzzle, qui dépend de ses valeurs visibles, de ses blocs, de la place de ses sudokus et de ses contraintes
+     * @param puzzle Le puzzle
+     * @param additionalConstraints Des contraintes supplémentaires, ou null
+     * @return L'empreinte du puzzle
+     */
+    public static GridHash fingerprint(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) {
+        ArrayList<Case> casesList = puzzle.casesList();
+        ArrayList<SudokuConstraint> constraints = Solver.addedConstraints(puzzle);
+        if (additionalConstraints != null) {
+            constraints.addAll(additionalConstraints);
+        }
+        // l'indice de chaque case n'est utile que pour les contraintes
+        IdentityHashMap<Case, Integer> indexes = new IdentityHashMap<>();
+        if (!constraints.isEmpty()) {
+            for (int i = 0; i < casesList.size(); i++) {
+                indexes.put(casesList.get(i), i);
+            }
+        }
+        ArrayList<PlacedSudoku> sudokus = (puzzle instanceof Multidoku) ? ((Multidoku) puzzle).getSudokus() : new ArrayList<>();
+
+        // on calcule d'abord le nombre de valeurs, pour ne pas avoir à agrandir le tableau
+        int length = 2 + 3 * sudokus.size() + 2 * casesList.size();
+        for (SudokuConstraint constraint : constraints) {
+            length += 3 + constraint.getCasesToCompareTo().size();
+        }
+        int[] values = new int[length];
+        int n = 0;
+
+        // la forme du puzzle
+        if (puzzle instanceof Multidoku) {
+            values[n++] = 1;
+            values[n++] = sudokus.size();
+            for (PlacedSudoku placedSudoku : sudokus) {
+                values[n++] = placedSudoku.sudoku().getSize();
+                values[n++] = placedSudoku.line();
+                values[n++] = placedSudoku.column();
+            }
+        }
+        else {
+            values[n++] = 0;
+            values[n++] = ((Sudoku) puzzle).getSize();
+        }
+        // les valeurs et les blocs des cases
+        for (Case c : casesList) {
+            values[n++] = c.getValue();
+            values[n++] = c.getBlocIndex();
+        }
+        // les contraintes, avec les indices des cases sur lesquelles elles portent
+        for (SudokuConstraint constraint : constraints) {
+            values[n++] = constraint.getClass().getName().hashCode();
+            values[n++] = indexes.getOrDefault(constraint.getConstrainedCase(), -1);
+            values[n++] = constraint.getCasesToCompareTo().size();
+            for (Case c : constraint.getCasesToCompareTo()) {
+                values[n++] = indexes.getOrDefault(c, -1);
+            }
+        }
+        return GridHash.of(values);
+    }
+
+    /**
+     * Getter du nombre de résolutions dont la solution était dans le cache
+     * @return Le nombre de succès
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Getter du nombre de résolutions dont la solution n'était pas dans le cache
+     * @return Le nombre d'échecs
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Getter du nombre de puzzles dans le cache
+     * @return Le nombre de puzzles
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Vide le cache, sans remettre à zéro les compteurs
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.cases = 0;
+    }
+}
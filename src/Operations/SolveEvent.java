@@ -0,0 +1,44 @@
+package Operations;
+
+import jdk.jfr.*;
+
+/**
+ * Un événement JFR émis à la fin de chaque résolution, dont la durée est celle de la résolution.
+ * Il n'est enregistré que si un enregistrement JFR est en cours, et ne coûte presque rien sinon
+ */
+@Name("sudoku.Solve")
+@Label("Résolution")
+@Category({"Sudoku", "Solveur"})
+@Description("Une résolution de puzzle, de son début à sa fin")
+class SolveEvent extends Event {
+    /**
+     * L'identifiant du puzzle résolu, donné par Puzzle.getId
+     */
+    @Label("Identifiant du puzzle")
+    long puzzleId;
+    /**
+     * Le nom de l'algorithme utilisé
+     */
+    @Label("Algorithme")
+    String algorithm;
+    /**
+     * La taille de la grille du puzzle
+     */
+    @Label("Taille")
+    int size;
+    /**
+     * Le nombre de cases du puzzle
+     */
+    @Label("Cases")
+    int cases;
+    /**
+     * Si le puzzle a été résolu
+     */
+    @Label("Résolu")
+    boolean solved;
+    /**
+     * Le nombre de valeurs essayées par le contexte de la résolution à la fin de la résolution
+     */
+    @Label("Essais")
+    long guesses;
+}
@@ -0,0 +1,34 @@
+package Operations;
+
+/**
+ * Un record qui contient le résultat d'une résolution et ses statistiques
+ * @param solved Si le puzzle a été résolu
+ * @param statistics Les statistiques de la résolution
+ */
+public record SolveResult(boolean solved, SolverStatistics statistics) {
+    /**
+     * Constructeur
+     * @param solved Si le puzzle a été résolu
+     * @param statistics Les statistiques de la résolution
+     */
+    public SolveResult {
+    }
+
+    /**
+     * Indique si le puzzle a été résolu
+     * @return Si le puzzle a été résolu
+     */
+    @Override
+    public boolean solved() {
+        return this.solved;
+    }
+
+    /**
+     * Getter des statistiques de la résolution
+     * @return Les statistiques
+     */
+    @Override
+    public SolverStatistics statistics() {
+        return this.statistics;
+    }
+}
@@ -4,23 +4,12 @@ import Constraints.*;
 import Grids.*;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.Objects;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Une classe qui permet de résoudre un puzzle en utilisant simplement les règles de déduction
  */
 public abstract class Solver {
-    /**
-     * Une liste de string qui capture les opérations effectuées lors de la résolution
-     */
-    private static ArrayList<String> logs = new ArrayList<>();
-    /**
-     * Indique si l'algorithme doit momentanément cesser de logger l'opération
-     */
-    private static boolean stopLogging = false;
-
     /**
      * Essaie de résoudre un puzzle à l'aide des règles de déduction uniquement
      * @param puzzle Le puzzle qu'on veut résoudre
@@ -29,68 +18,132 @@ public abstract class Solver {
      * @return Un booléen qui indique si le puzzle est résolvable
      */
     public static boolean solveWithConstraints(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, ArrayList<String> menuLogs) {
-        // on initialise la liste des logs
+        SolverContext context = new SolverContext();
+        boolean returnValue = solveWithConstraints(context, puzzle, additionalConstraints);
+
+        // on donne les logs au menu
         if (menuLogs != null) {
-            logs = new ArrayList<>();
+            menuLogs.addAll(context.getLogs());
         }
 
+        return returnValue;
+    }
+
+    /**
+     * Essaie de résoudre un puzzle à l'aide des règles de déduction uniquement, celles sur les unités étant données par le contexte
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     */
+    public static boolean solveWithConstraints(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) {
+        SolveEvent event = beginSolve(context, puzzle);
         // on récupère les contraintes
-        ArrayList<SudokuConstraint> constraints = Objects.requireNonNullElseGet(additionalConstraints, ArrayList::new);
+        ArrayList<SudokuConstraint> constraints = new ArrayList<>(Objects.requireNonNullElseGet(additionalConstraints, ArrayList::new));
         constraints.addAll(puzzle.defaultConstraints(null));
 
-        // on applique les contraintes tant qu'elles n'ont pas été toutes validées
-        int notChangedInARow = 0;
-        while (!constraints.isEmpty()) {
-            int constraintsNumber = constraints.size();
-            boolean valid = applyConstraints(constraints);
-            if (!valid) {
-                // on donne les logs au menu
-                if (menuLogs != null) {
-                    menuLogs.addAll(logs);
+        // on applique les contraintes jusqu'à ce qu'aucune ne puisse plus rien changer
+        // le trail permet de savoir quelles cases ont été modifiées, et donc quelles contraintes réappliquer
+        Trail trail = new Trail(puzzle);
+        boolean solved;
+        try {
+            ConstraintPropagator propagator = new ConstraintPropagator(constraints, trail, context::applied);
+            solved = propagateWithRules(context, puzzle, propagator, context.getRules(), trail) && propagator.allResolved();
+        }
+        finally {
+            trail.detach();
+        }
+
+        return endSolve(event, context, "constraints", puzzle, solved);
+    }
+
+    /**
+     * Propage les contraintes, puis applique les règles de déduction jusqu'à ce qu'aucune ne change plus rien :
+     * dès qu'une règle enlève une valeur, on réveille les contraintes concernées et on recommence par la règle la moins coûteuse
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle sur lequel on propage, seulement utilisé pour les logs
+     * @param propagator Le moteur de propagation des contraintes du puzzle
+     * @param rules Les règles de déduction, de la moins coûteuse à la plus coûteuse
+     * @param trail Le trail qui suit les cases du puzzle
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    private static boolean propagateWithRules(SolverContext context, Puzzle puzzle, ConstraintPropagator propagator, ArrayList<DeductionRule> rules, Trail trail) {
+        PeerIndex index = puzzle.peerIndex();
+        while (propagator.propagate()) {
+            boolean changed = false;
+            for (DeductionRule rule : rules) {
+                int mark = trail.mark();
+                context.countApplication(rule);
+                if (!rule.apply(index, trail)) {
+                    return false;
                 }
-                return false;
-            }
-            // failsafe au cas où l'algorithme serait dans une boucle infinie
-            // cette méthode ne revient jamais en arrière donc on peut juste prendre un gros nombre (10) pour être sûr
-            notChangedInARow = (constraintsNumber == constraints.size()) ? notChangedInARow + 1 : 0;
-            if (notChangedInARow > 10) {
-                // on donne les logs au menu
-                if (menuLogs != null) {
-                    menuLogs.addAll(logs);
+                if (trail.mark() != mark) {
+                    logResolvedCases(context, puzzle, trail, mark);
+                    propagator.notifyChanges(mark);
+                    changed = true;
+                    break;
                 }
-                return false;
+            }
+            if (!changed) {
+                return true;
             }
         }
+        return false;
+    }
 
-        // on donne les logs au menu
-        if (menuLogs != null) {
-            menuLogs.addAll(logs);
-        }
+    /**
+     * Commence l'événement JFR d'une résolution, et donne l'identifiant du puzzle au contexte pour les événements des branches
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle résolu
+     * @return L'événement commencé
+     */
+    private static SolveEvent beginSolve(SolverContext context, Puzzle puzzle) {
+        context.setPuzzleId(puzzle.getId());
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        return event;
+    }
 
-        return true;
+    /**
+     * Termine l'événement JFR d'une résolution, et ne remplit ses champs que s'il est enregistré
+     * @param event L'événement commencé par beginSolve
+     * @param context Le contexte de la résolution
+     * @param algorithm Le nom de l'algorithme utilisé
+     * @param puzzle Le puzzle résolu
+     * @param solved Si le puzzle a été résolu
+     * @return Si le puzzle a été résolu, pour pouvoir terminer l'événement au moment de retourner le résultat
+     */
+    private static boolean endSolve(SolveEvent event, SolverContext context, String algorithm, Puzzle puzzle, boolean solved) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.puzzleId = context.getPuzzleId();
+            event.algorithm = algorithm;
+            event.size = BatchStatistics.gridSize(puzzle);
+            event.cases = puzzle.casesList().size();
+            event.solved = solved;
+            event.guesses = context.getGuesses();
+            event.commit();
+        }
+        return solved;
     }
 
     /**
-     * Applique chaque contrainte d'une liste de contraintes une fois
-     * @param constraints La liste des contraintes à appliquer
-     * @return Un booléen qui indique si le puzzle est résolvable
+     * Logue les cases résolues par les modifications enregistrées dans un trail depuis une position donnée, chacune une seule fois
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle suivi par le trail
+     * @param trail Le trail qui suit les cases du puzzle
+     * @param from La position dans le trail à partir de laquelle chercher les cases modifiées
      */
-    private static boolean applyConstraints(ArrayList<SudokuConstraint> constraints) {
-        Iterator<SudokuConstraint> it = constraints.iterator();
-        while (it.hasNext()) {
-            SudokuConstraint constraint = it.next();
-            boolean validMove = constraint.setNewPossibleValues();
-            log(constraint);
-            if (!validMove) {
-                return false;
-            }
-            boolean validated = constraint.hasBeenResolved();
-            // si une règle a été validée, alors on la supprime
-            if (validated) {
-                it.remove();
+    private static void logResolvedCases(SolverContext context, Puzzle puzzle, Trail trail, int from) {
+        boolean[] seen = new boolean[trail.getCasesCount()];
+        for (int entry = from; entry < trail.mark(); entry++) {
+            int cell = trail.getEntryCase(entry);
+            Case c = trail.getCase(cell);
+            if (!seen[cell] && c.hasValue()) {
+                seen[cell] = true;
+                context.log(c, puzzle);
             }
         }
-        return true;
     }
 
     /**
@@ -102,21 +155,38 @@ public abstract class Solver {
      * @throws IllegalArgumentException Si une erreur arrive durant la résolution
      */
     public static boolean solveWithBacktracking(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, ArrayList<String> menuLogs) throws IllegalArgumentException {
-        // on initialise la liste des logs
+        SolverContext context = new SolverContext();
+        boolean returnValue = solveWithBacktracking(context, puzzle, additionalConstraints);
+
+        // on donne les logs au menu
         if (menuLogs != null) {
-            logs = new ArrayList<>();
+            menuLogs.addAll(context.getLogs());
         }
 
+        return returnValue;
+    }
+
+    /**
+     * Essaie de résoudre un puzzle à l'aide du backtracking uniquement
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public static boolean solveWithBacktracking(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        SolveEvent event = beginSolve(context, puzzle);
         // on crée une copie du puzzle
         Puzzle newPuzzle = puzzle.copy();
+        context.countCopy();
         ArrayList<SudokuConstraint> newConstraints = copyConstraints(newPuzzle, additionalConstraints);
 
 
         // on applique le backtracking
-        Puzzle backtrack = applyBacktracking(newPuzzle, newConstraints, true);
+        Puzzle backtrack = applyBacktracking(context, newPuzzle, newConstraints, true, 0);
         // si la backtracking a échoué
         if (backtrack == null) {
-            return false;
+            return endSolve(event, context, "backtracking", puzzle, false);
         }
         // sinon on copie le puzzle solvé dans le puzzle a solver
         ArrayList<Case> originalCases = puzzle.casesList();
@@ -125,25 +195,25 @@ public abstract class Solver {
             originalCases.get(i).setValue(backtrackCases.get(i).getValue());
         }
 
-        // on donne les logs au menu
-        if (menuLogs != null) {
-            menuLogs.addAll(logs);
-        }
-
-        return true;
+        return endSolve(event, context, "backtracking", puzzle, true);
     }
 
     /**
      * Applique l'algo de backtracking pur pour une copie d'un puzzle et des contraintes sur ce puzzle
+     * @param context Le contexte de la résolution
      * @param puzzle Une copie d'un puzzle
      * @param constraints Des contraintes additionnelles sur le puzzle
      * @param isPureBacktracking Indique si la méthode est appelée dans le cas de l'algo de backtracking pure ou de l'algo mixte
+     * @param depth La profondeur de l'appel dans la recherche, 0 pour le premier
      * @return Le puzzle résolu s'il est résolvable, null sinon
      * @throws IllegalArgumentException Si une erreur arrive durant la résolution
      */
-    private static Puzzle applyBacktracking(Puzzle puzzle, ArrayList<SudokuConstraint> constraints, boolean isPureBacktracking) throws IllegalArgumentException {
+    private static Puzzle applyBacktracking(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> constraints, boolean isPureBacktracking, int depth) throws IllegalArgumentException {
+        context.countNode(depth);
+
         // on cherche la case à tester
         Case testedCase;
+        int testedIndex;
         ArrayList<Case> casesList = puzzle.casesList();
         // si on n'est pas intelligent
         if (isPureBacktracking) {
@@ -156,6 +226,7 @@ public abstract class Solver {
                     return puzzle;
                 }
             }
+            testedIndex = currentCase;
             testedCase = casesList.get(currentCase);
         }
         // si on est intelligent
@@ -167,8 +238,8 @@ public abstract class Solver {
                 Case c = casesList.get(i);
                 // on ne teste que les cases qui ne sont pas résolues
                 if (!c.hasValue()) {
-                    if (smallestAmountOfValues == 0 || smallestAmountOfValues > c.possibleValues().size()) {
-                        smallestAmountOfValues = c.possibleValues().size();
+                    if (smallestAmountOfValues == 0 || smallestAmountOfValues > c.possibleValuesCount()) {
+                        smallestAmountOfValues = c.possibleValuesCount();
                         currentSmallestCase = i;
                     }
                 }
@@ -178,10 +249,13 @@ public abstract class Solver {
                 return puzzle;
             }
             // sinon, on prend la case avec le moins de valeurs possibles
+            testedIndex = currentSmallestCase;
             testedCase = casesList.get(currentSmallestCase);
         }
 
         // on teste toutes ses valeurs une par une
+        PeerIndex index = puzzle.peerIndex();
+        ArrayList<SudokuConstraint> addedConstraints = addedConstraints(puzzle);
         Puzzle backtrack;
         int value;
         boolean isValid;
@@ -190,13 +264,14 @@ public abstract class Solver {
                 // on vérifie si la case est encore résolvable
                 if (!testedCase.isValid()) return null;
                 // on essaie une de ses valeurs possibles
-                value = (int) testedCase.possibleValues().toArray()[ThreadLocalRandom.current().nextInt(0, testedCase.possibleValues().size())];
+                value = testedCase.getPossibleValue(context.getRandom().nextInt(0, testedCase.possibleValuesCount()));
                 testedCase.tryTestValue(value);
-                log(testedCase, puzzle);
+                context.countGuess();
+                context.log(testedCase, puzzle);
                 // on vérifie si les contraintes sont toujours respectées
-                isValid = true;
-                for (SudokuConstraint constraint : puzzle.constraintsOnCase(testedCase, null)) {
-                    if (!constraint.isConstraintValid()) {
+                isValid = index.isConsistent(casesList, testedIndex);
+                for (SudokuConstraint constraint : addedConstraints) {
+                    if (constraint.isConstraintOnCase(testedCase) && !constraint.isConstraintValid()) {
                         isValid = false;
                     }
                 }
@@ -208,25 +283,31 @@ public abstract class Solver {
                 if (!isValid) {
                     // si elles ne les sont pas alors la valeur n'était pas la bonne
                     testedCase.removePossibleValue(value);
+                    context.countBacktrack();
                 }
             } while (!isValid);
 
             // on met à jour les contraintes additionnels sur la copie du puzzle
             Puzzle newPuzzle = puzzle.copy();
+            context.countCopy();
             ArrayList<SudokuConstraint> newConstraints = copyConstraints(newPuzzle, constraints);
 
             // on teste la valeur candidate
+            BranchEvent branch = new BranchEvent();
+            branch.begin();
             if (isPureBacktracking) {
-                backtrack = applyBacktracking(newPuzzle, newConstraints, true);
+                backtrack = applyBacktracking(context, newPuzzle, newConstraints, true, depth + 1);
             }
             else {
-                backtrack = applyBoth(newPuzzle, newConstraints);
+                backtrack = applyBoth(context, newPuzzle, newConstraints, depth + 1);
             }
+            endBranch(branch, context, depth, testedIndex, value, backtrack != null);
             if (backtrack == null) {
                 // si l'algo n'a pas abouti, la valeur n'était donc pas la bonne
                 testedCase.removePossibleValue(value);
+                context.countBacktrack();
                 testedCase.scrapTestValue();
-                log(testedCase, puzzle);
+                context.log(testedCase, puzzle);
             } else {
                 // sinon, on confirme la valeur
                 testedCase.confirmTestValue();
@@ -245,20 +326,37 @@ public abstract class Solver {
      * @throws IllegalArgumentException Si une erreur arrive durant la résolution
      */
     public static boolean solveWithBoth(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, ArrayList<String> menuLogs) throws IllegalArgumentException {
-        // on initialise la liste des logs
+        SolverContext context = new SolverContext();
+        boolean returnValue = solveWithBoth(context, puzzle, additionalConstraints);
+
+        // on donne les logs au menu
         if (menuLogs != null) {
-            logs = new ArrayList<>();
+            menuLogs.addAll(context.getLogs());
         }
 
+        return returnValue;
+    }
+
+    /**
+     * Essaie de résoudre un puzzle à l'aide des règles de contraintes et du backtracking
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public static boolean solveWithBoth(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        SolveEvent event = beginSolve(context, puzzle);
         // on crée une copie du puzzle
         Puzzle newPuzzle = puzzle.copy();
+        context.countCopy();
         ArrayList<SudokuConstraint> newConstraints = copyConstraints(newPuzzle, additionalConstraints);
 
         // on applique l'algorithme
-        Puzzle backtrack = applyBoth(newPuzzle, newConstraints);
+        Puzzle backtrack = applyBoth(context, newPuzzle, newConstraints, 0);
         // si l'algo a échoué
         if (backtrack == null) {
-            return false;
+            return endSolve(event, context, "both", puzzle, false);
         }
         // sinon on copie le puzzle solvé dans le puzzle a solver
         ArrayList<Case> originalCases = puzzle.casesList();
@@ -267,22 +365,19 @@ public abstract class Solver {
             originalCases.get(i).setValue(backtrackCases.get(i).getValue());
         }
 
-        // on donne les logs au menu
-        if (menuLogs != null) {
-            menuLogs.addAll(logs);
-        }
-
-        return true;
+        return endSolve(event, context, "both", puzzle, true);
     }
 
     /**
      * Applique l'algo mixte pour une copie d'un puzzle et des contraintes sur ce puzzle
+     * @param context Le contexte de la résolution
      * @param puzzle Une copie d'un puzzle
      * @param constraints Des contraintes additionnelles sur le puzzle
+     * @param depth La profondeur de l'appel dans la recherche, 0 pour le premier
      * @return Le puzzle résolu s'il est résolvable, null sinon
      * @throws IllegalArgumentException Si une erreur arrive durant la résolution
      */
-    private static Puzzle applyBoth(Puzzle puzzle, ArrayList<SudokuConstraint> constraints) throws IllegalArgumentException {
+    private static Puzzle applyBoth(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> constraints, int depth) throws IllegalArgumentException {
         // on récupère les contraintes
         ArrayList<SudokuConstraint> everyConstraints = new ArrayList<>();
         if (constraints != null) {
@@ -290,18 +385,380 @@ public abstract class Solver {
         }
         everyConstraints.addAll(puzzle.defaultConstraints(null));
 
-        // on applique les contraintes une fois
-        int size;
-        do {
-            size = everyConstraints.size();
-            boolean isValid = applyConstraints(everyConstraints);
-            if (!isValid) {
+        // on applique les contraintes jusqu'à ce qu'aucune ne puisse plus rien changer
+        Trail trail = new Trail(puzzle);
+        try {
+            ConstraintPropagator propagator = new ConstraintPropagator(everyConstraints, trail, context::applied);
+            if (!propagateWithRules(context, puzzle, propagator, context.getRules(), trail)) {
                 return null;
             }
-        } while (everyConstraints.size() != size);
+        }
+        finally {
+            trail.detach();
+        }
 
         // on applique le backtracking une fois
-        return applyBacktracking(puzzle, constraints, false);
+        return applyBacktracking(context, puzzle, constraints, false, depth);
+    }
+
+    /**
+     * Essaie de résoudre un puzzle à l'aide des règles de contraintes et du backtracking, en modifiant une seule copie du puzzle
+     * et en annulant les modifications grâce à un trail lors d'un retour en arrière, au lieu de copier le puzzle à chaque essai
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @param menuLogs Une liste de logs à laquelle ajouter les logs de l'algorithme
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public static boolean solveWithTrail(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, ArrayList<String> menuLogs) throws IllegalArgumentException {
+        SolverContext context = new SolverContext();
+        boolean returnValue = solveWithTrail(context, puzzle, additionalConstraints);
+
+        // on donne les logs au menu
+        if (menuLogs != null) {
+            menuLogs.addAll(context.getLogs());
+        }
+
+        return returnValue;
+    }
+
+    /**
+     * Essaie de résoudre un puzzle à l'aide des règles de contraintes et du backtracking, en modifiant une seule copie du puzzle
+     * et en annulant les modifications grâce à un trail lors d'un retour en arrière, au lieu de copier le puzzle à chaque essai
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public static boolean solveWithTrail(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        SolveEvent event = beginSolve(context, puzzle);
+        // on crée une seule copie du puzzle, sur laquelle toute la recherche aura lieu
+        // les contraintes de lignes, colonnes et blocs sont gérées directement par l'index des voisins
+        Puzzle newPuzzle = puzzle.copy();
+        context.countCopy();
+        ArrayList<SudokuConstraint> constraints = copyConstraints(newPuzzle, additionalConstraints);
+        constraints.addAll(addedConstraints(newPuzzle));
+        PeerIndex index = newPuzzle.peerIndex();
+
+        // on applique l'algorithme en enregistrant toutes les modifications
+        Trail trail = new Trail(newPuzzle);
+        boolean solved;
+        try {
+            solved = initialiseWithTrail(context, newPuzzle, index, trail) && applyTrailBacktracking(context, newPuzzle, index, constraints, trail, 0, 0);
+        }
+        finally {
+            trail.detach();
+        }
+        // si l'algo a échoué
+        if (!solved) {
+            return endSolve(event, context, "trail", puzzle, false);
+        }
+        // sinon on copie le puzzle solvé dans le puzzle a solver
+        ArrayList<Case> originalCases = puzzle.casesList();
+        ArrayList<Case> solvedCases = newPuzzle.casesList();
+        for (int i = 0; i < solvedCases.size(); i++) {
+            originalCases.get(i).setValue(solvedCases.get(i).getValue());
+        }
+
+        return endSolve(event, context, "trail", puzzle, true);
+    }
+
+    /**
+     * Essaie de résoudre un puzzle en le traduisant en problème de couverture exacte, résolu par l'algorithme X avec les liens dansants
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @param menuLogs Une liste de logs à laquelle ajouter les logs de l'algorithme
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public static boolean solveWithDancingLinks(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, ArrayList<String> menuLogs) throws IllegalArgumentException {
+        SolverContext context = new SolverContext();
+        boolean returnValue = solveWithDancingLinks(context, puzzle, additionalConstraints);
+
+        // on donne les logs au menu
+        if (menuLogs != null) {
+            menuLogs.addAll(context.getLogs());
+        }
+
+        return returnValue;
+    }
+
+    /**
+     * Essaie de résoudre un puzzle en le traduisant en problème de couverture exacte, résolu par l'algorithme X avec les liens dansants
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public static boolean solveWithDancingLinks(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        SolveEvent event = beginSolve(context, puzzle);
+        // on crée une copie du puzzle, sur laquelle les contraintes sont vérifiées
+        Puzzle newPuzzle = puzzle.copy();
+        context.countCopy();
+        DancingLinks dancingLinks = new DancingLinks(newPuzzle, copyConstraints(newPuzzle, additionalConstraints));
+        dancingLinks.setStatistics(context.getStatistics());
+
+        // on applique l'algorithme
+        if (dancingLinks.solve(1) == 0) {
+            return endSolve(event, context, "dancingLinks", puzzle, false);
+        }
+        // on copie la solution dans le puzzle a solver, dans l'ordre où l'algorithme l'a construite
+        int[] solution = dancingLinks.getSolution();
+        ArrayList<Case> originalCases = puzzle.casesList();
+        for (int cell : dancingLinks.getSolutionOrder()) {
+            Case c = originalCases.get(cell);
+            if (!c.hasValue()) {
+                c.setValue(solution[cell]);
+                context.log(c, puzzle);
+            }
+        }
+
+        return endSolve(event, context, "dancingLinks", puzzle, true);
+    }
+
+    /**
+     * Essaie de résoudre un puzzle en explorant les premiers niveaux de l'arbre de recherche en parallèle, sur les threads communs de la machine
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public static boolean solveWithParallelSearch(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        SolveEvent event = beginSolve(context, puzzle);
+        boolean solved = new ParallelSearch().solve(context, puzzle, additionalConstraints);
+        return endSolve(event, context, "parallel", puzzle, solved);
+    }
+
+    /**
+     * Applique l'algo mixte sur un puzzle suivi par un trail, en revenant en arrière grâce au trail en cas d'échec
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle à résoudre, qui est modifié directement
+     * @param index L'index des voisins du puzzle
+     * @param constraints Les contraintes supplémentaires sur le puzzle, en plus des lignes, colonnes et blocs
+     * @param trail Le trail qui suit les cases du puzzle
+     * @param from La position dans le trail à partir de laquelle les modifications n'ont pas encore été propagées
+     * @param depth La profondeur de l'appel dans la recherche, 0 pour le premier
+     * @return Si le puzzle a été résolu, sinon le puzzle est laissé dans un état quelconque que l'appelant doit annuler
+     */
+    private static boolean applyTrailBacktracking(SolverContext context, Puzzle puzzle, PeerIndex index, ArrayList<SudokuConstraint> constraints, Trail trail, int from, int depth) {
+        context.countNode(depth);
+        // on propage les dernières modifications jusqu'à ce qu'elles ne changent plus rien
+        if (!propagateWithTrail(context, puzzle, index, constraints, trail, from)) {
+            return false;
+        }
+
+        // on cherche la case avec le moins de valeurs possibles
+        Case testedCase = null;
+        int testedIndex = -1;
+        for (int i = 0; i < trail.getCasesCount(); i++) {
+            Case c = trail.getCase(i);
+            if (!c.hasValue() && (testedCase == null || c.possibleValuesCount() < testedCase.possibleValuesCount())) {
+                testedCase = c;
+                testedIndex = i;
+            }
+        }
+        // si toutes les cases ont une valeur, alors la propagation a validé le puzzle
+        if (testedCase == null) {
+            return true;
+        }
+
+        // on teste ses valeurs dans un ordre aléatoire
+        while (true) {
+            int mark = trail.mark();
+            int value = testedCase.getPossibleValue(context.getRandom().nextInt(0, testedCase.possibleValuesCount()));
+            testedCase.setValue(value);
+            context.countGuess();
+            context.log(testedCase, puzzle);
+            BranchEvent branch = new BranchEvent();
+            branch.begin();
+            boolean accepted = applyTrailBacktracking(context, puzzle, index, constraints, trail, mark, depth + 1);
+            endBranch(branch, context, depth, testedIndex, value, accepted);
+            if (accepted) {
+                return true;
+            }
+            // si la valeur n'était pas la bonne, on annule tout ce qu'elle a entraîné
+            trail.undo(mark);
+            context.countBacktrack();
+            context.log(testedCase, puzzle);
+            // puis on l'enlève des valeurs possibles, ce qui sera aussi annulé si on revient plus haut
+            testedCase.removePossibleValue(value);
+            if (!propagateWithTrail(context, puzzle, index, constraints, trail, mark)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Termine l'événement JFR d'une branche du backtracking, et ne remplit ses champs que s'il est enregistré
+     * @param event L'événement commencé avant d'explorer la branche
+     * @param context Le contexte de la résolution, qui donne l'identifiant du puzzle
+     * @param depth La profondeur de la branche
+     * @param cell L'indice de la case essayée
+     * @param value La valeur essayée
+     * @param accepted Si la valeur a mené à une solution
+     */
+    static void endBranch(BranchEvent event, SolverContext context, int depth, int cell, int value, boolean accepted) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.puzzleId = context.getPuzzleId();
+            event.depth = depth;
+            event.cell = cell;
+            event.value = value;
+            event.accepted = accepted;
+            event.commit();
+        }
+    }
+
+    /**
+     * Prépare la propagation sur un puzzle qui vient d'être attaché à un trail, en enlevant les valeurs des cases déjà résolues à leurs voisins
+     * et en alignant les valeurs possibles des cases superposées
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle attaché au trail, seulement utilisé pour les logs
+     * @param index L'index des voisins du puzzle
+     * @param trail Le trail qui suit les cases du puzzle
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    static boolean initialiseWithTrail(SolverContext context, Puzzle puzzle, PeerIndex index, Trail trail) {
+        for (int i = 0; i < trail.getCasesCount(); i++) {
+            Case c = trail.getCase(i);
+            if (c.possibleValuesCount() == 1 && !eliminateFromPeers(context, puzzle, index, trail, i)) {
+                return false;
+            }
+            for (int link : index.getLinks(i)) {
+                Case linkedCase = trail.getCase(link);
+                for (int value = linkedCase.nextPossibleValue(0); value != -1; value = linkedCase.nextPossibleValue(value + 1)) {
+                    if (!c.isPossibleValue(value) && linkedCase.removePossibleValue(value)) {
+                        context.log(linkedCase, puzzle);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Propage les valeurs enlevées depuis une position du trail jusqu'à ce qu'elles n'enlèvent plus aucune valeur possible :
+     * une case résolue enlève sa valeur à ses voisins, une valeur enlevée l'est aussi des cases superposées, puis on applique les contraintes supplémentaires.
+     * Le trail sert lui-même de file d'attente, puisque chaque valeur enlevée y est ajoutée
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle sur lequel on propage, seulement utilisé pour les logs
+     * @param index L'index des voisins du puzzle
+     * @param constraints Les contraintes supplémentaires à appliquer, qui ne sont jamais retirées de la liste
+     * @param trail Le trail qui suit les cases du puzzle
+     * @param from La position dans le trail à partir de laquelle les modifications n'ont pas encore été propagées
+     * @return Un booléen qui indique si le puzzle est encore résolvable
+     */
+    static boolean propagateWithTrail(SolverContext context, Puzzle puzzle, PeerIndex index, ArrayList<SudokuConstraint> constraints, Trail trail, int from) {
+        int head = from;
+        while (true) {
+            // on traite toutes les valeurs enlevées qui n'ont pas encore été propagées
+            while (head < trail.mark()) {
+                int cell = trail.getEntryCase(head);
+                int value = trail.getEntryValue(head);
+                head++;
+                Case c = trail.getCase(cell);
+                if (!c.isValid()) {
+                    return false;
+                }
+                for (int link : index.getLinks(cell)) {
+                    if (trail.getCase(link).removePossibleValue(value)) {
+                        context.log(trail.getCase(link), puzzle);
+                    }
+                }
+                if (c.possibleValuesCount() == 1 && !eliminateFromPeers(context, puzzle, index, trail, cell)) {
+                    return false;
+                }
+            }
+
+            // puis on applique les contraintes supplémentaires, et on s'arrête si elles ne changent plus rien
+            int before = trail.mark();
+            for (SudokuConstraint constraint : constraints) {
+                int mark = trail.mark();
+                context.countApplication(constraint);
+                if (!constraint.setNewPossibleValues()) {
+                    return false;
+                }
+                // on ne logue que les contraintes qui ont vraiment modifié une case
+                if (trail.mark() != mark) {
+                    context.log(constraint);
+                }
+            }
+            if (trail.mark() == before) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Enlève la valeur d'une case résolue à tous ses voisins
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle sur lequel on propage, seulement utilisé pour les logs
+     * @param index L'index des voisins du puzzle
+     * @param trail Le trail qui suit les cases du puzzle
+     * @param cell L'indice de la case résolue
+     * @return Un booléen qui indique si tous les voisins ont encore au moins une valeur possible
+     */
+    private static boolean eliminateFromPeers(SolverContext context, Puzzle puzzle, PeerIndex index, Trail trail, int cell) {
+        int value = trail.getCase(cell).getValue();
+        for (int peer : index.getPeers(cell)) {
+            Case peerCase = trail.getCase(peer);
+            if (peerCase.removePossibleValue(value)) {
+                context.log(peerCase, puzzle);
+            }
+            if (!peerCase.isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retourne les contraintes ajoutées sur un puzzle en plus de ses contraintes par défaut, comme le fait sa méthode defaultConstraints
+     * @param puzzle Le puzzle
+     * @return La liste de ses contraintes supplémentaires
+     */
+    static ArrayList<SudokuConstraint> addedConstraints(Puzzle puzzle) {
+        ArrayList<SudokuConstraint> constraints = new ArrayList<>();
+        if (puzzle instanceof Sudoku) {
+            constraints.addAll(((Sudoku) puzzle).getAddedConstraints());
+        }
+        else if (puzzle instanceof Multidoku) {
+            for (PlacedSudoku placedSudoku : ((Multidoku) puzzle).getSudokus()) {
+                constraints.addAll(placedSudoku.sudoku().getAddedConstraints());
+            }
+        }
+        return constraints;
+    }
+
+    /**
+     * Compte les solutions d'un puzzle sans le modifier, en s'arrêtant dès qu'on en a trouvé assez : une limite de 2 suffit pour savoir si sa solution est unique
+     * @param puzzle Le puzzle dont on veut compter les solutions
+     * @param limit Le nombre de solutions à partir duquel on arrête de chercher, ou 0 pour toutes les compter
+     * @return Le nombre de solutions, qui ne dépasse pas la limite
+     * @throws IllegalArgumentException Si la limite est négative, ou si une erreur arrive durant la recherche
+     */
+    public static int countSolutions(Puzzle puzzle, int limit) throws IllegalArgumentException {
+        return countSolutions(puzzle, null, limit);
+    }
+
+    /**
+     * Compte les solutions d'un puzzle sans le modifier, en s'arrêtant dès qu'on en a trouvé assez : une limite de 2 suffit pour savoir si sa solution est unique
+     * @param puzzle Le puzzle dont on veut compter les solutions
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @param limit Le nombre de solutions à partir duquel on arrête de chercher, ou 0 pour toutes les compter
+     * @return Le nombre de solutions, qui ne dépasse pas la limite
+     * @throws IllegalArgumentException Si la limite est négative, ou si une erreur arrive durant la recherche
+     */
+    public static int countSolutions(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("La limite ne peut pas être négative");
+        }
+        // la copie ne garde que les valeurs visibles des cases
+        Puzzle newPuzzle = puzzle.copy();
+        return new DancingLinks(newPuzzle, copyConstraints(newPuzzle, additionalConstraints)).solve(limit);
     }
 
     /**
@@ -313,11 +770,26 @@ public abstract class Solver {
      * @throws IllegalArgumentException Si le puzzle donné n'est pas vide, ou si une erreur arrive durant la génération
      */
     public static boolean generateNewSolvedPuzzle(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, ArrayList<String> menuLogs) throws IllegalArgumentException{
-        // on initialise la liste des logs
+        SolverContext context = new SolverContext();
+        boolean returnValue = generateNewSolvedPuzzle(context, puzzle, additionalConstraints);
+
+        // on donne les logs au menu
         if (menuLogs != null) {
-            logs = new ArrayList<>();
+            menuLogs.addAll(context.getLogs());
         }
 
+        return returnValue;
+    }
+
+    /**
+     * Crée une solution possible pour un puzzle vide passé en paramètre
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle sur lequel créé la solution, qui doit être vide
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si le puzzle donné n'est pas vide, ou si une erreur arrive durant la génération
+     */
+    public static boolean generateNewSolvedPuzzle(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException{
         // on vérifie les arguments
         ArrayList<Case> cases = puzzle.casesList();
         for (Case c : cases) {
@@ -327,12 +799,7 @@ public abstract class Solver {
         }
 
         // on utilise l'algo mixte, car il est plus rapide que l'algo de backtracking pur
-        boolean returnValue = solveWithBoth(puzzle, additionalConstraints, null);
-
-        // on donne les logs au menu
-        if (menuLogs != null) {
-            menuLogs.addAll(logs);
-        }
+        boolean returnValue = solveWithBoth(context, puzzle, additionalConstraints);
 
         return returnValue;
     }
@@ -347,11 +814,42 @@ public abstract class Solver {
      * @throws IllegalArgumentException Si le puzzle donné n'est pas résolu, la difficulté n'existe pas, ou si une erreur arrive durant la génération
      */
     public static boolean generateNewPuzzleToSolve(Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, int difficulty, ArrayList<String> menuLogs) throws IllegalArgumentException{
-        // on initialise la liste des logs
+        SolverContext context = new SolverContext();
+        boolean returnValue = generateNewPuzzleToSolve(context, puzzle, additionalConstraints, difficulty);
+
+        // on donne les logs au menu
         if (menuLogs != null) {
-            logs = new ArrayList<>();
+            menuLogs.addAll(context.getLogs());
         }
 
+        return returnValue;
+    }
+
+    /**
+     * Crée un puzzle à résoudre à partir d'un puzzle résolu passé en paramètre
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle sur lequel créé une grille à résoudre, qui doit être résolu
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @param difficulty La difficulté qu'aura le puzzle, soit 1 (facile), 2 (moyen) ou 3 (difficile)
+     * @return Un booléen qui indique si on a enlevé assez de cases pour atteindre la difficulté souhaitée
+     * @throws IllegalArgumentException Si le puzzle donné n'est pas résolu, la difficulté n'existe pas, ou si une erreur arrive durant la génération
+     */
+    public static boolean generateNewPuzzleToSolve(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, int difficulty) throws IllegalArgumentException{
+        return generateNewPuzzleToSolve(context, puzzle, additionalConstraints, difficulty, RemovalSymmetry.NONE, null);
+    }
+
+    /**
+     * Crée un puzzle à résoudre à partir d'un puzzle résolu passé en paramètre, en enlevant les cases par orbites symétriques
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle sur lequel créé une grille à résoudre, qui doit être résolu
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @param difficulty La difficulté qu'aura le puzzle, soit 1 (facile), 2 (moyen) ou 3 (difficile)
+     * @param symmetry La symétrie que doivent respecter les cases enlevées
+     * @param mask Les cases qui peuvent être enlevées, indexées par ligne puis par colonne sur la grille entière, ou null pour toutes les autoriser
+     * @return Un booléen qui indique si on a enlevé assez de cases pour atteindre la difficulté souhaitée
+     * @throws IllegalArgumentException Si le puzzle donné n'est pas résolu, la difficulté n'existe pas, le masque n'a pas la taille de la grille, ou si une erreur arrive durant la génération
+     */
+    public static boolean generateNewPuzzleToSolve(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, int difficulty, RemovalSymmetry symmetry, boolean[][] mask) throws IllegalArgumentException{
         // on vérifie les arguments
         ArrayList<SudokuConstraint> constraints = puzzle.defaultConstraints(null);
         for (SudokuConstraint constraint : constraints) {
@@ -363,122 +861,340 @@ public abstract class Solver {
             throw new IllegalArgumentException("La difficulté doit être comprise entre 1 et 3 !");
         }
 
-        // on applique l'algo
-        boolean returnValue = tryToRemoveValue(puzzle, additionalConstraints, 0, difficulty);
+        // on applique l'algo, avec l'identifiant du puzzle pour les événements des étapes
+        context.setPuzzleId(puzzle.getId());
+        boolean returnValue = tryToRemoveValue(context, puzzle, additionalConstraints, difficulty, symmetry.orbits(puzzle, mask));
 
-        // on donne les logs au menu
-        if (menuLogs != null) {
-            menuLogs.addAll(logs);
+        return returnValue;
+    }
+
+    /**
+     * Crée un puzzle à résoudre dont la difficulté, évaluée par les techniques de déduction nécessaires, est dans un intervalle de niveaux.
+     * On essaie d'enlever chaque case une fois dans un ordre aléatoire, et on la garde enlevée si la solution reste unique et que le niveau ne dépasse pas le maximum
+     * @param context Le contexte de la résolution, qui garde ses logs, sa configuration et ses statistiques
+     * @param puzzle Le puzzle sur lequel créé une grille à résoudre, qui doit être résolu
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @param rater L'évaluateur qui donne le niveau du puzzle
+     * @param minLevel Le niveau minimum que doit atteindre le puzzle
+     * @param maxLevel Le niveau maximum que ne doit pas dépasser le puzzle
+     * @return Un booléen qui indique si le puzzle a atteint le niveau minimum
+     * @throws IllegalArgumentException Si le puzzle donné n'est pas résolu, les niveaux n'existent pas, ou si une erreur arrive durant la génération
+     */
+    public static boolean generateNewPuzzleToSolve(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints, DifficultyRater rater, int minLevel, int maxLevel) throws IllegalArgumentException {
+        // on vérifie les arguments
+        ArrayList<SudokuConstraint> constraints = puzzle.defaultConstraints(null);
+        for (SudokuConstraint constraint : constraints) {
+            if (!(constraint.hasBeenResolved())) {
+                throw new IllegalArgumentException("Le puzzle doit être résolu !");
+            }
+        }
+        if (minLevel < 0 || minLevel > maxLevel || maxLevel > rater.getMaxLevel()) {
+            throw new IllegalArgumentException("Les niveaux doivent être compris entre 0 et " + rater.getMaxLevel() + " et dans l'ordre !");
         }
 
-        return returnValue;
+        // on essaye d'enlever chaque case dans un ordre aléatoire, et on la remontre si le puzzle devient ambigu ou trop dur
+        context.setPuzzleId(puzzle.getId());
+        ArrayList<Case> casesList = puzzle.casesList();
+        int level = 0;
+        int emptyCases = 0;
+        for (Case c : casesList) {
+            if (c.getValue() == -1) {
+                emptyCases++;
+            }
+        }
+        for (int i : shuffledOrder(context, casesList.size())) {
+            Case candidate = casesList.get(i);
+            if (candidate.getValue() == -1) continue;
+            candidate.hideValue();
+            context.log(candidate, puzzle);
+            RemovalEvent removal = new RemovalEvent();
+            removal.begin();
+            if (countSolutions(puzzle, additionalConstraints, 2) == 1) {
+                DifficultyRating rating = rater.rate(puzzle, additionalConstraints);
+                if (rating.level() <= maxLevel) {
+                    level = rating.level();
+                    emptyCases++;
+                    endRemoval(removal, context, 1, true, emptyCases);
+                    continue;
+                }
+            }
+            candidate.showValue();
+            context.log(candidate, puzzle);
+            endRemoval(removal, context, 1, false, emptyCases);
+        }
+
+        return level >= minLevel;
     }
 
     /**
-     * Applique l'algo de création de puzzle à résoudre sur un puzzle passé en paramètre
+     * Applique l'algo de création de puzzle à résoudre sur un puzzle passé en paramètre : on essaie d'enlever chaque orbite de cases une fois dans un ordre aléatoire,
+     * car une orbite qui ne peut pas être enlevée ne le pourra pas non plus quand d'autres cases auront été enlevées
+     * @param context Le contexte de la résolution
      * @param puzzle Le puzzle auquel on essaye d'enlever des cases
      * @param constraints Des contraintes supplémentaires sur le puzzle si on veut en spécifier
-     * @param removedCases Le nombre de cases enlevées sur le puzzle donné
      * @param difficulty La difficulté que l'on souhaite avoir sur le puzzle, soit 1 (facile), 2 (moyen) ou 3 (difficile)
+     * @param orbits Les groupes de cases qui sont enlevés ensemble, chacun étant la liste des indices de ses cases
      * @return Un booléen qui indique si on a enlevé assez de cases pour atteindre la difficulté souhaitée
      * @throws IllegalArgumentException Si une erreur arrive durant la génération
      */
-    private static boolean tryToRemoveValue(Puzzle puzzle, ArrayList<SudokuConstraint> constraints, int removedCases, int difficulty) throws IllegalArgumentException {
-        ArrayList<Case> casesList =  puzzle.casesList();
-        // si assez de cases ont été enlevées on retourne le puzzle
-        // facile = 50%, moyen = 67%, difficile = 75%
-        if ((casesList.size() - removedCases) * (difficulty + 1) <= casesList.size()) {
-            return true;
+    private static boolean tryToRemoveValue(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> constraints, int difficulty, ArrayList<int[]> orbits) throws IllegalArgumentException {
+        ArrayList<Case> casesList = puzzle.casesList();
+
+        // la copie vide du puzzle, son index, ses contraintes et son trail sont créés une seule fois et réutilisés à chaque case
+        boolean[] hidden = new boolean[casesList.size()];
+        int removedCases = 0;
+        for (int i = 0; i < casesList.size(); i++) {
+            hidden[i] = (casesList.get(i).getValue() == -1);
+            if (hidden[i]) {
+                removedCases++;
+            }
+            casesList.get(i).hideValue();
         }
-        // on cherche une case à supprimer au hasard
-        int candidateNumber = ThreadLocalRandom.current().nextInt(0, casesList.size());
-        Case candidate;
-        int i = 0;
-        do {
-            // si la case n'est pas déjà vide alors on cache sa valeur et on regarde si le puzzle est résolvable
-            if (!(casesList.get(candidateNumber).getValue() == -1)) {
-                candidate = casesList.get(candidateNumber);
-                candidate.hideValue();
-                log(candidate, puzzle);
-                // on met à jour les contraintes sur la copie du puzzle
-                Puzzle newPuzzle = puzzle.copy();
-                ArrayList<SudokuConstraint> newConstraints = copyConstraints(newPuzzle, constraints);
-                // on utilise l'algo par contraintes, car on est sûr qu'une bonne solution est unique
-                stopLogging = true;
-                boolean isSolvable = solveWithConstraints(newPuzzle, newConstraints, null);
-                stopLogging = false;
-                // si le puzzle est résolvable alors on essaye d'enlever une autre case
-                if (isSolvable) {
-                    boolean hasWorked = tryToRemoveValue(puzzle, constraints, removedCases + 1, difficulty);
-                    // si l'algo a marché
-                    if (hasWorked) {
-                        return true;
+        Puzzle emptyPuzzle = puzzle.copy();
+        for (int i = 0; i < casesList.size(); i++) {
+            if (!hidden[i]) {
+                casesList.get(i).showValue();
+            }
+        }
+        ArrayList<SudokuConstraint> emptyConstraints = null;
+        PeerIndex index = null;
+        Trail trail = null;
+
+        // chaque orbite n'est essayée qu'une fois, dans un ordre tiré au début, et une orbite gardée ne sera plus jamais enlevée.
+        // On propage donc une seule fois les indices hors des orbites, puis ceux de chaque orbite dans l'ordre inverse des essais, en notant le trail avant chacune :
+        // pour essayer une orbite, il suffit de revenir à sa marque, où seules les orbites pas encore essayées sont visibles, et de remettre les orbites gardées
+        int[] order = shuffledOrder(context, orbits.size());
+        int[] marks = null;
+        int[] keptCells = null;
+        int keptCount = 0;
+        boolean propagated = true;
+        if (!context.isCountingSolutions()) {
+            emptyConstraints = copyConstraints(emptyPuzzle, constraints);
+            emptyConstraints.addAll(addedConstraints(emptyPuzzle));
+            index = emptyPuzzle.peerIndex();
+            trail = new Trail(emptyPuzzle);
+            boolean[] inOrbit = new boolean[casesList.size()];
+            for (int[] orbit : orbits) {
+                for (int cell : orbit) {
+                    inOrbit[cell] = true;
+                }
+            }
+            int[] clues = new int[casesList.size()];
+            int cluesCount = 0;
+            for (int i = 0; i < casesList.size(); i++) {
+                if (!hidden[i] && !inOrbit[i]) {
+                    clues[cluesCount++] = i;
+                }
+            }
+            propagated = addClues(context, emptyPuzzle, index, emptyConstraints, trail, casesList, clues, cluesCount);
+            marks = new int[order.length];
+            for (int position = order.length - 1; position >= 0; position--) {
+                marks[position] = trail.mark();
+                cluesCount = 0;
+                for (int cell : orbits.get(order[position])) {
+                    if (!hidden[cell]) {
+                        clues[cluesCount++] = cell;
                     }
                 }
-                // sinon, on remontre la valeur de la case et on passe à la suivante
+                propagated &= addClues(context, emptyPuzzle, index, emptyConstraints, trail, casesList, clues, cluesCount);
+            }
+            keptCells = new int[casesList.size()];
+        }
+
+        try {
+            for (int position = 0; position < order.length; position++) {
+                int orbitNumber = order[position];
+                // si assez de cases ont été enlevées on retourne le puzzle
+                // facile = 50%, moyen = 67%, difficile = 75%
+                if ((casesList.size() - removedCases) * (difficulty + 1) <= casesList.size()) {
+                    return true;
+                }
+
+                // on cache les valeurs des cases de l'orbite qui ne sont pas déjà vides
+                int[] orbit = orbits.get(orbitNumber);
+                int[] hiddenCells = new int[orbit.length];
+                int hiddenCount = 0;
+                for (int cell : orbit) {
+                    if (!hidden[cell]) {
+                        casesList.get(cell).hideValue();
+                        context.log(casesList.get(cell), puzzle);
+                        hidden[cell] = true;
+                        hiddenCells[hiddenCount++] = cell;
+                    }
+                }
+                if (hiddenCount == 0) continue;
+
+                // puis on regarde une seule fois si le puzzle est encore résolvable
+                RemovalEvent removal = new RemovalEvent();
+                removal.begin();
+                boolean isSolvable;
+                if (context.isCountingSolutions()) {
+                    // on vérifie directement que la solution est toujours unique
+                    isSolvable = countSolutions(puzzle, constraints, 2) == 1;
+                }
+                else {
+                    // on revient à l'état où seules les orbites pas encore essayées sont visibles, on remet les orbites gardées,
+                    // et on regarde si les déductions retrouvent les valeurs de l'orbite
+                    trail.undo(marks[position]);
+                    for (int k = 0; k < keptCount; k++) {
+                        trail.getCase(keptCells[k]).setValue(casesList.get(keptCells[k]).getValue());
+                    }
+                    isSolvable = propagated && deducesCases(context, emptyPuzzle, index, emptyConstraints, trail, orbit, marks[position]);
+                }
+                if (isSolvable) {
+                    removedCases += hiddenCount;
+                }
+                // sinon, on remontre les valeurs des cases et on passe à l'orbite suivante
                 else {
-                    candidate.showValue();
-                    log(candidate, puzzle);
+                    for (int k = 0; k < hiddenCount; k++) {
+                        Case candidate = casesList.get(hiddenCells[k]);
+                        candidate.showValue();
+                        context.log(candidate, puzzle);
+                        hidden[hiddenCells[k]] = false;
+                        if (keptCells != null) {
+                            keptCells[keptCount++] = hiddenCells[k];
+                        }
+                    }
                 }
+                endRemoval(removal, context, hiddenCount, isSolvable, removedCases);
             }
-            i++;
-            candidateNumber = (candidateNumber + 1) % casesList.size();
-        } while (i < casesList.size());
-        // si on a testé toutes les cases et qu'aucune ne marche, c'est qu'on ne peut pas en enlever plus
-        return false;
+        }
+        finally {
+            if (trail != null) {
+                trail.detach();
+            }
+        }
+        // on a testé toutes les cases, et on regarde si on en a enlevé assez
+        return (casesList.size() - removedCases) * (difficulty + 1) <= casesList.size();
     }
 
     /**
-     * Copie une liste de contraintes faisant référence à un ancien puzzle en des contraintes faisant référence à un nouveau puzzle
-     * @param newPuzzle Le nouveau puzzle auquel faire référence
-     * @param constraints Les contraintes à copier
-     * @return Une copie de la liste de contraintes faisant référence au nouveau puzzle
-     * @throws IllegalArgumentException Si le puzzle passé en argument n'est pas une copie du puzzle sur lequel s'appliquent les contraintes
+     * Termine l'événement JFR d'une étape du générateur, et ne remplit ses champs que s'il est enregistré
+     * @param event L'événement commencé avant de tester les cases
+     * @param context Le contexte de la génération, qui a l'identifiant du puzzle
+     * @param cells Le nombre de cases que l'on a essayé d'enlever
+     * @param removed Si les cases ont été enlevées
+     * @param emptyCases Le nombre de cases vides du puzzle après cette étape
      */
-    private static ArrayList<SudokuConstraint> copyConstraints(Puzzle newPuzzle, ArrayList<SudokuConstraint> constraints) throws IllegalArgumentException {
-        ArrayList<SudokuConstraint> newConstraints = new ArrayList<>();
-        if (constraints != null) {
-            for (SudokuConstraint constraint : constraints) {
-                newConstraints.add(constraint.copy(newPuzzle));
+    private static void endRemoval(RemovalEvent event, SolverContext context, int cells, boolean removed, int emptyCases) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.puzzleId = context.getPuzzleId();
+            event.cells = cells;
+            event.removed = removed;
+            event.emptyCases = emptyCases;
+            event.commit();
+        }
+    }
+
+    /**
+     * Ajoute des indices à la copie vide du générateur et les propage, sans appliquer les règles de déduction
+     * @param context Le contexte de la génération
+     * @param puzzle La copie vide attachée au trail, seulement utilisée pour les logs
+     * @param index L'index des voisins du puzzle
+     * @param constraints Les contraintes supplémentaires sur la copie
+     * @param trail Le trail qui suit les cases de la copie, dont toutes les modifications ont déjà été propagées
+     * @param casesList Les cases du puzzle généré, qui donnent les valeurs des indices
+     * @param cells Les indices des cases à ajouter
+     * @param count Le nombre de cases à ajouter
+     * @return Si la propagation n'a pas mené à une contradiction
+     */
+    private static boolean addClues(SolverContext context, Puzzle puzzle, PeerIndex index, ArrayList<SudokuConstraint> constraints, Trail trail, ArrayList<Case> casesList, int[] cells, int count) {
+        boolean logging = context.isLogging();
+        context.setLogging(false);
+        try {
+            int mark = trail.mark();
+            for (int k = 0; k < count; k++) {
+                trail.getCase(cells[k]).setValue(casesList.get(cells[k]).getValue());
             }
+            return propagateWithTrail(context, puzzle, index, constraints, trail, mark);
+        }
+        finally {
+            context.setLogging(logging);
         }
-        return newConstraints;
     }
 
     /**
-     * Rajoute un log à la suite dans la liste des logs
-     * @param c La case que l'on veut logger
-     * @param puzzle Le puzzle auquel appartient la case
+     * Applique les déductions sur un puzzle dont des cases viennent d'être vidées, en s'arrêtant dès que les valeurs de ces cases sont retrouvées :
+     * les autres cases visibles du puzzle permettaient déjà de le résoudre, donc il sera résolu lui aussi
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle attaché au trail, seulement utilisé pour les logs
+     * @param index L'index des voisins du puzzle
+     * @param constraints Les contraintes supplémentaires sur le puzzle
+     * @param trail Le trail qui suit les cases du puzzle
+     * @param cells Les indices des cases vidées
+     * @param from La position dans le trail à partir de laquelle les modifications n'ont pas encore été propagées
+     * @return Si les déductions retrouvent les valeurs de toutes les cases
      */
-    private static void log(Case c, Puzzle puzzle) {
+    private static boolean deducesCases(SolverContext context, Puzzle puzzle, PeerIndex index, ArrayList<SudokuConstraint> constraints, Trail trail, int[] cells, int from) {
+        boolean logging = context.isLogging();
+        context.setLogging(false);
         try {
-            if (stopLogging) return;
-            StringBuilder sb = new StringBuilder();
-            if (puzzle instanceof Multidoku) {
-                // position du sudoku
-                PlacedSudoku placedSudoku = ((Multidoku) puzzle).getSudoku(c);
-                sb.append(placedSudoku.line() + 1).append(" ").append(placedSudoku.column() + 1).append(" ");
+            int head = from;
+            while (true) {
+                if (!propagateWithTrail(context, puzzle, index, constraints, trail, head)) {
+                    return false;
+                }
+                boolean allFound = true;
+                for (int cell : cells) {
+                    allFound &= trail.getCase(cell).hasValue();
+                }
+                if (allFound) {
+                    return true;
+                }
+                // on applique la règle la moins coûteuse qui change quelque chose, puis on propage ce qu'elle a enlevé
+                head = trail.mark();
+                for (DeductionRule rule : context.getRules()) {
+                    context.countApplication(rule);
+                    if (!rule.apply(index, trail)) {
+                        return false;
+                    }
+                    if (trail.mark() != head) break;
+                }
+                if (trail.mark() == head) {
+                    return false;
+                }
             }
-            // position de la case
-            sb.append(c.getLine() + 1).append(" ").append(c.getColumn() + 1).append(" ");
-            // valeur de la case
-            sb.append("-> ").append(c.getValue() + 1);
-            logs.addLast(sb.toString());
         }
-        catch (RuntimeException e) {
-            logs.addLast("Erreur de création de log : " + e.getMessage());
+        finally {
+            context.setLogging(logging);
         }
     }
 
     /**
-     * Rajoute un log à la suite dans la liste des logs
-     * @param constraint La contrainte qui s'applique sur la case que l'on veut logger
+     * Crée un ordre aléatoire dans lequel parcourir les cases d'un puzzle
+     * @param context Le contexte de la résolution, qui donne le générateur de nombres aléatoires
+     * @param size Le nombre de cases
+     * @return Les indices des cases dans un ordre aléatoire
      */
-    private static void log(SudokuConstraint constraint) {
-        if (stopLogging) return;
-        String log = constraint.log();
-        if (log != null) {
-            logs.addLast(log);
+    private static int[] shuffledOrder(SolverContext context, int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
         }
+        for (int i = size - 1; i > 0; i--) {
+            int j = context.getRandom().nextInt(0, i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    /**
+     * Copie une liste de contraintes faisant référence à un ancien puzzle en des contraintes faisant référence à un nouveau puzzle
+     * @param newPuzzle Le nouveau puzzle auquel faire référence
+     * @param constraints Les contraintes à copier
+     * @return Une copie de la liste de contraintes faisant référence au nouveau puzzle
+     * @throws IllegalArgumentException Si le puzzle passé en argument n'est pas une copie du puzzle sur lequel s'appliquent les contraintes
+     */
+    static ArrayList<SudokuConstraint> copyConstraints(Puzzle newPuzzle, ArrayList<SudokuConstraint> constraints) throws IllegalArgumentException {
+        ArrayList<SudokuConstraint> newConstraints = new ArrayList<>();
+        if (constraints != null) {
+            for (SudokuConstraint constraint : constraints) {
+                newConstraints.add(constraint.copy(newPuzzle));
+            }
+        }
+        return newConstraints;
     }
 }
@@ -0,0 +1,79 @@
+package Operations;
+
+import Constraints.*;
+import Grids.*;
+
+import java.util.ArrayList;
+
+/**
+ * Les différents algorithmes de résolution proposés par le solveur, pour pouvoir en choisir un sans passer par le menu
+ */
+public enum SolverAlgorithm {
+    /**
+     * Les règles de déduction uniquement
+     */
+    CONSTRAINTS,
+    /**
+     * Le backtracking uniquement
+     */
+    BACKTRACKING,
+    /**
+     * Un mix des règles de déduction et du backtracking
+     */
+    BOTH,
+    /**
+     * Un mix des règles de déduction et du backtracking, sans copier la grille
+     */
+    TRAIL,
+    /**
+     * La couverture exacte avec les liens dansants
+     */
+    DANCING_LINKS,
+    /**
+     * Un mix des règles de déduction et du backtracking, dont les premiers niveaux sont explorés en parallèle
+     */
+    PARALLEL;
+
+    /**
+     * Essaie de résoudre un puzzle avec cet algorithme
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Un booléen qui indique si le puzzle est résolvable
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public boolean solve(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        switch (this) {
+            case CONSTRAINTS:
+                return Solver.solveWithConstraints(context, puzzle, additionalConstraints);
+            case BACKTRACKING:
+                return Solver.solveWithBacktracking(context, puzzle, additionalConstraints);
+            case BOTH:
+                return Solver.solveWithBoth(context, puzzle, additionalConstraints);
+            case TRAIL:
+                return Solver.solveWithTrail(context, puzzle, additionalConstraints);
+            case DANCING_LINKS:
+                return Solver.solveWithDancingLinks(context, puzzle, additionalConstraints);
+            default:
+                return Solver.solveWithParallelSearch(context, puzzle, additionalConstraints);
+        }
+    }
+
+    /**
+     * Résout un puzzle avec cet algorithme en mesurant la résolution : les statistiques du contexte sont remises à zéro avant de commencer.
+     * Pour l'algorithme parallèle, la mémoire allouée n'est mesurée que sur le thread appelant
+     * @param context Le contexte de la résolution
+     * @param puzzle Le puzzle qu'on veut résoudre
+     * @param additionalConstraints Des contraintes supplémentaires si on veut en rajouter
+     * @return Le résultat de la résolution, avec ses statistiques
+     * @throws IllegalArgumentException Si une erreur arrive durant la résolution
+     */
+    public SolveResult solveWithStatistics(SolverContext context, Puzzle puzzle, ArrayList<SudokuConstraint> additionalConstraints) throws IllegalArgumentException {
+        context.resetStatistics();
+        SolverStatistics statistics = context.getStatistics();
+        statistics.start();
+        boolean solved = this.solve(context, puzzle, additionalConstraints);
+        statistics.stop();
+        return new SolveResult(solved, statistics);
+    }
+}
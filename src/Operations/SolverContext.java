@@ -0,0 +1,319 @@
+package Operations;
+
+import Constraints.*;
+import Grids.*;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Un SolverContext regroupe tout ce qui appartient à une seule exécution du solveur : ses logs, sa configuration et ses statistiques.
+ * Chaque résolution a son propre contexte, ce qui permet de lancer plusieurs résolutions en même temps sur des threads différents,
+ * tant qu'un même contexte n'est pas partagé entre plusieurs threads
+ */
+public class SolverContext {
+    /**
+     * Ce qui reçoit les opérations effectuées lors de la résolution, une liste en mémoire par défaut
+     */
+    private LogSink logSink;
+    /**
+     * Indique si l'algorithme doit momentanément cesser de logger l'opération
+     */
+    private boolean stopLogging;
+    /**
+     * Les règles de déduction sur les unités à appliquer quand les contraintes ne changent plus rien, de la moins coûteuse à la plus coûteuse
+     */
+    private ArrayList<DeductionRule> rules;
+    /**
+     * Indique si le générateur vérifie que la solution reste unique en comptant les solutions, plutôt qu'en résolvant avec les règles de déduction
+     */
+    private boolean countingSolutions;
+    /**
+     * Le générateur de nombres aléatoires utilisé pour choisir les valeurs et les cases, ou null pour utiliser celui du thread courant
+     */
+    private RandomGenerator random;
+    /**
+     * Les statistiques de la résolution
+     */
+    private SolverStatistics statistics;
+    /**
+     * L'identifiant du puzzle en cours de résolution, donné par Puzzle.getId, qui relie entre eux ses événements JFR
+     */
+    private long puzzleId;
+
+    /**
+     * Constructeur de la classe, qui utilise les règles de déduction par défaut
+     */
+    public SolverContext() {
+        this.logSink = new ListLogSink();
+        this.stopLogging = false;
+        this.rules = DeductionRule.defaultRules();
+        this.countingSolutions = false;
+        this.random = null;
+        this.statistics = new SolverStatistics();
+        this.puzzleId = 0;
+    }
+
+    /**
+     * Constructeur de la classe, dont les choix aléatoires sont tirés d'une graine : deux résolutions avec la même graine font les mêmes choix
+     * @param seed La graine du générateur de nombres aléatoires
+     */
+    public SolverContext(long seed) {
+        this();
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Crée le contexte d'une partie d'une résolution faite sur un autre thread, comme une tâche de la recherche parallèle.
+     * Il a les mêmes règles, le même mode de génération et le même puzzle, ne logue rien, et son générateur de nombres aléatoires est tiré de celui de ce contexte,
+     * ou est celui de son thread si ce contexte n'en a pas
+     * @return Le nouveau contexte, dont les statistiques sont à zéro
+     */
+    SolverContext child() {
+        SolverContext child = new SolverContext();
+        child.stopLogging = true;
+        child.rules = this.rules;
+        child.countingSolutions = this.countingSolutions;
+        child.puzzleId = this.puzzleId;
+        if (this.random instanceof RandomGenerator.SplittableGenerator) {
+            child.random = ((RandomGenerator.SplittableGenerator) this.random).split();
+        }
+        else if (this.random != null) {
+            child.random = new SplittableRandom(this.random.nextLong());
+        }
+        return child;
+    }
+
+    /**
+     * Rajoute un log à la suite dans la liste des logs
+     * @param c La case que l'on veut logger
+     * @param puzzle Le puzzle auquel appartient la case
+     */
+    void log(Case c, Puzzle puzzle) {
+        try {
+            if (this.stopLogging) return;
+            StringBuilder sb = new StringBuilder();
+            if (puzzle instanceof Multidoku) {
+                // position du sudoku
+                PlacedSudoku placedSudoku = ((Multidoku) puzzle).getSudoku(c);
+                sb.append(placedSudoku.line() + 1).append(" ").append(placedSudoku.column() + 1).append(" ");
+            }
+            // position de la case
+            sb.append(c.getLine() + 1).append(" ").append(c.getColumn() + 1).append(" ");
+            // valeur de la case
+            sb.append("-> ").append(c.getValue() + 1);
+            this.logSink.log(sb.toString());
+        }
+        catch (RuntimeException e) {
+            this.logSink.log("Erreur de création de log : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rajoute un log à la suite dans la liste des logs
+     * @param constraint La contrainte qui s'applique sur la case que l'on veut logger
+     */
+    void log(SudokuConstraint constraint) {
+        if (this.stopLogging) return;
+        String log = constraint.log();
+        if (log != null) {
+            this.logSink.log(log);
+        }
+    }
+
+    /**
+     * Getter des logs de la résolution gardés en mémoire
+     * @return La liste des logs, dans l'ordre où ils ont été ajoutés, ou une liste vide si les logs sont envoyés ailleurs que dans un ListLogSink
+     */
+    public ArrayList<String> getLogs() {
+        if (this.logSink instanceof ListLogSink) {
+            return ((ListLogSink) this.logSink).getLogs();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Getter de ce qui reçoit les logs de la résolution
+     * @return Le LogSink du contexte
+     */
+    public LogSink getLogSink() {
+        return this.logSink;
+    }
+
+    /**
+     * Setter de ce qui reçoit les logs de la résolution, par exemple un FileLogSink pour écrire les logs d'une longue recherche pendant qu'elle avance.
+     * Le contexte ne ferme pas le LogSink, c'est à celui qui l'a créé de le faire une fois la résolution terminée
+     * @param logSink Le LogSink à utiliser
+     * @throws IllegalArgumentException Si le LogSink est nul
+     */
+    public void setLogSink(LogSink logSink) throws IllegalArgumentException {
+        if (logSink == null) {
+            throw new IllegalArgumentException("Le LogSink ne peut pas être nul");
+        }
+        this.logSink = logSink;
+    }
+
+    /**
+     * Indique si les opérations sont actuellement loguées
+     * @return Si les opérations sont loguées
+     */
+    public boolean isLogging() {
+        return !this.stopLogging;
+    }
+
+    /**
+     * Arrête ou reprend le log des opérations, par exemple pendant une résolution intermédiaire dont on ne veut pas garder les étapes
+     * @param logging Si les opérations doivent être loguées
+     */
+    public void setLogging(boolean logging) {
+        this.stopLogging = !logging;
+    }
+
+    /**
+     * Getter des règles de déduction utilisées par le solveur
+     * @return Les règles, de la moins coûteuse à la plus coûteuse
+     */
+    public ArrayList<DeductionRule> getRules() {
+        return this.rules;
+    }
+
+    /**
+     * Setter des règles de déduction utilisées par le solveur
+     * @param rules Les règles, de la moins coûteuse à la plus coûteuse, ou une liste vide pour n'utiliser que les contraintes
+     * @throws IllegalArgumentException Si la liste des règles est nulle
+     */
+    public void setRules(ArrayList<DeductionRule> rules) throws IllegalArgumentException {
+        if (rules == null) {
+            throw new IllegalArgumentException("La liste des règles ne peut pas être nulle");
+        }
+        this.rules = rules;
+    }
+
+    /**
+     * Indique si le générateur vérifie que la solution reste unique en comptant les solutions
+     * @return Si le générateur compte les solutions
+     */
+    public boolean isCountingSolutions() {
+        return this.countingSolutions;
+    }
+
+    /**
+     * Choisit comment le générateur vérifie que la solution reste unique : en comptant les solutions, ce qui permet d'enlever plus de cases,
+     * ou en résolvant avec les règles de déduction, ce qui garde des grilles résolvables sans backtracking
+     * @param countingSolutions Si le générateur doit compter les solutions
+     */
+    public void setCountingSolutions(boolean countingSolutions) {
+        this.countingSolutions = countingSolutions;
+    }
+
+    /**
+     * Getter du générateur de nombres aléatoires utilisé par le solveur
+     * @return Le générateur du contexte, ou celui du thread courant si le contexte n'en a pas
+     */
+    public RandomGenerator getRandom() {
+        return (this.random != null) ? this.random : ThreadLocalRandom.current();
+    }
+
+    /**
+     * Setter du générateur de nombres aléatoires utilisé par le solveur, un générateur initialisé avec une graine rendant la résolution et la génération reproductibles
+     * @param random Le générateur à utiliser, ou null pour utiliser celui du thread courant
+     */
+    public void setRandom(RandomGenerator random) {
+        this.random = random;
+    }
+
+    /**
+     * Compte une valeur essayée par le backtracking
+     */
+    void countGuess() {
+        this.statistics.countGuess();
+    }
+
+    /**
+     * Compte une valeur essayée par le backtracking qui s'est révélée fausse
+     */
+    void countBacktrack() {
+        this.statistics.countBacktrack();
+    }
+
+    /**
+     * Compte un nœud visité par la recherche
+     * @param depth La profondeur du nœud
+     */
+    void countNode(int depth) {
+        this.statistics.countNode(depth);
+    }
+
+    /**
+     * Compte une copie de puzzle
+     */
+    void countCopy() {
+        this.statistics.countCopy();
+    }
+
+    /**
+     * Compte une application d'une contrainte ou d'une règle de déduction
+     * @param applied La contrainte ou la règle appliquée
+     */
+    void countApplication(Object applied) {
+        this.statistics.countApplication(applied);
+    }
+
+    /**
+     * Compte une application d'une contrainte, et la logue
+     * @param constraint La contrainte appliquée
+     */
+    void applied(SudokuConstraint constraint) {
+        this.countApplication(constraint);
+        this.log(constraint);
+    }
+
+    /**
+     * Getter de l'identifiant du puzzle en cours de résolution
+     * @return L'identifiant, ou 0 si aucune résolution n'a commencé
+     */
+    long getPuzzleId() {
+        return this.puzzleId;
+    }
+
+    /**
+     * Setter de l'identifiant du puzzle en cours de résolution
+     * @param puzzleId L'identifiant, donné par Puzzle.getId
+     */
+    void setPuzzleId(long puzzleId) {
+        this.puzzleId = puzzleId;
+    }
+
+    /**
+     * Getter du nombre de valeurs essayées par le backtracking
+     * @return Le nombre de valeurs essayées
+     */
+    public long getGuesses() {
+        return this.statistics.getGuesses();
+    }
+
+    /**
+     * Getter du nombre de valeurs essayées par le backtracking qui se sont révélées fausses
+     * @return Le nombre de retours en arrière
+     */
+    public long getBacktracks() {
+        return this.statistics.getBacktracks();
+    }
+
+    /**
+     * Getter des statistiques des résolutions faites avec ce contexte depuis sa création ou sa dernière remise à zéro
+     * @return Les statistiques
+     */
+    public SolverStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Remet les statistiques à zéro, sans modifier celles données auparavant par getStatistics
+     */
+    public void resetStatistics() {
+        this.statistics = new SolverStatistics();
+    }
+}
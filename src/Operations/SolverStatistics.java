@@ -0,0 +1,248 @@
+package Operations;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Les statistiques d'une résolution : le travail fait par la recherche, le nombre de fois que chaque sorte de contrainte ou de règle a été appliquée,
+ * les copies de puzzles, la mémoire allouée et la durée. Elles sont remplies par le solveur au travers du contexte de la résolution,
+ * et ne doivent donc pas être partagées entre plusieurs threads
+ */
+public class SolverStatistics {
+    /**
+     * Le nombre de nœuds de l'arbre de recherche visités, c'est-à-dire le nombre d'appels de la recherche récursive
+     */
+    private long nodes;
+    /**
+     * La profondeur maximale atteinte par la recherche, la racine étant à la profondeur 0
+     */
+    private int maxDepth;
+    /**
+     * Le nombre de valeurs essayées par la recherche
+     */
+    private long guesses;
+    /**
+     * Le nombre de valeurs essayées par la recherche qui se sont révélées fausses
+     */
+    private long backtracks;
+    /**
+     * Le nombre d'applications de chaque classe de contrainte ou de règle de déduction
+     */
+    private final HashMap<Class<?>, long[]> applications;
+    /**
+     * Le nombre de copies de puzzles faites par le solveur
+     */
+    private long copies;
+    /**
+     * Le nombre d'octets alloués par le thread de la résolution, ou -1 si la machine virtuelle ne sait pas le mesurer
+     */
+    private long allocatedBytes;
+    /**
+     * La durée de la résolution, en nanosecondes
+     */
+    private long elapsedNanos;
+    /**
+     * Le moment du début de la mesure, en nanosecondes
+     */
+    private long startNanos;
+    /**
+     * Le nombre d'octets déjà alloués par le thread au début de la mesure
+     */
+    private long startBytes;
+
+    /**
+     * Constructeur de la classe, avec toutes les statistiques à zéro
+     */
+    public SolverStatistics() {
+        this.nodes = 0;
+        this.maxDepth = 0;
+        this.guesses = 0;
+        this.backtracks = 0;
+        this.applications = new HashMap<>();
+        this.copies = 0;
+        this.allocatedBytes = 0;
+        this.elapsedNanos = 0;
+        this.startNanos = 0;
+        this.startBytes = 0;
+    }
+
+    /**
+     * Compte un nœud visité par la recherche
+     * @param depth La profondeur du nœud
+     */
+    void countNode(int depth) {
+        this.nodes++;
+        if (depth > this.maxDepth) {
+            this.maxDepth = depth;
+        }
+    }
+
+    /**
+     * Compte une valeur essayée par la recherche
+     */
+    void countGuess() {
+        this.guesses++;
+    }
+
+    /**
+     * Compte une valeur essayée par la recherche qui s'est révélée fausse
+     */
+    void countBacktrack() {
+        this.backtracks++;
+    }
+
+    /**
+     * Compte une application d'une contrainte ou d'une règle de déduction
+     * @param applied La contrainte ou la règle appliquée
+     */
+    void countApplication(Object applied) {
+        long[] count = this.applications.get(applied.getClass());
+        if (count == null) {
+            count = new long[1];
+            this.applications.put(applied.getClass(), count);
+        }
+        count[0]++;
+    }
+
+    /**
+     * Compte une copie de puzzle
+     */
+    void countCopy() {
+        this.copies++;
+    }
+
+    /**
+     * Commence à mesurer la durée et la mémoire allouée par le thread courant
+     */
+    void start() {
+        this.startBytes = currentThreadAllocatedBytes();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Arrête la mesure commencée par start, qui doit être faite sur le même thread
+     */
+    void stop() {
+        this.elapsedNanos = System.nanoTime() - this.startNanos;
+        long bytes = currentThreadAllocatedBytes();
+        this.allocatedBytes = (bytes == -1 || this.startBytes == -1) ? -1 : bytes - this.startBytes;
+    }
+
+    /**
+     * Ajoute les statistiques d'une autre résolution à celles-ci, la profondeur maximale étant la plus grande des deux
+     * @param other Les statistiques à ajouter
+     */
+    void add(SolverStatistics other) {
+        this.nodes += other.nodes;
+        this.maxDepth = Math.max(this.maxDepth, other.maxDepth);
+        this.guesses += other.guesses;
+        this.backtracks += other.backtracks;
+        for (Map.Entry<Class<?>, long[]> entry : other.applications.entrySet()) {
+            long[] count = this.applications.get(entry.getKey());
+            if (count == null) {
+                count = new long[1];
+                this.applications.put(entry.getKey(), count);
+            }
+            count[0] += entry.getValue()[0];
+        }
+        this.copies += other.copies;
+        this.allocatedBytes = (this.allocatedBytes == -1 || other.allocatedBytes == -1) ? -1 : this.allocatedBytes + other.allocatedBytes;
+        this.elapsedNanos += other.elapsedNanos;
+    }
+
+    /**
+     * Mesure le nombre d'octets alloués par le thread courant depuis son démarrage
+     * @return Le nombre d'octets, ou -1 si la machine virtuelle ne sait pas le mesurer
+     */
+    private static long currentThreadAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getCurrentThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Getter du nombre de nœuds de l'arbre de recherche visités
+     * @return Le nombre de nœuds
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Getter de la profondeur maximale atteinte par la recherche
+     * @return La profondeur maximale
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * Getter du nombre de valeurs essayées par la recherche
+     * @return Le nombre de valeurs essayées
+     */
+    public long getGuesses() {
+        return this.guesses;
+    }
+
+    /**
+     * Getter du nombre de valeurs essayées par la recherche qui se sont révélées fausses
+     * @return Le nombre de retours en arrière
+     */
+    public long getBacktracks() {
+        return this.backtracks;
+    }
+
+    /**
+     * Getter du nombre d'applications de chaque classe de contrainte ou de règle de déduction
+     * @return Le nombre d'applications, indexé par le nom de la classe et trié par ce nom
+     */
+    public TreeMap<String, Long> getApplications() {
+        TreeMap<String, Long> applications = new TreeMap<>();
+        for (Map.Entry<Class<?>, long[]> entry : this.applications.entrySet()) {
+            applications.merge(entry.getKey().getSimpleName(), entry.getValue()[0], Long::sum);
+        }
+        return applications;
+    }
+
+    /**
+     * Getter du nombre de copies de puzzles faites par le solveur
+     * @return Le nombre de copies
+     */
+    public long getCopies() {
+        return this.copies;
+    }
+
+    /**
+     * Getter du nombre d'octets alloués par le thread de la résolution
+     * @return Le nombre d'octets, ou -1 si la machine virtuelle ne sait pas le mesurer
+     */
+    public long getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    /**
+     * Getter de la durée de la résolution
+     * @return La durée, en nanosecondes
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Retourne les statistiques sur une ligne
+     * @return Le texte
+     */
+    @Override
+    public String toString() {
+        return String.format("%.3f ms, %d nœuds, profondeur %d, %d essais dont %d faux, %d copies, %d octets alloués, applications %s",
+                this.elapsedNanos / 1e6, this.nodes, this.maxDepth, this.guesses, this.backtracks, this.copies, this.allocatedBytes, this.getApplications());
+    }
+}
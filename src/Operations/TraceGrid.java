@@ -0,0 +1,181 @@
+package Operations;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * L'état d'une grille reconstruit à partir de logs, partagé par TraceLogSink qui l'écrit et TraceReplayer qui le relit.
+ * Il suit le format des logs : donner une valeur à une case la change, et donner "0" à une case annule toutes les opérations
+ * jusqu'au dernier changement de valeur de cette case. Pour cela, il garde une pile des changements qui n'ont pas encore été annulés,
+ * avec la valeur qu'avait la case avant chacun d'eux
+ */
+class TraceGrid {
+    /**
+     * La valeur visible de chaque case, de 1 à la taille du sudoku, ou 0 si la case est vide
+     */
+    final int[] values;
+    /**
+     * La case de chaque changement de la pile
+     */
+    private int[] stackCells;
+    /**
+     * La valeur qu'avait la case avant chaque changement de la pile
+     */
+    private int[] stackPrevious;
+    /**
+     * Le nombre de changements dans la pile
+     */
+    private int stackSize;
+    /**
+     * Le nombre de changements de chaque case dans la pile, pour savoir sans la parcourir si une annulation doit la dépiler
+     */
+    private final int[] stackCounts;
+
+    /**
+     * Constructeur de la classe, avec une pile vide
+     * @param values La valeur de départ de chaque case, qui est gardé par la grille
+     */
+    TraceGrid(int[] values) {
+        this.values = values;
+        this.stackCells = new int[64];
+        this.stackPrevious = new int[64];
+        this.stackSize = 0;
+        this.stackCounts = new int[values.length];
+    }
+
+    /**
+     * Applique une opération des logs
+     * @param cell L'indice de la case
+     * @param value La nouvelle valeur de la case, ou 0 pour annuler les opérations jusqu'à son dernier changement
+     */
+    void apply(int cell, int value) {
+        if (value == 0) {
+            // on dépile jusqu'au dernier changement de la case, inclus
+            if (this.stackCounts[cell] > 0) {
+                int popped;
+                do {
+                    this.stackSize--;
+                    popped = this.stackCells[this.stackSize];
+                    this.stackCounts[popped]--;
+                    this.values[popped] = this.stackPrevious[this.stackSize];
+                } while (popped != cell);
+            }
+            this.values[cell] = 0;
+            return;
+        }
+        // plusieurs valeurs de suite sur la même case sont des essais, donc un seul changement à annuler
+        if (this.stackSize == 0 || this.stackCells[this.stackSize - 1] != cell) {
+            if (this.stackSize == this.stackCells.length) {
+                this.stackCells = Arrays.copyOf(this.stackCells, this.stackSize * 2);
+                this.stackPrevious = Arrays.copyOf(this.stackPrevious, this.stackSize * 2);
+            }
+            this.stackCells[this.stackSize] = cell;
+            this.stackPrevious[this.stackSize] = this.values[cell];
+            this.stackSize++;
+            this.stackCounts[cell]++;
+        }
+        this.values[cell] = value;
+    }
+
+    /**
+     * Écrit l'état complet de la grille : la valeur de chaque case puis la pile des changements
+     * @param out Le flux dans lequel écrire
+     * @return Le nombre d'octets écrits
+     * @throws IOException S'il y a une erreur lors de l'écriture
+     */
+    long writeKeyframe(OutputStream out) throws IOException {
+        long written = 0;
+        for (int value : this.values) {
+            written += writeVarint(out, value);
+        }
+        written += writeVarint(out, this.stackSize);
+        for (int i = 0; i < this.stackSize; i++) {
+            written += writeVarint(out, this.stackCells[i]);
+            written += writeVarint(out, this.stackPrevious[i]);
+        }
+        return written;
+    }
+
+    /**
+     * Lit un état complet de la grille écrit par writeKeyframe, en remplaçant l'état actuel
+     * @param in Le flux dans lequel lire
+     * @throws IOException S'il y a une erreur lors de la lecture, ou si le flux se termine avant la fin de l'état
+     */
+    void readKeyframe(InputStream in) throws IOException {
+        for (int i = 0; i < this.values.length; i++) {
+            this.values[i] = (int) readVarint(in);
+        }
+        Arrays.fill(this.stackCounts, 0);
+        this.stackSize = (int) readVarint(in);
+        if (this.stackSize > this.stackCells.length) {
+            this.stackCells = new int[this.stackSize];
+            this.stackPrevious = new int[this.stackSize];
+        }
+        for (int i = 0; i < this.stackSize; i++) {
+            this.stackCells[i] = (int) readVarint(in);
+            this.stackPrevious[i] = (int) readVarint(in);
+            this.stackCounts[this.stackCells[i]]++;
+        }
+    }
+
+    /**
+     * Écrit un entier positif sur le moins d'octets possible, 7 bits par octet en commençant par les bits de poids faible,
+     * le bit de poids fort de chaque octet indiquant s'il y en a un autre après
+     * @param out Le flux dans lequel écrire
+     * @param value L'entier, positif
+     * @return Le nombre d'octets écrits
+     * @throws IOException S'il y a une erreur lors de l'écriture
+     */
+    static int writeVarint(OutputStream out, long value) throws IOException {
+        int written = 1;
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+            written++;
+        }
+        out.write((int) value);
+        return written;
+    }
+
+    /**
+     * Lit un entier écrit par writeVarint
+     * @param in Le flux dans lequel lire
+     * @return L'entier
+     * @throws IOException S'il y a une erreur lors de la lecture, ou si le flux se termine avant la fin de l'entier
+     */
+    static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.read();
+            if (b == -1) {
+                throw new EOFException("La trace se termine au milieu d'un entier");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Code un entier signé en entier positif, les petites valeurs absolues donnant de petits entiers : 0, -1, 1, -2... deviennent 0, 1, 2, 3...
+     * @param value L'entier signé
+     * @return L'entier positif
+     */
+    static long zigzag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Décode un entier codé par zigzag
+     * @param value L'entier positif
+     * @return L'entier signé
+     */
+    static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+}
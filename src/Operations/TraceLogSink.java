@@ -0,0 +1,308 @@
+package Operations;
+
+import Grids.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Écrit les logs d'une résolution dans une trace binaire compacte, relue par TraceReplayer, au lieu du fichier texte des logs.
+ * Chaque opération est codée par l'écart entre sa case et celle de l'opération précédente, puis par l'écart entre la nouvelle valeur de la case et l'ancienne,
+ * tous deux en varint, ce qui fait en général deux octets par opération. Les opérations sont regroupées en blocs de taille fixe,
+ * chacun commençant par l'état complet de la grille : un index des blocs à la fin du fichier permet ainsi de retrouver la grille à n'importe quelle opération
+ * en ne relisant qu'un seul bloc.
+ * Le fichier commence par MAGIC, la version, le nom de l'algorithme, la taille de la grille et le nombre d'opérations par bloc,
+ * et finit par l'index des blocs, le nombre d'opérations, la position de l'index et MAGIC
+ */
+public class TraceLogSink implements LogSink {
+    /**
+     * Les 4 octets au début et à la fin de chaque trace
+     */
+    static final int MAGIC = 0x53444B54;
+    /**
+     * La version du format
+     */
+    static final short VERSION = 1;
+    /**
+     * Le nombre d'octets de la fin du fichier : le nombre d'opérations, la position de l'index et MAGIC
+     */
+    static final int FOOTER_LENGTH = 20;
+    /**
+     * Le nombre d'opérations par bloc par défaut
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 4096;
+
+    /**
+     * Le nom de la trace, sans extension
+     */
+    private final String filename;
+    /**
+     * Le flux dans lequel on écrit
+     */
+    private final DataOutputStream output;
+    /**
+     * La position dans le fichier du prochain octet écrit
+     */
+    private long position;
+    /**
+     * La taille de la grille, dont chaque case a pour indice ligne * taille + colonne
+     */
+    private final int gridSize;
+    /**
+     * Le nombre d'opérations par bloc
+     */
+    private final int keyframeInterval;
+    /**
+     * L'état de la grille après la dernière opération écrite
+     */
+    private final TraceGrid grid;
+    /**
+     * La position de chaque bloc dans le fichier
+     */
+    private long[] blockOffsets;
+    /**
+     * Le nombre d'opérations écrites
+     */
+    private long steps;
+    /**
+     * La case de l'opération précédente dans le bloc
+     */
+    private int previousCell;
+    /**
+     * Les nombres lus dans la ligne de log en cours, réutilisés d'une ligne à l'autre
+     */
+    private final int[] numbers;
+    /**
+     * Indique si la trace a été fermée
+     */
+    private boolean closed;
+
+    /**
+     * Constructeur de la classe, qui crée une trace à la date du jour avec le nombre d'opérations par bloc par défaut
+     * @param algorithm Le nom de l'algorithme qui va créer les logs
+     * @param puzzle Le puzzle sur lequel l'algorithme va être effectué, dont les valeurs visibles sont l'état de départ de la trace
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws RuntimeException Si le puzzle n'est pas pris en charge
+     */
+    public TraceLogSink(String algorithm, Puzzle puzzle) throws IOException, RuntimeException {
+        this(algorithm, puzzle, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Constructeur de la classe, qui crée une trace à la date du jour
+     * @param algorithm Le nom de l'algorithme qui va créer les logs
+     * @param puzzle Le puzzle sur lequel l'algorithme va être effectué, dont les valeurs visibles sont l'état de départ de la trace
+     * @param keyframeInterval Le nombre d'opérations par bloc : plus il est petit, plus la relecture est rapide et plus la trace est grosse
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws RuntimeException Si le puzzle n'est pas pris en charge ou si le nombre d'opérations par bloc n'est pas positif
+     */
+    public TraceLogSink(String algorithm, Puzzle puzzle, int keyframeInterval) throws IOException, RuntimeException {
+        this("", algorithm, gridSize(puzzle), initialValues(puzzle), keyframeInterval);
+    }
+
+    /**
+     * Constructeur de la classe, qui crée la trace et écrit son en-tête, sans jamais remplacer un fichier existant
+     * @param filename Le début du nom de la trace, sans extension, dans le dossier des logs, ou vide pour utiliser la date actuelle. On y ajoute _bis si le nom est déjà pris
+     * @param algorithm Le nom de l'algorithme qui a créé les logs
+     * @param gridSize La taille de la grille
+     * @param values La valeur de départ de chaque case, de 1 à la taille du sudoku, ou 0 si la case est vide
+     * @param keyframeInterval Le nombre d'opérations par bloc
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     * @throws IllegalArgumentException Si le nombre d'opérations par bloc n'est pas positif
+     */
+    TraceLogSink(String filename, String algorithm, int gridSize, int[] values, int keyframeInterval) throws IOException, IllegalArgumentException {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Le nombre d'opérations par bloc doit être positif");
+        }
+        StringBuilder chosen = new StringBuilder(filename);
+        OutputStream file = FilesOperations.newLogFile(chosen, ".trc");
+        this.filename = chosen.toString();
+        this.gridSize = gridSize;
+        this.keyframeInterval = keyframeInterval;
+        this.grid = new TraceGrid(values);
+        this.blockOffsets = new long[16];
+        this.steps = 0;
+        this.numbers = new int[6];
+        this.closed = false;
+
+        // on compte nous-même les octets écrits, DataOutputStream.size s'arrêtant à 2 Go
+        this.output = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+        byte[] name = algorithm.getBytes(StandardCharsets.UTF_8);
+        this.output.writeInt(MAGIC);
+        this.output.writeShort(VERSION);
+        this.output.writeInt(name.length);
+        this.output.write(name);
+        this.output.writeInt(gridSize);
+        this.output.writeInt(keyframeInterval);
+        this.position = 18 + name.length;
+    }
+
+    /**
+     * Calcule la taille de la grille d'un puzzle
+     * @param puzzle Le puzzle
+     * @return La taille d'un sudoku, ou celle de la grille entière d'un multidoku
+     * @throws RuntimeException Si le puzzle n'est pas pris en charge
+     */
+    private static int gridSize(Puzzle puzzle) throws RuntimeException {
+        if (!(puzzle instanceof Sudoku) && !(puzzle instanceof Multidoku)) {
+            throw new RuntimeException("Type de puzzle inconnu");
+        }
+        return BatchStatistics.gridSize(puzzle);
+    }
+
+    /**
+     * Récupère les valeurs visibles d'un puzzle, qui sont l'état de départ de la trace
+     * @param puzzle Le puzzle
+     * @return La valeur de chaque case de la grille, de 1 à la taille du sudoku, ou 0 si la case est vide ou n'appartient à aucun sudoku
+     * @throws RuntimeException Si le puzzle n'est pas pris en charge
+     */
+    private static int[] initialValues(Puzzle puzzle) throws RuntimeException {
+        int gridSize = gridSize(puzzle);
+        int[] values = new int[gridSize * gridSize];
+        if (puzzle instanceof Sudoku) {
+            copyValues((Sudoku) puzzle, 0, 0, gridSize, values);
+        }
+        else {
+            for (PlacedSudoku placedSudoku : ((Multidoku) puzzle).getSudokus()) {
+                copyValues(placedSudoku.sudoku(), placedSudoku.line(), placedSudoku.column(), gridSize, values);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Copie les valeurs visibles d'un sudoku dans les valeurs de la grille
+     * @param sudoku Le sudoku
+     * @param line La ligne de sa première case sur la grille
+     * @param column La colonne de sa première case sur la grille
+     * @param gridSize La taille de la grille
+     * @param values Les valeurs de la grille
+     */
+    private static void copyValues(Sudoku sudoku, int line, int column, int gridSize, int[] values) {
+        for (int i = 0; i < sudoku.getSize(); i++) {
+            for (int j = 0; j < sudoku.getSize(); j++) {
+                values[(line + i) * gridSize + column + j] = sudoku.getCase(i, j).getValue() + 1;
+            }
+        }
+    }
+
+    /**
+     * Ajoute une ligne de log à la trace, au format des fichiers de logs : "ligne colonne -> valeur",
+     * précédé de la ligne et de la colonne du sudoku sur un multidoku. Les lignes qui ne suivent pas ce format sont ignorées
+     * @param line La ligne de log
+     * @throws RuntimeException Si la trace a déjà été fermée, ou s'il y a une erreur lors de l'écriture dans le fichier
+     */
+    @Override
+    public void log(String line) throws RuntimeException {
+        if (this.closed) {
+            throw new RuntimeException("La trace a déjà été fermée");
+        }
+        // on lit les nombres de la ligne, en sautant la flèche
+        int[] numbers = this.numbers;
+        int count = 0;
+        int n = -1;
+        for (int i = 0; i <= line.length(); i++) {
+            char c = (i < line.length()) ? line.charAt(i) : ' ';
+            if (c >= '0' && c <= '9') {
+                n = (n == -1) ? c - '0' : n * 10 + c - '0';
+            }
+            else if (c == ' ' || c == '-' || c == '>') {
+                if (n != -1) {
+                    if (count == numbers.length) return;
+                    numbers[count++] = n;
+                    n = -1;
+                }
+            }
+            else {
+                return;
+            }
+        }
+        int cell;
+        switch (count) {
+            case 3:
+                cell = (numbers[0] - 1) * this.gridSize + numbers[1] - 1;
+                break;
+            case 5:
+                cell = (numbers[0] + numbers[2] - 2) * this.gridSize + numbers[1] + numbers[3] - 2;
+                break;
+            default:
+                return;
+        }
+        if (cell < 0 || cell >= this.grid.values.length) {
+            return;
+        }
+        try {
+            this.step(cell, numbers[count - 1]);
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Erreur lors de l'écriture de la trace : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Écrit une opération, en commençant un nouveau bloc si le précédent est plein
+     * @param cell L'indice de la case
+     * @param value La nouvelle valeur de la case, ou 0 pour une annulation
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     */
+    void step(int cell, int value) throws IOException {
+        if (this.steps % this.keyframeInterval == 0) {
+            int block = (int) (this.steps / this.keyframeInterval);
+            if (block == this.blockOffsets.length) {
+                this.blockOffsets = Arrays.copyOf(this.blockOffsets, block * 2);
+            }
+            this.blockOffsets[block] = this.position;
+            this.position += this.grid.writeKeyframe(this.output);
+            this.previousCell = 0;
+        }
+        this.position += TraceGrid.writeVarint(this.output, TraceGrid.zigzag(cell - this.previousCell));
+        this.position += TraceGrid.writeVarint(this.output, TraceGrid.zigzag(value - this.grid.values[cell]));
+        this.grid.apply(cell, value);
+        this.previousCell = cell;
+        this.steps++;
+    }
+
+    /**
+     * Getter du nom de la trace
+     * @return Le nom de la trace, sans extension, dans le dossier des logs
+     */
+    public String getFilename() {
+        return this.filename;
+    }
+
+    /**
+     * Getter du nombre d'opérations écrites
+     * @return Le nombre d'opérations
+     */
+    public long getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Écrit l'index des blocs à la fin de la trace et la ferme
+     * @throws IOException S'il y a une erreur lors de l'écriture dans le fichier
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        // une trace sans opération a quand même un bloc, pour garder l'état de départ
+        if (this.steps == 0) {
+            this.blockOffsets[0] = this.position;
+            this.position += this.grid.writeKeyframe(this.output);
+        }
+        int blocks = (int) Math.max(1, (this.steps + this.keyframeInterval - 1) / this.keyframeInterval);
+        long indexOffset = this.position;
+        this.output.writeInt(blocks);
+        for (int i = 0; i < blocks; i++) {
+            this.output.writeLong(this.blockOffsets[i]);
+        }
+        this.output.writeLong(this.steps);
+        this.output.writeLong(indexOffset);
+        this.output.writeInt(MAGIC);
+        this.output.close();
+    }
+}
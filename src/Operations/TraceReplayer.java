@@ -0,0 +1,191 @@
+package Operations;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Relit une trace binaire écrite par TraceLogSink, et retrouve l'état de la grille à n'importe quelle opération
+ * en partant du début du bloc qui la contient, sans rejouer les opérations des blocs précédents
+ */
+public class TraceReplayer implements AutoCloseable {
+    /**
+     * Le fichier de la trace
+     */
+    private final FileChannel channel;
+    /**
+     * Le nom de l'algorithme qui a créé les logs
+     */
+    private final String algorithm;
+    /**
+     * La taille de la grille
+     */
+    private final int gridSize;
+    /**
+     * Le nombre d'opérations par bloc
+     */
+    private final int keyframeInterval;
+    /**
+     * Le nombre d'opérations de la trace
+     */
+    private final long steps;
+    /**
+     * La position de chaque bloc dans le fichier
+     */
+    private final long[] blockOffsets;
+
+    /**
+     * Constructeur de la classe, qui ouvre la trace et lit son en-tête et son index
+     * @param filename Le nom de la trace, sans extension, dans le dossier des logs
+     * @throws IOException S'il y a une erreur lors de la lecture du fichier
+     * @throws IllegalArgumentException Si le fichier n'est pas une trace complète ou si sa version n'est pas prise en charge
+     */
+    public TraceReplayer(String filename) throws IOException, IllegalArgumentException {
+        String filepath = "./data/logs/" + filename + ".trc";
+        this.channel = FileChannel.open(Path.of(filepath), StandardOpenOption.READ);
+        try {
+            // on lit l'en-tête
+            DataInputStream header = this.streamAt(0);
+            if (header.readInt() != TraceLogSink.MAGIC) {
+                throw new IllegalArgumentException("Le fichier n'est pas une trace de sudokus");
+            }
+            if (header.readShort() != TraceLogSink.VERSION) {
+                throw new IllegalArgumentException("La version de la trace n'est pas prise en charge");
+            }
+            byte[] name = new byte[header.readInt()];
+            header.readFully(name);
+            this.algorithm = new String(name, StandardCharsets.UTF_8);
+            this.gridSize = header.readInt();
+            this.keyframeInterval = header.readInt();
+
+            // on lit la fin du fichier, puis l'index des blocs
+            long length = this.channel.size();
+            if (length < TraceLogSink.FOOTER_LENGTH) {
+                throw new IllegalArgumentException("La trace n'a pas été fermée correctement");
+            }
+            ByteBuffer footer = ByteBuffer.allocate(TraceLogSink.FOOTER_LENGTH);
+            this.channel.read(footer, length - TraceLogSink.FOOTER_LENGTH);
+            footer.flip();
+            this.steps = footer.getLong();
+            long indexOffset = footer.getLong();
+            if (footer.getInt() != TraceLogSink.MAGIC) {
+                throw new IllegalArgumentException("La trace n'a pas été fermée correctement");
+            }
+            DataInputStream index = this.streamAt(indexOffset);
+            this.blockOffsets = new long[index.readInt()];
+            for (int i = 0; i < this.blockOffsets.length; i++) {
+                this.blockOffsets[i] = index.readLong();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ouvre un flux qui lit le fichier à partir d'une position
+     * @param position La position dans le fichier
+     * @return Le flux
+     * @throws IOException S'il y a une erreur lors de la lecture du fichier
+     */
+    private DataInputStream streamAt(long position) throws IOException {
+        this.channel.position(position);
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(this.channel), 1 << 16));
+    }
+
+    /**
+     * Reconstruit la grille après un nombre d'opérations, en rejouant seulement les opérations du bloc qui la contient
+     * @param step Le nombre d'opérations appliquées, 0 donnant l'état de départ
+     * @return La valeur de chaque case, ligne par ligne, de 1 à la taille du sudoku, ou 0 si la case est vide
+     * @throws IOException S'il y a une erreur lors de la lecture du fichier
+     * @throws IllegalArgumentException Si le nombre d'opérations n'est pas entre 0 et celui de la trace
+     */
+    public int[] stateAt(long step) throws IOException, IllegalArgumentException {
+        TraceGrid grid = this.replay(step, null);
+        return grid.values;
+    }
+
+    /**
+     * Retrouve une opération de la trace
+     * @param step Le numéro de l'opération, à partir de 1
+     * @return La ligne et la colonne de la case sur la grille, à partir de 1, puis sa nouvelle valeur, 0 indiquant une annulation
+     * @throws IOException S'il y a une erreur lors de la lecture du fichier
+     * @throws IllegalArgumentException Si le numéro de l'opération n'est pas entre 1 et le nombre d'opérations de la trace
+     */
+    public int[] stepAt(long step) throws IOException, IllegalArgumentException {
+        if (step < 1) {
+            throw new IllegalArgumentException("Les opérations sont numérotées à partir de 1");
+        }
+        int[] operation = new int[2];
+        this.replay(step, operation);
+        return new int[] {operation[0] / this.gridSize + 1, operation[0] % this.gridSize + 1, operation[1]};
+    }
+
+    /**
+     * Rejoue les opérations d'un bloc à partir de son état de départ
+     * @param step Le nombre d'opérations à avoir appliqué
+     * @param lastOperation Un tableau dans lequel mettre la case et la valeur de la dernière opération appliquée, ou null
+     * @return La grille après ces opérations
+     * @throws IOException S'il y a une erreur lors de la lecture du fichier
+     * @throws IllegalArgumentException Si le nombre d'opérations n'est pas entre 0 et celui de la trace
+     */
+    private TraceGrid replay(long step, int[] lastOperation) throws IOException, IllegalArgumentException {
+        if (step < 0 || step > this.steps) {
+            throw new IllegalArgumentException("La trace n'a que " + this.steps + " opérations");
+        }
+        // l'état au début d'un bloc est celui après la dernière opération du bloc précédent, donc la dernière opération d'un bloc se lit dans ce bloc
+        int block = (int) Math.min(this.blockOffsets.length - 1, Math.max(0, (step - 1) / this.keyframeInterval));
+        DataInputStream in = this.streamAt(this.blockOffsets[block]);
+        TraceGrid grid = new TraceGrid(new int[this.gridSize * this.gridSize]);
+        grid.readKeyframe(in);
+        int cell = 0;
+        for (long i = (long) block * this.keyframeInterval; i < step; i++) {
+            cell += TraceGrid.unzigzag(TraceGrid.readVarint(in));
+            int value = grid.values[cell] + TraceGrid.unzigzag(TraceGrid.readVarint(in));
+            grid.apply(cell, value);
+            if (lastOperation != null) {
+                lastOperation[0] = cell;
+                lastOperation[1] = value;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Getter du nom de l'algorithme qui a créé les logs
+     * @return Le nom de l'algorithme
+     */
+    public String getAlgorithm() {
+        return this.algorithm;
+    }
+
+    /**
+     * Getter de la taille de la grille
+     * @return La taille d'un sudoku, ou celle de la grille entière d'un multidoku
+     */
+    public int getGridSize() {
+        return this.gridSize;
+    }
+
+    /**
+     * Getter du nombre d'opérations de la trace
+     * @return Le nombre d'opérations
+     */
+    public long getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Ferme la trace
+     * @throws IOException S'il y a une erreur lors de la fermeture du fichier
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -233,19 +233,46 @@ public abstract class Menu {
             constraints = getCustomRules(puzzle);
         }
 
+        // on demande la symétrie des cases enlevées
+        separator();
+        important("Quelle symétrie doivent respecter les cases enlevées ?");
+        int choiceSymmetry;
+        do {
+            System.out.println("1. Aucune");
+            System.out.println("2. Rotation d'un demi-tour");
+            System.out.println("3. Rotation d'un quart de tour");
+            System.out.println("4. Miroir vertical");
+            System.out.println("5. Miroir horizontal et vertical");
+            System.out.print("Choix : ");
+            choiceSymmetry = getIntFromUser(false);
+        } while (choiceSymmetry < 1 || choiceSymmetry > 5);
+        RemovalSymmetry symmetry = RemovalSymmetry.values()[choiceSymmetry - 1];
+
+        // on demande comment vérifier l'unicité de la solution
+        separator();
+        important("Voulez-vous vérifier l'unicité de la solution en comptant les solutions (grilles plus dures, qui peuvent demander du backtracking) ?");
+        int choiceCounting = askYesOrNo();
+
         // on applique l'algorithme
         separator();
         String filename = null;
         try {
             boolean valid = Solver.generateNewSolvedPuzzle(puzzle, constraints, null);
             if (valid) {
-                ArrayList<String> logs = new ArrayList<>();
-                valid = Solver.generateNewPuzzleToSolve(puzzle, constraints, difficulty, logs);
-                filename = logOperations(logs, "toSolve-" + difficulty, puzzle);
+                SolverContext context = new SolverContext();
+                context.setCountingSolutions(choiceCounting == 1);
+                FileLogSink logSink = openLogSink(context, "toSolve-" + difficulty, puzzle);
+                try {
+                    valid = Solver.generateNewPuzzleToSolve(context, puzzle, constraints, difficulty, symmetry, null);
+                }
+                finally {
+                    filename = closeLogSink(logSink);
+                }
                 success("Nouvelle grille à résoudre créée !");
                 if (!valid) {
                     important("L'algorithme n'a pas pu générer de grille plus dure que celle-ci !");
                 }
+                important("Technique la plus dure nécessaire : " + new DifficultyRater().rate(puzzle, constraints));
             }
             else {
                 error("Une nouvelle grille n'a pas pu être créée !");
@@ -569,9 +596,11 @@ public abstract class Menu {
             System.out.println("1. Résoudre avec simplement les contraintes (vitesse ++, efficacité -)");
             System.out.println("2. Résoudre avec simplement le backtracking (vitesse --, efficacité ++)");
             System.out.println("3. Résoudre avec un mix des deux (vitesse -+, efficacité ++)");
+            System.out.println("4. Résoudre avec un mix des deux, sans copier la grille (vitesse +, efficacité ++)");
+            System.out.println("5. Résoudre avec les liens dansants (vitesse ++, efficacité ++)");
             System.out.print("Choix : ");
             algoChoice = getIntFromUser(false);
-        } while (algoChoice < 1 || algoChoice > 3);
+        } while (algoChoice < 1 || algoChoice > 5);
 
         // on demande les contraintes supplémentaires
         ArrayList<SudokuConstraint> constraints = null;
@@ -582,29 +611,34 @@ public abstract class Menu {
             constraints = getCustomRules(puzzle);
         }
 
-        // on applique l'algorithme
+        // on applique l'algorithme, en écrivant ses logs pendant la résolution
         separator();
-        ArrayList<String> logs = new ArrayList<>();
+        String[] algorithms = {"constraints", "backtracking", "mixed", "trail", "dancinglinks"};
+        SolverContext context = new SolverContext();
+        FileLogSink logSink = openLogSink(context, algorithms[algoChoice - 1], puzzle);
         boolean solved = false;
-        String filename = null;
         try {
             if (algoChoice == 1) {
-                solved = Solver.solveWithConstraints(puzzle, constraints, logs);
-                filename = logOperations(logs, "constraints", puzzle);
+                solved = Solver.solveWithConstraints(context, puzzle, constraints);
             }
             if (algoChoice == 2) {
-                solved = Solver.solveWithBacktracking(puzzle, constraints, logs);
-                filename = logOperations(logs, "backtracking", puzzle);
+                solved = Solver.solveWithBacktracking(context, puzzle, constraints);
             }
             if (algoChoice == 3) {
-                solved = Solver.solveWithBoth(puzzle, constraints, logs);
-                filename = logOperations(logs, "mixed", puzzle);
+                solved = Solver.solveWithBoth(context, puzzle, constraints);
+            }
+            if (algoChoice == 4) {
+                solved = Solver.solveWithTrail(context, puzzle, constraints);
+            }
+            if (algoChoice == 5) {
+                solved = Solver.solveWithDancingLinks(context, puzzle, constraints);
             }
         }
         catch (RuntimeException e) {
             error("L'algorithme a échoué !");
             error(e.getMessage());
         }
+        String filename = closeLogSink(logSink);
 
         // on affiche le résultat
         if (solved) {
@@ -669,6 +703,46 @@ public abstract class Menu {
         }
     }
 
+    /**
+     * Crée un nouveau fichier de logs dans lequel les logs d'un contexte seront écrits pendant l'algorithme
+     * @param context Le contexte de l'algorithme
+     * @param algorithm Le nom de l'algorithme utilisé
+     * @param puzzle Le puzzle sur lequel va être réalisé l'algorithme
+     * @return Le fichier de logs, ou null s'il y a une erreur, auquel cas les logs ne sont pas gardés
+     */
+    private static FileLogSink openLogSink(SolverContext context, String algorithm, Puzzle puzzle) {
+        try {
+            FileLogSink logSink = new FileLogSink(algorithm, puzzle);
+            context.setLogSink(logSink);
+            return logSink;
+        }
+        catch (IOException | RuntimeException e) {
+            error("Erreur lors de l'écriture du fichier de logs !");
+            context.setLogging(false);
+            return null;
+        }
+    }
+
+    /**
+     * Termine un fichier de logs ouvert par openLogSink
+     * @param logSink Le fichier de logs, ou null s'il n'a pas pu être créé
+     * @return Le nom du fichier de logs créé, ou null s'il y a une erreur
+     */
+    private static String closeLogSink(FileLogSink logSink) {
+        if (logSink == null) {
+            return null;
+        }
+        try {
+            logSink.close();
+            success("Logs enregistrés dans : S5-sudoku/data/logs/" + logSink.getFilename() + ".txt");
+            return logSink.getFilename();
+        }
+        catch (IOException e) {
+            error("Erreur lors de l'écriture du fichier de logs !");
+            return null;
+        }
+    }
+
     /**
      * Demande à l'utilisateur s'il veut voir les logs d'un fichier passé en paramètre
      * @param filename Le nom du fichier de logs